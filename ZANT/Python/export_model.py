@@ -0,0 +1,127 @@
+import argparse
+import csv
+import struct
+from pathlib import Path
+
+import joblib
+
+from predictor import basic_clean, collect_case_text_from_dir
+
+
+# === FORMAT PLIKU (czytany przez TfidfLogisticRegressionModel w backendzie) ===
+#
+# "ZTLR" | int wersja=1 | byte lowercase | int ngram_min | int ngram_max | byte sublinear_tf | byte l2_norm
+#        | double intercept | int n | n x (string termin, double idf, double współczynnik)
+#
+# Wszystko big-endian, string = int długości + bajty UTF-8, terminy w kolejności indeksów cech.
+
+MAGIC = b"ZTLR"
+FORMAT_VERSION = 1
+DEFAULT_TOKEN_PATTERN = r"(?u)\b\w\w+\b"
+
+
+def _check_supported(vectorizer, clf) -> None:
+    """Backend odtwarza tylko to, czego używa model_training.py - reszta ma się głośno wywalić."""
+    problems = []
+    if vectorizer.analyzer != "word":
+        problems.append(f"analyzer={vectorizer.analyzer!r}")
+    if vectorizer.token_pattern != DEFAULT_TOKEN_PATTERN:
+        problems.append(f"token_pattern={vectorizer.token_pattern!r}")
+    if vectorizer.tokenizer is not None or vectorizer.preprocessor is not None:
+        problems.append("własny tokenizer/preprocessor")
+    if vectorizer.strip_accents is not None:
+        problems.append(f"strip_accents={vectorizer.strip_accents!r}")
+    if vectorizer.stop_words is not None:
+        problems.append("stop_words")
+    if vectorizer.binary:
+        problems.append("binary=True")
+    if not vectorizer.use_idf:
+        problems.append("use_idf=False")
+    if vectorizer.norm not in ("l2", None):
+        problems.append(f"norm={vectorizer.norm!r}")
+    if list(clf.classes_) != [0, 1]:
+        problems.append(f"classes_={list(clf.classes_)}")
+    if clf.coef_.shape[0] != 1:
+        problems.append("model wieloklasowy")
+    if problems:
+        raise ValueError("Nieobsługiwana konfiguracja modelu: " + ", ".join(problems))
+
+
+def _write_string(out, value: str) -> None:
+    data = value.encode("utf-8")
+    out.write(struct.pack(">i", len(data)))
+    out.write(data)
+
+
+def export_model(model, output_path: Path) -> None:
+    vectorizer = model.named_steps["tfidf"]
+    clf = model.named_steps["clf"]
+    _check_supported(vectorizer, clf)
+
+    terms = [None] * len(vectorizer.vocabulary_)
+    for term, index in vectorizer.vocabulary_.items():
+        terms[index] = term
+
+    idf = vectorizer.idf_
+    coef = clf.coef_[0]
+    ngram_min, ngram_max = vectorizer.ngram_range
+
+    with open(output_path, "wb") as out:
+        out.write(MAGIC)
+        out.write(struct.pack(">i", FORMAT_VERSION))
+        out.write(struct.pack(">?ii??", vectorizer.lowercase, ngram_min, ngram_max,
+                              vectorizer.sublinear_tf, vectorizer.norm == "l2"))
+        out.write(struct.pack(">d", float(clf.intercept_[0])))
+        out.write(struct.pack(">i", len(terms)))
+        for i, term in enumerate(terms):
+            _write_string(out, term)
+            out.write(struct.pack(">dd", float(idf[i]), float(coef[i])))
+
+    print(f"Zapisano model ({len(terms)} cech) do: {output_path}")
+
+
+def write_parity_fixture(model, cases_dir: Path, output_path: Path) -> None:
+    """
+    Zapisuje CSV (case_id, probability) z predict_proba modelu joblib dla spraw z OCR_OUTPUT.
+    Test w backendzie liczy to samo w Javie i porównuje wyniki.
+    """
+    rows = []
+    for case_dir in sorted(p for p in cases_dir.iterdir() if p.is_dir()):
+        try:
+            text = collect_case_text_from_dir(case_dir)
+        except ValueError:
+            continue
+        proba = model.predict_proba([basic_clean(text)])[0][1]
+        rows.append((case_dir.name, repr(float(proba))))
+
+    with open(output_path, "w", encoding="utf-8", newline="") as f:
+        writer = csv.writer(f)
+        writer.writerow(["case_id", "probability"])
+        writer.writerows(rows)
+
+    print(f"Zapisano {len(rows)} wyników referencyjnych do: {output_path}")
+
+
+def main():
+    parser = argparse.ArgumentParser(
+        description="Eksport modelu TF-IDF + LogisticRegression do pliku binarnego dla scoringu w Javie."
+    )
+    parser.add_argument("--model-path", type=str, default="MODELS/wniosek_model.joblib",
+                        help="Ścieżka do modelu .joblib")
+    parser.add_argument("--output", type=str, default="MODELS/wniosek_model.bin",
+                        help="Ścieżka do pliku wynikowego")
+    parser.add_argument("--parity-cases", type=str,
+                        help="Katalog ze sprawami (np. OCR_OUTPUT) - jeśli podany, zapisuje wyniki referencyjne")
+    parser.add_argument("--parity-output", type=str, default="MODELS/wniosek_model_parity.csv",
+                        help="Ścieżka do CSV z wynikami referencyjnymi")
+    args = parser.parse_args()
+
+    model = joblib.load(args.model_path)
+    export_model(model, Path(args.output))
+
+    if args.parity_cases:
+        write_parity_fixture(model, Path(args.parity_cases), Path(args.parity_output))
+
+
+if __name__ == "__main__":
+    main()
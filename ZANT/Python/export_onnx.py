@@ -0,0 +1,86 @@
+import argparse
+import sys
+from pathlib import Path
+
+import joblib
+import numpy as np
+
+from predictor import basic_clean, collect_case_text_from_dir
+
+# ONNX liczy w float32 - różnica większa niż to oznacza inny model, a nie zaokrąglenia
+PARITY_TOLERANCE = 1e-5
+
+
+def export_onnx(model, output_path: Path):
+    """
+    Konwertuje pipeline TF-IDF + LogisticRegression do ONNX.
+      - wejście: tensor stringów [N, 1] (tekst po basic_clean - czyści backend),
+      - wyjście 'probabilities': tensor float [N, 2] (zipmap wyłączony, prościej czytać w Javie),
+      - tokenizacja TF-IDF wyrażeniem odpowiadającym domyślnemu token_pattern sklearn.
+    """
+    from skl2onnx import convert_sklearn
+    from skl2onnx.common.data_types import StringTensorType
+
+    onx = convert_sklearn(
+        model,
+        initial_types=[("input", StringTensorType([None, 1]))],
+        options={
+            id(model.named_steps["tfidf"]): {"tokenexp": r"\b\w\w+\b"},
+            id(model.named_steps["clf"]): {"zipmap": False},
+        },
+    )
+    with open(output_path, "wb") as f:
+        f.write(onx.SerializeToString())
+    print(f"Zapisano model ONNX do: {output_path}")
+
+
+def check_parity(model, onnx_path: Path, cases_dir: Path, tolerance: float) -> bool:
+    """
+    Porównuje predict_proba modelu joblib z ONNX Runtime na sprawach z OCR_OUTPUT.
+    Zwraca False, gdy którakolwiek różnica przekracza tolerance (albo nie było żadnej sprawy).
+    """
+    import onnxruntime as ort
+
+    session = ort.InferenceSession(str(onnx_path), providers=["CPUExecutionProvider"])
+    input_name = session.get_inputs()[0].name
+
+    max_diff = 0.0
+    compared = 0
+    for case_dir in sorted(p for p in cases_dir.iterdir() if p.is_dir()):
+        try:
+            text = basic_clean(collect_case_text_from_dir(case_dir))
+        except ValueError:
+            continue
+        expected = model.predict_proba([text])[0][1]
+        _, probabilities = session.run(None, {input_name: np.array([[text]])})
+        diff = abs(float(probabilities[0][1]) - float(expected))
+        max_diff = max(max_diff, diff)
+        compared += 1
+        print(f"{case_dir.name}: joblib={expected:.6f} onnx={probabilities[0][1]:.6f}")
+
+    print(f"Maksymalna różnica joblib vs ONNX: {max_diff:.2e} (tolerancja {tolerance:.0e}, spraw: {compared})")
+    return compared > 0 and max_diff <= tolerance
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Eksport modelu .joblib do ONNX dla scoringu przez ONNX Runtime.")
+    parser.add_argument("--model-path", type=str, default="MODELS/wniosek_model.joblib",
+                        help="Ścieżka do modelu .joblib")
+    parser.add_argument("--output", type=str, default="MODELS/wniosek_model.onnx",
+                        help="Ścieżka do pliku .onnx")
+    parser.add_argument("--parity-cases", type=str,
+                        help="Katalog ze sprawami (np. OCR_OUTPUT) - jeśli podany, porównuje wyniki z modelem joblib")
+    parser.add_argument("--parity-tolerance", type=float, default=PARITY_TOLERANCE,
+                        help="Największa dopuszczalna różnica prawdopodobieństw joblib vs ONNX")
+    args = parser.parse_args()
+
+    model = joblib.load(args.model_path)
+    export_onnx(model, Path(args.output))
+
+    if args.parity_cases and not check_parity(model, Path(args.output), Path(args.parity_cases), args.parity_tolerance):
+        print("BŁĄD: model ONNX nie zgadza się z modelem joblib - nie używaj tego pliku.", file=sys.stderr)
+        sys.exit(1)
+
+
+if __name__ == "__main__":
+    main()
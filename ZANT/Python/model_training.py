@@ -9,6 +9,8 @@ from sklearn.pipeline import Pipeline
 from sklearn.metrics import classification_report, confusion_matrix
 import joblib
 
+from export_model import export_model
+
 
 # === ŚCIEŻKI ===
 
@@ -188,6 +190,9 @@ def main():
     model_path = MODELS_DIR / "wniosek_model.joblib"
     joblib.dump(model, model_path)
 
+    # eksport do formatu binarnego dla scoringu w Javie (bez Pythona w backendzie)
+    export_model(model, MODELS_DIR / "wniosek_model.bin")
+
     print(f"\n=== GOTOWE ===")
     print(f"Zapisano wytrenowany model do: {model_path}")
     print("Możesz go potem wczytać i używać do predykcji nowych spraw.")
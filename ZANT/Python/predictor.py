@@ -1,5 +1,8 @@
 import argparse
+import json
 import re
+import struct
+import sys
 from pathlib import Path
 
 import joblib
@@ -79,6 +82,52 @@ def predict_from_text(model, text: str) -> float:
     return proba
 
 
+# === TRYB WORKERA (długożyjący proces dla backendu) ===
+
+def read_frame(stream):
+    """Czyta jedną ramkę: 4 bajty długości (big-endian) + JSON w UTF-8. Zwraca None na EOF."""
+    header = stream.read(4)
+    if len(header) < 4:
+        return None
+    (length,) = struct.unpack(">I", header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return json.loads(payload.decode("utf-8"))
+
+
+def write_frame(stream, obj) -> None:
+    payload = json.dumps(obj, ensure_ascii=False).encode("utf-8")
+    stream.write(struct.pack(">I", len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def serve(model) -> None:
+    """
+    Obsługuje żądania z backendu przez stdin/stdout, model jest ładowany tylko raz.
+    Żądanie:   {"texts": ["...", ...]}
+    Odpowiedź: {"probabilities": [0.87, ...]} albo {"error": "..."}
+    stdout jest zarezerwowany na ramki protokołu - logi idą na stderr.
+    """
+    stdin = sys.stdin.buffer
+    stdout = sys.stdout.buffer
+
+    write_frame(stdout, {"ready": True})
+
+    while True:
+        request = read_frame(stdin)
+        if request is None:
+            break
+        try:
+            texts = [basic_clean(t) for t in request.get("texts", [])]
+            probabilities = [float(p[1]) for p in model.predict_proba(texts)] if texts else []
+            write_frame(stdout, {"probabilities": probabilities})
+        except Exception as e:  # błąd pojedynczego żądania nie zabija workera
+            print(f"Błąd predykcji: {e}", file=sys.stderr)
+            write_frame(stdout, {"error": str(e)})
+
+
 # === CLI ===
 
 def main():
@@ -101,12 +150,21 @@ def main():
         type=str,
         help="Ścieżka do pojedynczego pliku TXT z pełnym opisem zdarzenia + resztą danych.",
     )
+    parser.add_argument(
+        "--serve",
+        action="store_true",
+        help="Tryb workera: model ładowany raz, żądania przez stdin/stdout (ramki z prefiksem długości).",
+    )
 
     args = parser.parse_args()
 
     model_path = Path(args.model_path)
     model = load_model(model_path)
 
+    if args.serve:
+        serve(model)
+        return
+
     # Pobierz tekst wejściowy:
     if args.case_dir:
         # tryb: katalog jak przy trenowaniu
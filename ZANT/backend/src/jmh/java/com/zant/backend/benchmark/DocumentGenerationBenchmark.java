@@ -0,0 +1,38 @@
+package com.zant.backend.benchmark;
+
+import com.zant.backend.model.ewyp.EWYPReport;
+import com.zant.backend.service.EWYPDocumentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generowanie dokumentu zgłoszenia (endpoint {@code /generate-document}) - ciężkie, dużo alokacji.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentGenerationBenchmark {
+
+    private EWYPDocumentService documentService;
+    private EWYPReport report;
+
+    @Setup
+    public void setUp() {
+        documentService = new EWYPDocumentService();
+        report = ReportFixtures.ewypReport(3);
+    }
+
+    @Benchmark
+    public byte[] generatePdf() {
+        return documentService.generatePdf(report);
+    }
+
+    @Benchmark
+    public byte[] generateDocx() {
+        return documentService.generateDocx(report);
+    }
+}
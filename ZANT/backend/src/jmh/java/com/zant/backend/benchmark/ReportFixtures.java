@@ -0,0 +1,138 @@
+package com.zant.backend.benchmark;
+
+import com.zant.backend.model.AccidentData;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.BusinessData;
+import com.zant.backend.model.PersonData;
+import com.zant.backend.model.Witness;
+import com.zant.backend.model.ewyp.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Realistyczne zgłoszenia do benchmarków - wszystkie sekcje wypełnione, długie opisy okoliczności,
+ * kilku świadków. Bez bazy danych i bez sieci.
+ */
+final class ReportFixtures {
+
+    private static final String CIRCUMSTANCES =
+            "W dniu zdarzenia poszkodowany wykonywał prace montażowe na rusztowaniu przy elewacji budynku "
+            + "magazynowego na wysokości około 3 metrów. Podczas przenoszenia elementów konstrukcji stalowej "
+            + "poszkodowany poślizgnął się na mokrej od deszczu platformie roboczej, stracił równowagę i spadł "
+            + "na utwardzone podłoże. Bezpośrednio przed zdarzeniem poszkodowany sprawdzał mocowanie barierek "
+            + "ochronnych. Przyczyną wypadku była śliska nawierzchnia platformy oraz brak zabezpieczenia "
+            + "antypoślizgowego. Poszkodowany posiadał aktualne szkolenie BHP oraz badania lekarskie. ";
+
+    private static final String INJURIES =
+            "Złamanie kości piszczelowej prawej nogi, stłuczenie barku lewego, otarcia naskórka przedramion. "
+            + "Poszkodowany został przewieziony do szpitala, gdzie założono unieruchomienie gipsowe.";
+
+    private ReportFixtures() {
+    }
+
+    static EWYPReport ewypReport(int witnesses) {
+        EWYPReport report = new EWYPReport();
+        report.setId(UUID.fromString("550e8400-e29b-41d4-a716-446655440000"));
+        report.setStatus("SUBMITTED");
+
+        InjuredPerson injured = new InjuredPerson();
+        injured.setPesel("80051512345");
+        injured.setIdDocumentType("DOWOD_OSOBISTY");
+        injured.setIdDocumentNumber("ABC123456");
+        injured.setFirstName("Jan");
+        injured.setLastName("Kowalski");
+        injured.setBirthDate("1980-05-15");
+        injured.setBirthPlace("Kraków");
+        injured.setPhoneNumber("+48 600 100 200");
+        injured.setAddress(new Address("Kwiatowa", "10", "5", "00-001", "Warszawa", "Polska"));
+        injured.setLastPolishAddressOrStay(new PolishAddress("Polna", "3", null, "30-001", "Kraków"));
+        injured.setCorrespondenceAddress(new CorrespondenceAddress("STANDARD_ADDRESS", "Kwiatowa", "10", "5",
+                "00-001", "Warszawa", "Polska"));
+        report.setInjuredPerson(injured);
+
+        Reporter reporter = new Reporter();
+        reporter.setIsDifferentFromInjuredPerson(true);
+        reporter.setPesel("82030354321");
+        reporter.setFirstName("Anna");
+        reporter.setLastName("Kowalska");
+        reporter.setBirthDate("1982-03-03");
+        reporter.setPhoneNumber("+48 600 300 400");
+        reporter.setAddress(new Address("Kwiatowa", "10", "5", "00-001", "Warszawa", "Polska"));
+        report.setReporter(reporter);
+
+        AccidentInfo accident = new AccidentInfo();
+        accident.setAccidentDate("2024-03-15");
+        accident.setAccidentTime("10:30");
+        accident.setPlannedWorkStartTime("07:00");
+        accident.setPlannedWorkEndTime("15:00");
+        accident.setPlaceOfAccident("Budowa hali magazynowej, ul. Przemysłowa 5, Warszawa");
+        accident.setCircumstancesAndCauses(CIRCUMSTANCES.repeat(3));
+        accident.setInjuriesDescription(INJURIES);
+        accident.setFirstAidGiven(true);
+        accident.setFirstAidFacility("Szpital Bródnowski, SOR");
+        accident.setInvestigatingAuthority("Państwowa Inspekcja Pracy, OIP Warszawa");
+        accident.setAccidentDuringMachineOperation(false);
+        report.setAccidentInfo(accident);
+
+        List<WitnessInfo> witnessList = new ArrayList<>();
+        for (int i = 0; i < witnesses; i++) {
+            WitnessInfo witness = new WitnessInfo();
+            witness.setFirstName("Świadek" + i);
+            witness.setLastName("Nowak");
+            witness.setStreet("Leśna");
+            witness.setHouseNumber(String.valueOf(i + 1));
+            witness.setPostalCode("00-002");
+            witness.setCity("Warszawa");
+            witness.setCountry("Polska");
+            witnessList.add(witness);
+        }
+        report.setWitnesses(witnessList);
+
+        Attachments attachments = new Attachments();
+        attachments.setHasHospitalCardCopy(true);
+        attachments.setHospitalCardCopyFilename("karta_szpitalna.pdf");
+        attachments.setHasOtherDocuments(false);
+        report.setAttachments(attachments);
+
+        report.setDocumentsToDeliverLater(new DocumentsToDeliverLater("2024-04-15",
+                List.of("Karta informacyjna ze szpitala", "Zaświadczenie lekarskie")));
+        report.setResponseDeliveryMethod("TO_PUE_ACCOUNT");
+        report.setSignature(new Signature("2024-03-16", "Jan Kowalski"));
+        report.setCreatedAt(LocalDateTime.of(2024, 3, 16, 9, 0));
+        report.setUpdatedAt(LocalDateTime.of(2024, 3, 16, 9, 5));
+        return report;
+    }
+
+    /**
+     * Zgłoszenie z asystenta w połowie rozmowy - część pól brakuje, więc kalkulator przechodzi wszystkie reguły.
+     */
+    static AccidentReport partialAccidentReport() {
+        AccidentReport report = new AccidentReport();
+
+        PersonData victim = new PersonData();
+        victim.setFirstName("Jan");
+        victim.setLastName("Kowalski");
+        victim.setPesel("80051512345");
+        report.setVictimData(victim);
+
+        BusinessData business = new BusinessData();
+        business.setNip("5260250274");
+        report.setBusinessData(business);
+
+        AccidentData accident = new AccidentData();
+        accident.setAccidentDateTime(LocalDateTime.of(2024, 3, 15, 10, 30));
+        accident.setPlace("Budowa hali magazynowej, ul. Przemysłowa 5, Warszawa");
+        accident.setCircumstancesAndCauses(CIRCUMSTANCES);
+        report.setAccidentData(accident);
+
+        Witness witness = new Witness();
+        witness.setFirstName("Piotr");
+        witness.setLastName("Nowak");
+        witness.setAddress("ul. Leśna 1, 00-002 Warszawa");
+        report.setWitnesses(List.of(witness));
+        return report;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zant.backend.benchmark;
+
+import com.zant.backend.dto.ewyp.EWYPReportDTO;
+import com.zant.backend.mapper.EWYPReportMapper;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.ewyp.EWYPReport;
+import com.zant.backend.service.MissingFieldsCalculator;
+import com.zant.backend.service.OnnxScoringService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lekkie ścieżki wołane przy każdym zapisie/wysłaniu zgłoszenia i każdej wiadomości asystenta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportProcessingBenchmark {
+
+    @Param({"1", "5"})
+    private int witnesses;
+
+    private OnnxScoringService scoringService;
+    private EWYPReportMapper mapper;
+    private MissingFieldsCalculator missingFieldsCalculator;
+
+    private EWYPReport report;
+    private EWYPReportDTO reportDTO;
+    private AccidentReport accidentReport;
+
+    @Setup
+    public void setUp() {
+        // extractTextFromReport nie korzysta z modelu - serwis nie jest inicjalizowany (@PostConstruct)
+        scoringService = new OnnxScoringService(new SimpleMeterRegistry());
+        mapper = new EWYPReportMapper();
+        missingFieldsCalculator = new MissingFieldsCalculator();
+
+        report = ReportFixtures.ewypReport(witnesses);
+        reportDTO = mapper.toDTO(report);
+        accidentReport = ReportFixtures.partialAccidentReport();
+    }
+
+    @Benchmark
+    public String extractTextFromReport() {
+        return scoringService.extractTextFromReport(report);
+    }
+
+    @Benchmark
+    public EWYPReportDTO mapperToDTO() {
+        return mapper.toDTO(report);
+    }
+
+    @Benchmark
+    public EWYPReport mapperToEntity() {
+        return mapper.toEntity(reportDTO);
+    }
+
+    @Benchmark
+    public List<String> calculateMissingFields() {
+        return missingFieldsCalculator.calculateMissingFields(accidentReport);
+    }
+}
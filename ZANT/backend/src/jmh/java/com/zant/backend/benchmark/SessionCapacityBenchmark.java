@@ -0,0 +1,122 @@
+package com.zant.backend.benchmark;
+
+import com.zant.backend.config.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Model równoczesnych sesji, z których każda czeka na odpowiedź modelu - na wątkach platformowych i wirtualnych.
+ * Jedna operacja = {@code sessions} sesji naraz, każda blokuje się na {@code llmLatencyMs}
+ * (czekanie na LLM / workera Pythona / odczyt LOB-a). Wynik to czas obsłużenia wszystkich sesji:
+ * <ul>
+ *     <li>{@code platform} - pula 200 wątków jak domyślny Tomcat, sesje ponad 200 czekają na wolny wątek,</li>
+ *     <li>{@code virtual} - wątek wirtualny na sesję (wymaga Javy 21: {@code -Pjava21} i JDK 21),</li>
+ *     <li>{@code guard=synchronized} - czekanie wewnątrz monitora (jak dawne {@code switchBackend}); na Javie 21
+ *     przypina wątek wirtualny do nośnego, więc równoległość spada do liczby rdzeni,</li>
+ *     <li>{@code guard=lock} - to samo pod {@link ReentrantLock}, wątek wirtualny się odpina.</li>
+ * </ul>
+ * To tylko model blokującego czekania - nie dotyka backendu i nie mówi, ile sesji obsłuży działająca aplikacja.
+ * Run: mvn -Pjava21,jmh test-compile exec:exec -Djmh.args="SessionCapacity -f 1 -wi 2 -i 3"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SessionCapacityBenchmark {
+
+    /** Domyślne {@code server.tomcat.threads.max}. */
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"none", "synchronized", "lock"})
+    private String guard;
+
+    @Param({"200", "1000", "5000"})
+    private int sessions;
+
+    @Param({"50"})
+    private long llmLatencyMs;
+
+    private ExecutorService executor;
+    /** Stan sesji - każda ma własny, więc to nie rywalizacja o lock, tylko blokujące czekanie w sekcji krytycznej. */
+    private Object[] monitors;
+    private ReentrantLock[] locks;
+
+    @Setup
+    public void setUp() {
+        if ("virtual".equals(threads)) {
+            if (!VirtualThreads.isSupported()) {
+                throw new IllegalStateException("Wątki wirtualne wymagają Javy 21 (uruchomiono na " + Runtime.version() + ")");
+            }
+            executor = VirtualThreads.newThreadPerTaskExecutor("session-");
+        } else {
+            executor = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+        monitors = new Object[sessions];
+        locks = new ReentrantLock[sessions];
+        for (int i = 0; i < sessions; i++) {
+            monitors[i] = new Object();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        // executor wątków wirtualnych nie ma puli do zamknięcia (i nie pozwala się zamknąć)
+        if (!"virtual".equals(threads)) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public int serveSessions() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            int session = i;
+            futures.add(executor.submit(() -> session(session)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return futures.size();
+    }
+
+    private void session(int session) {
+        switch (guard) {
+            case "synchronized" -> {
+                synchronized (monitors[session]) {
+                    awaitModel();
+                }
+            }
+            case "lock" -> {
+                ReentrantLock lock = locks[session];
+                lock.lock();
+                try {
+                    awaitModel();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            default -> awaitModel();
+        }
+    }
+
+    private void awaitModel() {
+        try {
+            Thread.sleep(llmLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
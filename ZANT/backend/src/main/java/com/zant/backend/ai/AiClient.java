@@ -3,23 +3,42 @@ package com.zant.backend.ai;
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
+import com.zant.backend.ai.ProviderRateLimiter.Priority;
 import com.zant.backend.config.RequiredField;
 import com.zant.backend.model.AssistantState;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 @Slf4j
@@ -27,9 +46,144 @@ public class AiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(AiClient.class);
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+
+    /**
+     * Part of the circumstances cache key - bump it whenever the circumstances system prompts change,
+     * so that answers to the old prompt are no longer served.
+     */
+    static final String CIRCUMSTANCES_PROMPT_VERSION = "1";
+
+    /** Successful calls needed before the hedge delay follows the measured latency percentile. */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    /** System prompt of the circumstances questions on PLLUM (the accident description goes in the user message). */
+    private static final String PLLUM_CIRCUMSTANCES_SYSTEM_PROMPT = """
+                Jesteś asystentem BHP weryfikującym kompletność opisu wypadku przy pracy.
+                Twoim zadaniem jest sprawdzenie, czy opis zawiera 5 KLUCZOWYCH ELEMENTÓW.
+                
+                ZASADA NACZELNA: Zwracasz WYŁĄCZNIE obiekt JSON. Żadnego innego tekstu.
+                Struktura JSON: { "questions_count": liczba, "questions": [ { "id": liczba, "text": "tekst_pytania" } ] }
+                
+                ### LISTA KONTROLNA (5 ELEMENTÓW WYMAGANYCH)
+                Musisz zadać pytanie o każdy element z poniższej listy, którego brakuje w opisie lub jest zbyt ogólny:
+                
+                1. CZAS: Data i godzina (Samo "rano" lub "dzisiaj" to za mało – musi być konkret).
+                2. MIEJSCE: Konkretne miejsce zdarzenia (Samo "w pracy" to za mało – musi być np. "na hali", "w biurze", "przy maszynie X").
+                3. CZYNNOŚĆ: Co dokładnie robiła osoba w chwili wypadku? (np. "niosłem karton", "schodziłem z drabiny").
+                4. PRZYCZYNA: Co się wydarzyło? (np. "poślizgnięcie na plamie oleju", "upadek z wysokości", "awaria narzędzia").
+                5. URAZ: Jaka część ciała i jaki skutek? (np. "rana cięta dłoni", "skręcenie kostki").
+                
+                ### ALGORYTM DZIAŁANIA
+                1. Przeczytaj opis użytkownika.
+                2. Sprawdź po kolei każdy z 5 punktów listy kontrolnej.
+                3. Jeżeli w opisie brakuje punktu -> Generujesz pytanie.
+                4. Jeżeli opis punktu jest szczątkowy (np. tylko "boli mnie ręka" bez rodzaju urazu) -> Generujesz pytanie doprecyzowujące.
+                5. Obecność jednego elementu (np. czasu) NIE ZWALNIA z pytania o pozostałe brakujące elementy! To najczęstszy błąd – unikaj go.
+                6. Jeśli opis zawiera wszystkie 5 elementów w sposób konkretny -> Zwróć "questions_count": 0.
+                
+                ### ZASADY PYTAŃ
+                - Maksymalnie 5 pytań.
+                - Pytania muszą być po polsku, krótkie i konkretne.
+                - Nie używaj słowa "Czy" na początku.
+                - Jedno pytanie dotyczy jednego brakującego elementu.
+                - Nie pytaj o BHP, kaski, buty czy szkolenia. Interesują nas tylko fakty o przebiegu zdarzenia.
+                
+                ### PRZYKŁADY (Ucz się na nich)
+                
+                PRZYKŁAD 1 (Opis niekompletny):
+                Opis: "Złamałem nogę dzisiaj rano."
+                Analiza:
+                - Czas: Jest ("dzisiaj rano") -> OK (ewentualnie dopytać o godzinę, ale jest nieźle).
+                - Miejsce: BRAK -> Pytanie 1.
+                - Czynność: BRAK -> Pytanie 2.
+                - Przyczyna: BRAK -> Pytanie 3.
+                - Uraz: Jest ("złamanie nogi") -> OK.
+                Wynik JSON: Ma zawierać 3 pytania (o miejsce, czynność i przyczynę).
+                
+                PRZYKŁAD 2 (Opis kompletny):
+                Opis: "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę. Upadłem na lewy bok i stłukłem bark."
+                Analiza:
+                - Czas: Jest (data, godzina) -> OK.
+                - Miejsce: Jest (magazyn) -> OK.
+                - Czynność: Jest (zdejmowanie paczki) -> OK.
+                - Przyczyna: Jest (potknięcie o paletę) -> OK.
+                - Uraz: Jest (stłuczenie barku) -> OK.
+                Wynik JSON: "questions_count": 0, "questions": []
+                
+                ### TERAZ PRZEANALIZUJ PONIŻSZY OPIS UŻYTKOWNIKA I WYGENERUJ JSON:      
+                """;
+
+    /** The same instructions for Gemini, which gets them in front of the description in one user part. */
+    private static final String GEMINI_CIRCUMSTANCES_SYSTEM_PROMPT = """
+                Jesteś asystentem BHP weryfikującym kompletność opisu wypadku przy pracy.
+                                                                        Twoim zadaniem jest sprawdzenie, czy opis zawiera 5 KLUCZOWYCH ELEMENTÓW.
+                
+                                                                        ZASADA NACZELNA: Zwracasz WYŁĄCZNIE obiekt JSON. Żadnego innego tekstu.
+                                                                        Struktura JSON: { "questions_count": liczba, "questions": [ { "id": liczba, "text": "tekst_pytania" } ] }
+                
+                                                                        ### LISTA KONTROLNA (5 ELEMENTÓW WYMAGANYCH)
+                                                                        Musisz zadać pytanie o każdy element z poniższej listy, którego brakuje w opisie lub jest zbyt ogólny:
+                
+                                                                        1. CZAS: Data i godzina (Samo "rano" lub "dzisiaj" to za mało – musi być konkret).
+                                                                        2. MIEJSCE: Konkretne miejsce zdarzenia (Samo "w pracy" to za mało – musi być np. "na hali", "w biurze", "przy maszynie X").
+                                                                        3. CZYNNOŚĆ: Co dokładnie robiła osoba w chwili wypadku? (np. "niosłem karton", "schodziłem z drabiny").
+                                                                        4. PRZYCZYNA: Co się wydarzyło? (np. "poślizgnięcie na plamie oleju", "upadek z wysokości", "awaria narzędzia").
+                                                                        5. URAZ: Jaka część ciała i jaki skutek? (np. "rana cięta dłoni", "skręcenie kostki").
+                
+                                                                        ### ALGORYTM DZIAŁANIA
+                                                                        1. Przeczytaj opis użytkownika.
+                                                                        2. Sprawdź po kolei każdy z 5 punktów listy kontrolnej.
+                                                                        3. Jeżeli w opisie brakuje punktu -> Generujesz pytanie.
+                                                                        4. Jeżeli opis punktu jest szczątkowy (np. tylko "boli mnie ręka" bez rodzaju urazu) -> Generujesz pytanie doprecyzowujące.
+                                                                        5. Obecność jednego elementu (np. czasu) NIE ZWALNIA z pytania o pozostałe brakujące elementy! To najczęstszy błąd – unikaj go.
+                                                                        6. Jeśli opis zawiera wszystkie 5 elementów w sposób konkretny -> Zwróć "questions_count": 0.
+                
+                                                                        ### ZASADY PYTAŃ
+                                                                        - Maksymalnie 5 pytań.
+                                                                        - Pytania muszą być po polsku, krótkie i konkretne.
+                                                                        - Nie używaj słowa "Czy" na początku.
+                                                                        - Jedno pytanie dotyczy jednego brakującego elementu.
+                                                                        - Nie pytaj o BHP, kaski, buty czy szkolenia. Interesują nas tylko fakty o przebiegu zdarzenia.
+                
+                                                                        ### PRZYKŁADY (Ucz się na nich)
+                
+                                                                        PRZYKŁAD 1 (Opis niekompletny):
+                                                                        Opis: "Złamałem nogę dzisiaj rano."
+                                                                        Analiza:
+                                                                        - Czas: Jest ("dzisiaj rano") -> OK (ewentualnie dopytać o godzinę, ale jest nieźle).
+                                                                        - Miejsce: BRAK -> Pytanie 1.
+                                                                        - Czynność: BRAK -> Pytanie 2.
+                                                                        - Przyczyna: BRAK -> Pytanie 3.
+                                                                        - Uraz: Jest ("złamanie nogi") -> OK.
+                                                                        Wynik JSON: Ma zawierać 3 pytania (o miejsce, czynność i przyczynę).
+                
+                                                                        PRZYKŁAD 2 (Opis kompletny):
+                                                                        Opis: "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę. Upadłem na lewy bok i stłukłem bark."
+                                                                        Analiza:
+                                                                        - Czas: Jest (data, godzina) -> OK.
+                                                                        - Miejsce: Jest (magazyn) -> OK.
+                                                                        - Czynność: Jest (zdejmowanie paczki) -> OK.
+                                                                        - Przyczyna: Jest (potknięcie o paletę) -> OK.
+                                                                        - Uraz: Jest (stłuczenie barku) -> OK.
+                                                                        Wynik JSON: "questions_count": 0, "questions": []
+                
+                                                                        ### TERAZ PRZEANALIZUJ PONIŻSZY OPIS UŻYTKOWNIKA I WYGENERUJ JSON:                """;
 
     private final Gson gson;
     private final OkHttpClient httpClient;
+    private final CircumstancesResponseCache circumstancesCache;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProviderHealth> providerHealth;
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+    private final Map<String, ProviderRateLimiter> rateLimiters = new HashMap<>();
+
+    /**
+     * Circumstances requests currently waiting for the LLM, keyed by provider + description.
+     * Identical concurrent requests (double clicks, frontend retries) share one upstream call.
+     */
+    private final ConcurrentMap<String, CompletableFuture<CircumstancesAssistantResponse>> inFlightCircumstances = new ConcurrentHashMap<>();
 
     @Value("${ai.provider:pllum}")
     private String aiProvider;
@@ -64,6 +218,92 @@ public class AiClient {
     @Value("${gemini.max.tokens:2048}")
     private Integer geminiMaxTokens;
 
+    /** Automatic failover and hedging between PLLUM and Gemini; ai.provider is the primary. */
+    @Value("${ai.routing.enabled:true}")
+    private boolean routingEnabled;
+
+    @Value("${ai.routing.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${ai.routing.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    /** Hedge delay until the primary has enough successful calls to measure its latency percentile. */
+    @Value("${ai.routing.hedge.initial.delay.ms:10000}")
+    private long hedgeInitialDelayMs;
+
+    @Value("${ai.routing.hedge.min.delay.ms:1000}")
+    private long hedgeMinDelayMs;
+
+    @Value("${ai.routing.hedge.max.delay.ms:30000}")
+    private long hedgeMaxDelayMs;
+
+    @Value("${ai.routing.failover.error.rate:0.5}")
+    private double failoverErrorRate;
+
+    @Value("${ai.routing.failover.min.samples:10}")
+    private int failoverMinSamples;
+
+    @Value("${ai.routing.failover.cooldown.ms:60000}")
+    private long failoverCooldownMs;
+
+    /** Consecutive failed calls that open a provider's circuit breaker. */
+    @Value("${ai.circuit.failure.threshold:5}")
+    private int circuitFailureThreshold;
+
+    @Value("${ai.circuit.open.duration.ms:30000}")
+    private long circuitOpenDurationMs;
+
+    /** Per-provider bulkhead: calls in flight, calls waiting, and how long a call may wait. */
+    @Value("${ai.bulkhead.max.concurrent:32}")
+    private int bulkheadMaxConcurrent;
+
+    @Value("${ai.bulkhead.max.queued:64}")
+    private int bulkheadMaxQueued;
+
+    @Value("${ai.bulkhead.queue.timeout.ms:2000}")
+    private long bulkheadQueueTimeoutMs;
+
+    /** Answer complete circumstances descriptions locally, without the LLM (see CircumstancesPreExtractor). */
+    @Value("${ai.preextractor.enabled:false}")
+    private boolean preExtractorEnabled;
+
+    /** Upper bound for the chat extraction prompt; the report section is shortened to fit. */
+    @Value("${ai.prompt.max.tokens:3000}")
+    private int promptMaxTokens;
+
+    private AssistantPromptBuilder promptBuilder;
+
+    /** Client-side quotas per provider; 0 = no limit. Tokens are estimated from the request size. */
+    @Value("${ai.ratelimit.pllum.requests.per.minute:0}")
+    private int pllumRequestsPerMinute;
+
+    @Value("${ai.ratelimit.pllum.tokens.per.minute:0}")
+    private int pllumTokensPerMinute;
+
+    @Value("${ai.ratelimit.gemini.requests.per.minute:0}")
+    private int geminiRequestsPerMinute;
+
+    @Value("${ai.ratelimit.gemini.tokens.per.minute:0}")
+    private int geminiTokensPerMinute;
+
+    @Value("${ai.ratelimit.burst.seconds:10}")
+    private int rateLimitBurstSeconds;
+
+    @Value("${ai.ratelimit.max.queued:200}")
+    private int rateLimitMaxQueued;
+
+    @Value("${ai.ratelimit.max.wait.ms:15000}")
+    private long rateLimitMaxWaitMs;
+
+    /** Added to the prompt estimate - the answer counts towards the token quota as well. */
+    @Value("${ai.ratelimit.expected.output.tokens:1024}")
+    private int expectedOutputTokens;
+
+    /** Pause after a 429 that says nothing about when to retry. */
+    @Value("${ai.ratelimit.default.retry.after.ms:5000}")
+    private long defaultRetryAfterMs;
+
     public String getAiProvider() {
         return aiProvider;
     }
@@ -77,21 +317,42 @@ public class AiClient {
         }
     }
 
-    public AiClient() {
+    public AiClient(OkHttpClient llmHttpClient,
+                    CircumstancesResponseCache circumstancesCache,
+                    MeterRegistry meterRegistry,
+                    @Value("${ai.routing.window.size:100}") int routingWindowSize) {
+        this.httpClient = llmHttpClient;
+        this.circumstancesCache = circumstancesCache;
+        this.meterRegistry = meterRegistry;
+        this.providerHealth = Map.of(
+                "pllum", new ProviderHealth(routingWindowSize),
+                "gemini", new ProviderHealth(routingWindowSize));
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
                 .create();
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(120, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+    }
+
+    @PostConstruct
+    public void initProviderGuards() {
+        promptBuilder = new AssistantPromptBuilder(promptMaxTokens);
+        for (String provider : List.of("pllum", "gemini")) {
+            circuitBreakers.put(provider, new CircuitBreaker(circuitFailureThreshold, circuitOpenDurationMs));
+            bulkheads.put(provider, new Bulkhead(provider, bulkheadMaxConcurrent, bulkheadMaxQueued, bulkheadQueueTimeoutMs));
+        }
+        rateLimiters.put("pllum", new ProviderRateLimiter("pllum", pllumRequestsPerMinute, pllumTokensPerMinute,
+                rateLimitBurstSeconds, rateLimitMaxQueued, rateLimitMaxWaitMs));
+        rateLimiters.put("gemini", new ProviderRateLimiter("gemini", geminiRequestsPerMinute, geminiTokensPerMinute,
+                rateLimitBurstSeconds, rateLimitMaxQueued, rateLimitMaxWaitMs));
+        logger.info("LLM provider guards: circuit opens after {} failures for {} ms, bulkhead {} in flight / {} queued",
+                circuitFailureThreshold, circuitOpenDurationMs, bulkheadMaxConcurrent, bulkheadMaxQueued);
+        logger.info("LLM rate limits (0 = none): PLLUM {} req/min, {} tokens/min; Gemini {} req/min, {} tokens/min",
+                pllumRequestsPerMinute, pllumTokensPerMinute, geminiRequestsPerMinute, geminiTokensPerMinute);
     }
 
     /**
      * Custom TypeAdapter for LocalDateTime to avoid Java module system issues with Gson
      */
-    private static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
+    static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
         private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
         @Override
@@ -113,69 +374,69 @@ public class AiClient {
         }
     }
 
-    public AiResponse extractInfoFromUserMessage(AssistantState state, String userMessage, List<RequiredField> requiredFields) {
+    /**
+     * Extracts report fields from a chat message. The returned future completes on an OkHttp
+     * dispatcher thread and never completes exceptionally - errors fall back to the offline response.
+     */
+    public CompletableFuture<AiResponse> extractInfoFromUserMessageAsync(AssistantState state, String userMessage, List<RequiredField> requiredFields) {
         if (pllumApiKey == null || pllumApiKey.isEmpty()) {
             logger.warn("PLLUM API key not configured. Using fallback mode.");
-            return getFallbackResponse(userMessage);
+            return CompletableFuture.completedFuture(getFallbackResponse(userMessage));
         }
 
-        try {
-            String prompt = buildPrompt(state, userMessage, requiredFields);
-            String aiResponse = callPllumApi(prompt);
-            return parsePllumResponse(aiResponse);
-        } catch (Exception e) {
-            logger.error("Error calling PLLUM API: {}", e.getMessage(), e);
-            return getFallbackResponse(userMessage);
-        }
+        List<Map<String, String>> history = state.getConversationHistory() != null ? state.getConversationHistory() : List.of();
+        AssistantPromptBuilder.Prompt prompt = promptBuilder.build(state.getAccidentReport(), state.getHistorySummary(),
+                history, userMessage, requiredFields);
+        recordPromptTokens(prompt);
+        // The extraction prompt carries its own instructions - no circumstances system prompt
+        return callPllumApi(null, prompt.text(), Priority.INTERACTIVE)
+                .thenApply(this::parsePllumResponse)
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    logger.error("Error calling PLLUM API: {}", cause.getMessage(), cause);
+                    return getFallbackResponse(userMessage);
+                });
     }
 
-    private String buildPrompt(AssistantState state, String userMessage, List<RequiredField> requiredFields) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Jesteś asystentem ZUS do zgłaszania wypadków przy pracy dla osób prowadzących działalność gospodarczą.\n\n");
-        prompt.append("DEFINICJA WYPADKU:\n");
-        prompt.append("- Wypadek to nagłe zdarzenie wywołane przyczyną zewnętrzną\n");
-        prompt.append("- Powodujące uraz lub śmierć\n");
-        prompt.append("- Które nastąpiło w związku z pracą\n\n");
-
-        prompt.append("TWOJE ZADANIE:\n");
-        prompt.append("1. Wyciągnij informacje z wiadomości użytkownika\n");
-        prompt.append("2. Podsumuj co zrozumiałeś\n");
-        prompt.append("3. Zadaj 1-2 pytania uzupełniające o brakujące dane\n\n");
-
-        prompt.append("WYMAGANE POLA DO ZEBRANIA:\n");
-        for (RequiredField field : requiredFields) {
-            if (field.isMandatory()) {
-                prompt.append("- ").append(field.getLabel()).append(" (").append(field.getCode()).append(")\n");
-            }
+    private void recordPromptTokens(AssistantPromptBuilder.Prompt prompt) {
+        DistributionSummary.builder("ai.prompt.tokens")
+                .description("Estimated input tokens of the chat extraction prompt")
+                .baseUnit("tokens")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(prompt.tokens());
+        if (prompt.truncated()) {
+            meterRegistry.counter("ai.prompt.truncated").increment();
         }
+        logger.debug("Assistant prompt: ~{} tokens (report ~{}), truncated: {}",
+                prompt.tokens(), prompt.reportTokens(), prompt.truncated());
+    }
 
-        prompt.append("\nAKTUALNY STAN ZGŁOSZENIA:\n");
-        if (state.getAccidentReport() != null) {
-            prompt.append(gson.toJson(state.getAccidentReport()));
-        } else {
-            prompt.append("Brak danych");
-        }
-
-        prompt.append("\n\nWIADOMOŚĆ UŻYTKOWNIKA:\n");
-        prompt.append(userMessage);
-
-        prompt.append("\n\nODPOWIEDŹ W FORMACIE JSON:\n");
-        prompt.append("{\n");
-        prompt.append("  \"extractedFields\": {},\n");
-        prompt.append("  \"summaryForUser\": \"krótkie podsumowanie co zrozumiałeś\",\n");
-        prompt.append("  \"followUpQuestions\": [\"pytanie 1\", \"pytanie 2\"]\n");
-        prompt.append("}\n");
+    private CompletableFuture<String> callPllumApi(String systemPrompt, String userContent, Priority priority) {
+        CompletableFuture<String> call = enqueue(buildPllumRequest(systemPrompt, userContent, false), "PLLUM", priority);
+        return cancelling(call, call.thenApply(this::extractPllumContent));
+    }
 
-        return prompt.toString();
+    /**
+     * Streaming PLLUM call ({@code stream=true}, OpenAI-style SSE chunks); {@code onDelta} receives each content piece.
+     */
+    private CompletableFuture<String> streamPllumApi(String systemPrompt, String userContent, Consumer<String> onDelta) {
+        return enqueueStream(buildPllumRequest(systemPrompt, userContent, true), "PLLUM", this::extractPllumDelta, onDelta);
     }
 
-    private String callPllumApi(String prompt) throws IOException {
+    /**
+     * @param systemPrompt instructions sent as the system message, or null to send only {@code userContent}
+     */
+    private Request buildPllumRequest(String systemPrompt, String userContent, boolean stream) {
         String url = pllumApiUrl + "/chat/completions";
 
         // Budowanie JSON requestu
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("type", pllumModel);
         requestBody.addProperty("temperature", pllumTemperature);
+        if (stream) {
+            requestBody.addProperty("stream", true);
+        }
 
         var responseFormat = new JsonObject();
         responseFormat.addProperty("type", "json_object");
@@ -185,71 +446,17 @@ public class AiClient {
 
         JsonArray messages = new JsonArray();
 
-        JsonObject userMessage3 = new JsonObject();
-        userMessage3.addProperty("role", "system");
-        userMessage3.addProperty("content", """
-                Jesteś asystentem BHP weryfikującym kompletność opisu wypadku przy pracy.
-                Twoim zadaniem jest sprawdzenie, czy opis zawiera 5 KLUCZOWYCH ELEMENTÓW.
-                
-                ZASADA NACZELNA: Zwracasz WYŁĄCZNIE obiekt JSON. Żadnego innego tekstu.
-                Struktura JSON: { "questions_count": liczba, "questions": [ { "id": liczba, "text": "tekst_pytania" } ] }
-                
-                ### LISTA KONTROLNA (5 ELEMENTÓW WYMAGANYCH)
-                Musisz zadać pytanie o każdy element z poniższej listy, którego brakuje w opisie lub jest zbyt ogólny:
-                
-                1. CZAS: Data i godzina (Samo "rano" lub "dzisiaj" to za mało – musi być konkret).
-                2. MIEJSCE: Konkretne miejsce zdarzenia (Samo "w pracy" to za mało – musi być np. "na hali", "w biurze", "przy maszynie X").
-                3. CZYNNOŚĆ: Co dokładnie robiła osoba w chwili wypadku? (np. "niosłem karton", "schodziłem z drabiny").
-                4. PRZYCZYNA: Co się wydarzyło? (np. "poślizgnięcie na plamie oleju", "upadek z wysokości", "awaria narzędzia").
-                5. URAZ: Jaka część ciała i jaki skutek? (np. "rana cięta dłoni", "skręcenie kostki").
-                
-                ### ALGORYTM DZIAŁANIA
-                1. Przeczytaj opis użytkownika.
-                2. Sprawdź po kolei każdy z 5 punktów listy kontrolnej.
-                3. Jeżeli w opisie brakuje punktu -> Generujesz pytanie.
-                4. Jeżeli opis punktu jest szczątkowy (np. tylko "boli mnie ręka" bez rodzaju urazu) -> Generujesz pytanie doprecyzowujące.
-                5. Obecność jednego elementu (np. czasu) NIE ZWALNIA z pytania o pozostałe brakujące elementy! To najczęstszy błąd – unikaj go.
-                6. Jeśli opis zawiera wszystkie 5 elementów w sposób konkretny -> Zwróć "questions_count": 0.
-                
-                ### ZASADY PYTAŃ
-                - Maksymalnie 5 pytań.
-                - Pytania muszą być po polsku, krótkie i konkretne.
-                - Nie używaj słowa "Czy" na początku.
-                - Jedno pytanie dotyczy jednego brakującego elementu.
-                - Nie pytaj o BHP, kaski, buty czy szkolenia. Interesują nas tylko fakty o przebiegu zdarzenia.
-                
-                ### PRZYKŁADY (Ucz się na nich)
-                
-                PRZYKŁAD 1 (Opis niekompletny):
-                Opis: "Złamałem nogę dzisiaj rano."
-                Analiza:
-                - Czas: Jest ("dzisiaj rano") -> OK (ewentualnie dopytać o godzinę, ale jest nieźle).
-                - Miejsce: BRAK -> Pytanie 1.
-                - Czynność: BRAK -> Pytanie 2.
-                - Przyczyna: BRAK -> Pytanie 3.
-                - Uraz: Jest ("złamanie nogi") -> OK.
-                Wynik JSON: Ma zawierać 3 pytania (o miejsce, czynność i przyczynę).
-                
-                PRZYKŁAD 2 (Opis kompletny):
-                Opis: "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę. Upadłem na lewy bok i stłukłem bark."
-                Analiza:
-                - Czas: Jest (data, godzina) -> OK.
-                - Miejsce: Jest (magazyn) -> OK.
-                - Czynność: Jest (zdejmowanie paczki) -> OK.
-                - Przyczyna: Jest (potknięcie o paletę) -> OK.
-                - Uraz: Jest (stłuczenie barku) -> OK.
-                Wynik JSON: "questions_count": 0, "questions": []
-                
-                ### TERAZ PRZEANALIZUJ PONIŻSZY OPIS UŻYTKOWNIKA I WYGENERUJ JSON:      
-                """);
-        messages.add(userMessage3);
-
-
-        JsonObject userMessage2 = new JsonObject();
-        userMessage2.addProperty("role", "user");
-        userMessage2.addProperty("content", "Opis zdarzenia:\\n" + prompt);
-        messages.add(userMessage2);
+        if (systemPrompt != null) {
+            JsonObject systemMessage = new JsonObject();
+            systemMessage.addProperty("role", "system");
+            systemMessage.addProperty("content", systemPrompt);
+            messages.add(systemMessage);
+        }
 
+        JsonObject userMessage = new JsonObject();
+        userMessage.addProperty("role", "user");
+        userMessage.addProperty("content", userContent);
+        messages.add(userMessage);
 
         requestBody.add("messages", messages);
 
@@ -263,33 +470,312 @@ public class AiClient {
                 .url(url)
                 .addHeader("Content-Type", "application/json")
                 .addHeader("Ocp-Apim-Subscription-Key", pllumApiKey)
+                .tag(LlmCallMetrics.Provider.class, new LlmCallMetrics.Provider("pllum"))
                 .post(body)
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        return request;
+    }
+
+    private String extractPllumContent(String responseBody) {
+        log.info("Response body: {}", responseBody);
 
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error body";
-                logger.error("PLLUM API error: {} - {}", response.code(), errorBody);
-                throw new IOException("Unexpected code " + response + " - " + errorBody);
+        // Parsowanie odpowiedzi
+        JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+
+        if (jsonResponse.has("choices") && jsonResponse.getAsJsonArray("choices").size() > 0) {
+            JsonObject choice = jsonResponse.getAsJsonArray("choices").get(0).getAsJsonObject();
+            JsonObject message = choice.getAsJsonObject("message");
+            String content = message.get("content").getAsString();
+            log.info("PLLUM API response content: {}", content);
+            return content;
+        }
+
+        return "{}";
+    }
+
+    /**
+     * Content piece of one {@code chat.completion.chunk}; null for chunks without content (role, finish reason).
+     */
+    private String extractPllumDelta(String data) {
+        JsonObject chunk = gson.fromJson(data, JsonObject.class);
+        JsonArray choices = chunk.getAsJsonArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+        if (delta == null || !delta.has("content") || delta.get("content").isJsonNull()) {
+            return null;
+        }
+        return delta.get("content").getAsString();
+    }
+
+    /**
+     * Sends the request with {@link Call#enqueue}, so no caller thread waits for the model.
+     * The future completes with the response body, or with an IOException on network errors
+     * and non-2xx responses. Cancelling the future cancels the HTTP call.
+     */
+    private CompletableFuture<String> enqueue(Request request, String providerName, Priority priority) {
+        return enqueue(request, providerName, priority, ResponseBody::string);
+    }
+
+    /**
+     * Like {@link #enqueue(Request, String, Priority)}, but reads a {@code text/event-stream} response as it arrives.
+     * Every {@code data:} payload is turned into a text piece by {@code deltaExtractor} and passed to
+     * {@code onDelta} on the OkHttp thread; the future completes with all pieces joined once the stream ends.
+     * Streams are always interactive - someone is watching the questions appear.
+     */
+    private CompletableFuture<String> enqueueStream(Request request, String providerName,
+                                                   Function<String, String> deltaExtractor, Consumer<String> onDelta) {
+        return enqueue(request, providerName, Priority.INTERACTIVE,
+                body -> readEventStream(body.source(), deltaExtractor, onDelta));
+    }
+
+    private static String readEventStream(BufferedSource source, Function<String, String> deltaExtractor,
+                                          Consumer<String> onDelta) throws IOException {
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            // Blank lines separate events; "event:" / ":" comment lines carry nothing we need
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            if (data.isEmpty()) {
+                continue;
+            }
+            String delta = deltaExtractor.apply(data);
+            if (delta != null && !delta.isEmpty()) {
+                text.append(delta);
+                onDelta.accept(delta);
             }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Every provider call waits for the provider's rate limiter first, then goes through its circuit breaker and
+     * bulkhead. Rejected calls fail with {@link ProviderUnavailableException}, which callers turn into their usual
+     * error/fallback response. A 429 pauses the limiter for the provider's Retry-After, and the call is queued
+     * once more if that pause fits in its wait budget.
+     */
+    private CompletableFuture<String> enqueue(Request request, String providerName, Priority priority, BodyReader bodyReader) {
+        String provider = providerName.toLowerCase(Locale.ROOT);
+        if (!circuitBreakers.get(provider).isCallPermitted(System.currentTimeMillis())) {
+            return rejected(provider, "circuit_open", new ProviderUnavailableException(providerName + " circuit breaker is open"));
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> stage = new AtomicReference<>();
+        attempt(request, providerName, priority, bodyReader, estimateTokens(request), true, result, stage);
+        result.whenComplete((body, e) -> {
+            CompletableFuture<?> current = stage.get();
+            if (result.isCancelled() && current != null) {
+                current.cancel(true);
+            }
+        });
+        return result;
+    }
 
-            String responseBody = response.body().string();
-            log.info("Response body: {}", responseBody);
+    private void attempt(Request request, String providerName, Priority priority, BodyReader bodyReader, int estimatedTokens,
+                         boolean mayRetry, CompletableFuture<String> result, AtomicReference<CompletableFuture<?>> stage) {
+        String provider = providerName.toLowerCase(Locale.ROOT);
+        ProviderRateLimiter rateLimiter = rateLimiters.get(provider);
+        CompletableFuture<Void> permit = rateLimiter.acquire(priority, estimatedTokens);
+        stage.set(permit);
+        permit.whenComplete((ignored, rejection) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (rejection != null) {
+                meterRegistry.counter("ai.provider.rejected", "provider", provider, "reason", "rate_limit").increment();
+                result.completeExceptionally(unwrap(rejection));
+                return;
+            }
+
+            CompletableFuture<String> call = send(request, providerName, bodyReader);
+            stage.set(call);
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+            call.whenComplete((body, e) -> {
+                Throwable cause = e == null ? null : unwrap(e);
+                if (cause instanceof RateLimitedException limited && mayRetry && !result.isDone()
+                        && limited.getRetryAfterMs() <= rateLimiter.getMaxWaitMs()) {
+                    logger.info("{} quota exceeded - retrying in {} ms", providerName, limited.getRetryAfterMs());
+                    attempt(request, providerName, priority, bodyReader, estimatedTokens, false, result, stage);
+                } else if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(body);
+                }
+            });
+        });
+    }
 
-            // Parsowanie odpowiedzi
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+    /**
+     * Rough token count for the quota: about four bytes of request JSON per token, plus the expected answer.
+     */
+    private int estimateTokens(Request request) {
+        long bytes = 0;
+        try {
+            bytes = request.body() != null ? request.body().contentLength() : 0;
+        } catch (IOException e) {
+            // unknown length - count the answer only
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, bytes) / 4 + expectedOutputTokens);
+    }
 
-            if (jsonResponse.has("choices") && jsonResponse.getAsJsonArray("choices").size() > 0) {
-                JsonObject choice = jsonResponse.getAsJsonArray("choices").get(0).getAsJsonObject();
-                JsonObject message = choice.getAsJsonObject("message");
-                String content = message.get("content").getAsString();
-                log.info("PLLUM API response content: {}", content);
-                return content;
+    /**
+     * Delay from a 429: the {@code Retry-After} header (seconds or HTTP date), else Gemini's
+     * {@code "retryDelay": "37s"} in the error body, else ai.ratelimit.default.retry.after.ms.
+     */
+    long retryAfterMs(Response response, String errorBody) {
+        String header = response.header("Retry-After");
+        if (header != null) {
+            try {
+                return Math.max(0, Long.parseLong(header.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+                } catch (DateTimeParseException ignored) {
+                    logger.debug("Unparseable Retry-After header: {}", header);
+                }
             }
+        }
+        Matcher delay = RETRY_DELAY.matcher(errorBody);
+        if (delay.find()) {
+            return (long) Math.ceil(Double.parseDouble(delay.group(1)) * 1000);
+        }
+        return defaultRetryAfterMs;
+    }
 
-            return "{}";
+    /**
+     * Sends one call through the provider's circuit breaker and bulkhead.
+     */
+    private CompletableFuture<String> send(Request request, String providerName, BodyReader bodyReader) {
+        String provider = providerName.toLowerCase(Locale.ROOT);
+        CircuitBreaker circuitBreaker = circuitBreakers.get(provider);
+        Bulkhead bulkhead = bulkheads.get(provider);
+        if (!circuitBreaker.isCallPermitted(System.currentTimeMillis())) {
+            return rejected(provider, "circuit_open", new ProviderUnavailableException(providerName + " circuit breaker is open"));
         }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AtomicReference<Call> sent = new AtomicReference<>();
+        bulkhead.acquire().whenComplete((permit, rejection) -> {
+            if (rejection != null) {
+                meterRegistry.counter("ai.provider.rejected", "provider", provider, "reason", "bulkhead").increment();
+                future.completeExceptionally(rejection);
+                return;
+            }
+            if (future.isDone() || !circuitBreaker.tryAcquire(System.currentTimeMillis())) {
+                // Cancelled while queued, or another caller took the half-open trial
+                bulkhead.release();
+                if (!future.isDone()) {
+                    meterRegistry.counter("ai.provider.rejected", "provider", provider, "reason", "circuit_open").increment();
+                    future.completeExceptionally(new ProviderUnavailableException(providerName + " circuit breaker is open"));
+                }
+                return;
+            }
+
+            Call call = httpClient.newCall(request);
+            sent.set(call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    finish(e);
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        if (!response.isSuccessful()) {
+                            String errorBody = response.body() != null ? response.body().string() : "No error body";
+                            if (response.code() == 429) {
+                                long retryAfter = retryAfterMs(response, errorBody);
+                                logger.warn("{} quota exceeded (429) - pausing calls for {} ms", providerName, retryAfter);
+                                meterRegistry.counter("ai.provider.quota.exceeded", "provider", provider).increment();
+                                rateLimiters.get(provider).pauseFor(retryAfter);
+                                RateLimitedException e = new RateLimitedException(providerName + " quota exceeded", retryAfter);
+                                finish(e);
+                                future.completeExceptionally(e);
+                                return;
+                            }
+                            logger.error("{} API error: {} - {}", providerName, response.code(), errorBody);
+                            IOException e = new IOException("Unexpected code " + response + " - " + errorBody);
+                            finish(e);
+                            future.completeExceptionally(e);
+                            return;
+                        }
+                        String body = bodyReader.read(response.body());
+                        finish(null);
+                        future.complete(body);
+                    } catch (IOException e) {
+                        finish(e);
+                        future.completeExceptionally(e);
+                    } catch (RuntimeException e) {
+                        // Thrown by our own code (parsing, a stream consumer) - the provider did answer
+                        finish(null);
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                private void finish(IOException failure) {
+                    bulkhead.release();
+                    // A 429 is the quota speaking, not an outage - the rate limiter deals with it
+                    if (future.isCancelled() || failure instanceof RateLimitedException) {
+                        circuitBreaker.onIgnored();
+                    } else if (failure == null) {
+                        circuitBreaker.onSuccess();
+                    } else if (circuitBreaker.onFailure(System.currentTimeMillis())) {
+                        logger.warn("{} circuit breaker opened after repeated failures: {}", providerName, failure.getMessage());
+                    }
+                }
+            });
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        future.whenComplete((body, e) -> {
+            Call call = sent.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<String> rejected(String provider, String reason, ProviderUnavailableException e) {
+        meterRegistry.counter("ai.provider.rejected", "provider", provider, "reason", reason).increment();
+        return CompletableFuture.failedFuture(e);
+    }
+
+    /**
+     * Cancelling a dependent stage does not cancel its source; this makes cancelling {@code response}
+     * (e.g. the losing side of a hedge) also cancel the HTTP call behind it.
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<?> call, CompletableFuture<T> response) {
+        response.whenComplete((r, e) -> {
+            if (response.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    @FunctionalInterface
+    private interface BodyReader {
+        String read(ResponseBody body) throws IOException;
     }
 
     private AiResponse parsePllumResponse(String pllumText) {
@@ -350,103 +836,346 @@ public class AiClient {
      * Generates clarifying questions for accident description
      *
      * @param accidentDescription The user's description of the accident
-     * @return CircumstancesAssistantResponse with generated questions
+     * @return future of CircumstancesAssistantResponse with generated questions; errors are reported
+     *         in {@link CircumstancesAssistantResponse#getError()}, the future never completes exceptionally
      */
-    public CircumstancesAssistantResponse generateCircumstancesQuestions(String accidentDescription) {
-        if ("gemini".equalsIgnoreCase(aiProvider)) {
-            return generateCircumstancesQuestionsGemini(accidentDescription);
-        } else {
-            return generateCircumstancesQuestionsPllum(accidentDescription);
+    public CompletableFuture<CircumstancesAssistantResponse> generateCircumstancesQuestionsAsync(String accidentDescription) {
+        if (isCompleteWithoutModel(accidentDescription)) {
+            return CompletableFuture.completedFuture(new CircumstancesAssistantResponse(0, Collections.emptyList(), null));
+        }
+
+        String provider = aiProvider;
+        boolean gemini = "gemini".equalsIgnoreCase(provider);
+        String model = gemini ? geminiModel : pllumModel;
+        String key = circumstancesCacheKey(provider, model, accidentDescription);
+
+        Optional<CircumstancesAssistantResponse> cached = circumstancesCache.get(key);
+        if (cached.isPresent()) {
+            log.debug("Circumstances questions served from cache ({})", provider);
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        CompletableFuture<CircumstancesAssistantResponse> shared = new CompletableFuture<>();
+        CompletableFuture<CircumstancesAssistantResponse> existing = inFlightCircumstances.putIfAbsent(key, shared);
+        if (existing != null) {
+            log.debug("Joining in-flight {} request for identical accident description", provider);
+            // copy() so that a waiter cancelling its future does not cancel the call for the others
+            return existing.copy();
+        }
+
+        CompletableFuture<CircumstancesAssistantResponse> call = routeCircumstancesQuestions(provider, accidentDescription);
+        // Cached and removed from in-flight before completing, so a request arriving afterwards
+        // either hits the cache or starts a fresh call
+        call.whenComplete((response, e) -> {
+            if (response != null && response.getError() == null) {
+                circumstancesCache.put(key, provider, model, CIRCUMSTANCES_PROMPT_VERSION, response);
+            }
+            inFlightCircumstances.remove(key, shared);
+            if (e != null) {
+                shared.completeExceptionally(e);
+            } else {
+                shared.complete(response);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * A description that states all five checklist elements concretely gets no questions from the model either,
+     * so {@link CircumstancesPreExtractor} answers it locally. Anything it is unsure about goes to the model.
+     */
+    private boolean isCompleteWithoutModel(String accidentDescription) {
+        if (!preExtractorEnabled) {
+            return false;
+        }
+        boolean complete = CircumstancesPreExtractor.isComplete(accidentDescription);
+        meterRegistry.counter("ai.circumstances.preextractor", "result", complete ? "complete" : "uncertain").increment();
+        if (complete) {
+            log.debug("Accident description has all five elements - no LLM call needed");
+        }
+        return complete;
+    }
+
+    /**
+     * Streaming variant of {@link #generateCircumstancesQuestionsAsync}: {@code onQuestion} receives each question
+     * (on an OkHttp thread) as soon as the model has finished writing it, and the returned future completes with
+     * the full response, as in the non-streaming call. A cached answer is replayed at once. Streams are not
+     * coalesced - every caller gets its own upstream call. An exception thrown by {@code onQuestion}
+     * (e.g. the browser went away) aborts the upstream stream.
+     */
+    public CompletableFuture<CircumstancesAssistantResponse> streamCircumstancesQuestionsAsync(String accidentDescription,
+                                                                                         Consumer<CircumstancesQuestion> onQuestion) {
+        if (isCompleteWithoutModel(accidentDescription)) {
+            return CompletableFuture.completedFuture(new CircumstancesAssistantResponse(0, Collections.emptyList(), null));
+        }
+
+        String provider = aiProvider;
+        boolean gemini = "gemini".equalsIgnoreCase(provider);
+        String model = gemini ? geminiModel : pllumModel;
+        String key = circumstancesCacheKey(provider, model, accidentDescription);
+
+        Optional<CircumstancesAssistantResponse> cached = circumstancesCache.get(key);
+        if (cached.isPresent()) {
+            log.debug("Streamed circumstances questions served from cache ({})", provider);
+            cached.get().getQuestions().forEach(onQuestion);
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        CircumstancesStreamParser parser = new CircumstancesStreamParser(gson);
+        Consumer<String> onDelta = piece -> parser.feed(piece).forEach(onQuestion);
+        // Failover applies to streams as well; hedging does not - two half-written streams cannot be merged
+        CompletableFuture<CircumstancesAssistantResponse> call = timedCall(selectProvider(provider), accidentDescription, onDelta,
+                Priority.INTERACTIVE);
+        return call.whenComplete((response, e) -> {
+            if (response != null && response.getError() == null) {
+                circumstancesCache.put(key, provider, model, CIRCUMSTANCES_PROMPT_VERSION, response);
+            }
+        });
+    }
+
+    /**
+     * Sends the description to the selected provider and, if it has not produced a valid answer within the hedge
+     * delay (its recent latency percentile), also to the other provider. The first valid answer wins.
+     * The cache key stays that of the configured provider - both answer the same prompt.
+     */
+    private CompletableFuture<CircumstancesAssistantResponse> routeCircumstancesQuestions(String configured, String accidentDescription) {
+        String primary = selectProvider(configured);
+        String secondary = otherProvider(primary);
+        CompletableFuture<CircumstancesAssistantResponse> primaryCall = timedCall(primary, accidentDescription, null, Priority.INTERACTIVE);
+        long now = System.currentTimeMillis();
+        if (!routingEnabled || !hedgeEnabled || !isConfigured(secondary)
+                || providerHealth.get(secondary).isFailedOver(now) || !circuitBreakers.get(secondary).isCallPermitted(now)) {
+            return primaryCall;
+        }
+        return hedge(primaryCall, secondary, accidentDescription, hedgeDelayMs(primary));
+    }
+
+    /**
+     * The configured provider, unless it has been failed over (error rate over the window at or above
+     * ai.routing.failover.error.rate) or has no API key while the other one has.
+     */
+    private String selectProvider(String configured) {
+        String other = otherProvider(configured);
+        if (!routingEnabled || !isConfigured(other)) {
+            return configured;
+        }
+        if (!isConfigured(configured)) {
+            return other;
+        }
+
+        ProviderHealth health = providerHealth.get(configured);
+        long now = System.currentTimeMillis();
+        if (health.isFailedOver(now) || !circuitBreakers.get(configured).isCallPermitted(now)) {
+            return other;
+        }
+        double errorRate = health.errorRate();
+        int samples = health.samples();
+        if (samples >= failoverMinSamples && errorRate >= failoverErrorRate && health.failOver(now, failoverCooldownMs)) {
+            logger.warn("{} failed {}% of the last {} calls - failing over to {} for {} ms",
+                    configured, Math.round(errorRate * 100), samples, other, failoverCooldownMs);
+            meterRegistry.counter("ai.routing.failovers", "provider", configured).increment();
+            return other;
+        }
+        return configured;
+    }
+
+    private long hedgeDelayMs(String provider) {
+        long percentile = providerHealth.get(provider).latencyPercentile(hedgePercentile, HEDGE_MIN_SAMPLES);
+        if (percentile < 0) {
+            return hedgeInitialDelayMs;
+        }
+        return Math.max(hedgeMinDelayMs, Math.min(percentile, hedgeMaxDelayMs));
+    }
+
+    /**
+     * Fires {@code secondary} after {@code delayMs}, or at once if the primary fails earlier. The first valid
+     * answer completes the result and cancels the other call; if both fail the primary's error is returned.
+     */
+    private CompletableFuture<CircumstancesAssistantResponse> hedge(CompletableFuture<CircumstancesAssistantResponse> primaryCall,
+                                                                    String secondary, String accidentDescription, long delayMs) {
+        CompletableFuture<CircumstancesAssistantResponse> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<CircumstancesAssistantResponse>> secondaryCall = new AtomicReference<>();
+        AtomicReference<CircumstancesAssistantResponse> primaryFailure = new AtomicReference<>();
+        AtomicBoolean secondaryStarted = new AtomicBoolean();
+        // The secondary is counted from the start: it is always started unless the primary wins, and counting it
+        // only once the timer fires would let a primary failing at that moment complete the result without it
+        AtomicInteger pending = new AtomicInteger(2);
+
+        Runnable startSecondary = () -> {
+            if (result.isDone() || !secondaryStarted.compareAndSet(false, true)) {
+                return;
+            }
+            log.info("No valid answer from the primary provider yet - hedging with {}", secondary);
+            meterRegistry.counter("ai.routing.hedges", "provider", secondary).increment();
+            // The hedge is speculative - under quota pressure it must not hold up first attempts of other users
+            CompletableFuture<CircumstancesAssistantResponse> call = timedCall(secondary, accidentDescription, null, Priority.BACKGROUND);
+            secondaryCall.set(call);
+            call.whenComplete((response, e) -> {
+                if (isValid(response)) {
+                    if (result.complete(response)) {
+                        meterRegistry.counter("ai.routing.hedge.wins", "provider", secondary).increment();
+                    }
+                } else if (pending.decrementAndGet() == 0) {
+                    result.complete(primaryFailure.get() != null ? primaryFailure.get() : response);
+                }
+            });
+            if (result.isDone()) {
+                call.cancel(true);
+            }
+        };
+
+        primaryCall.whenComplete((response, e) -> {
+            if (isValid(response)) {
+                result.complete(response);
+                return;
+            }
+            primaryFailure.set(response);
+            startSecondary.run();
+            if (pending.decrementAndGet() == 0) {
+                result.complete(response);
+            }
+        });
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(startSecondary);
+
+        result.whenComplete((response, e) -> {
+            primaryCall.cancel(true);
+            CompletableFuture<CircumstancesAssistantResponse> call = secondaryCall.get();
+            if (call != null) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Calls one provider and records the outcome in its {@link ProviderHealth}. Calls cancelled after losing
+     * a hedge race are not recorded.
+     */
+    private CompletableFuture<CircumstancesAssistantResponse> timedCall(String provider, String accidentDescription,
+                                                                        Consumer<String> onDelta, Priority priority) {
+        long start = System.nanoTime();
+        CompletableFuture<CircumstancesAssistantResponse> call = "gemini".equalsIgnoreCase(provider)
+                ? generateCircumstancesQuestionsGemini(accidentDescription, onDelta, priority)
+                : generateCircumstancesQuestionsPllum(accidentDescription, onDelta, priority);
+        call.whenComplete((response, e) -> {
+            if (call.isCancelled()) {
+                return;
+            }
+            ProviderHealth health = providerHealth.get(provider);
+            if (isValid(response)) {
+                health.recordSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else {
+                health.recordFailure();
+            }
+        });
+        return call;
+    }
+
+    private static boolean isValid(CircumstancesAssistantResponse response) {
+        return response != null && response.getError() == null;
+    }
+
+    private static String otherProvider(String provider) {
+        return "gemini".equalsIgnoreCase(provider) ? "pllum" : "gemini";
+    }
+
+    private boolean isConfigured(String provider) {
+        String apiKey = "gemini".equalsIgnoreCase(provider) ? geminiApiKey : pllumApiKey;
+        return apiKey != null && !apiKey.isEmpty();
+    }
+
+    /**
+     * Current routing view of both providers, for /api/ai-config/routing.
+     */
+    public List<ProviderStatus> getRoutingStatus() {
+        long now = System.currentTimeMillis();
+        List<ProviderStatus> statuses = new java.util.ArrayList<>();
+        for (String provider : List.of("pllum", "gemini")) {
+            ProviderHealth health = providerHealth.get(provider);
+            Bulkhead bulkhead = bulkheads.get(provider);
+            statuses.add(new ProviderStatus(provider, isConfigured(provider), health.samples(), health.errorRate(),
+                    health.latencyPercentile(hedgePercentile, 1), health.isFailedOver(now),
+                    circuitBreakers.get(provider).getState().name(), bulkhead.getActive(), bulkhead.getQueued(),
+                    rateLimiters.get(provider).getQueued(), rateLimiters.get(provider).getPausedMs()));
         }
+        return statuses;
     }
 
-    private CircumstancesAssistantResponse generateCircumstancesQuestionsPllum(String accidentDescription) {
+    private String circumstancesCacheKey(String provider, String model, String accidentDescription) {
+        Double temperature = "gemini".equalsIgnoreCase(provider) ? geminiTemperature : pllumTemperature;
+        return CircumstancesResponseCache.key(provider, model, temperature, CIRCUMSTANCES_PROMPT_VERSION, accidentDescription);
+    }
+
+    /**
+     * @param onDelta null for a regular call; otherwise the answer is streamed and every text piece passed here
+     */
+    private CompletableFuture<CircumstancesAssistantResponse> generateCircumstancesQuestionsPllum(String accidentDescription,
+                                                                                             Consumer<String> onDelta, Priority priority) {
         if (pllumApiKey == null || pllumApiKey.isEmpty()) {
             logger.warn("PLLUM API key not configured. Using fallback mode.");
-            return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Nie ustawiono klucza API do modelu Pllum");
+            return CompletableFuture.completedFuture(
+                    new CircumstancesAssistantResponse(0, Collections.emptyList(), "Nie ustawiono klucza API do modelu Pllum"));
         }
 
-        try {
-            String pllumResponse = callPllumApi(accidentDescription);
-            return parseCircumstancesResponse(pllumResponse);
-        } catch (Exception e) {
-            logger.error("Error calling PLLUM API for circumstances questions: {}", e.getMessage(), e);
-            return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Wystąpił nieznany błąd podczas odpytania modelu Pllum: " + e.getMessage());
-        }
+        CompletableFuture<String> call = onDelta == null
+                ? callPllumApi(PLLUM_CIRCUMSTANCES_SYSTEM_PROMPT, "Opis zdarzenia:\\n" + accidentDescription, priority)
+                : streamPllumApi(PLLUM_CIRCUMSTANCES_SYSTEM_PROMPT, "Opis zdarzenia:\\n" + accidentDescription, onDelta);
+        return cancelling(call, call
+                .thenApply(this::parseCircumstancesResponse)
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof ProviderUnavailableException) {
+                        logger.warn("PLLUM call rejected: {}", cause.getMessage());
+                        return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Model Pllum jest chwilowo niedostępny - spróbuj ponownie za chwilę");
+                    }
+                    logger.error("Error calling PLLUM API for circumstances questions: {}", cause.getMessage(), cause);
+                    return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Wystąpił nieznany błąd podczas odpytania modelu Pllum: " + cause.getMessage());
+                }));
     }
 
-    private CircumstancesAssistantResponse generateCircumstancesQuestionsGemini(String accidentDescription) {
+    private CompletableFuture<CircumstancesAssistantResponse> generateCircumstancesQuestionsGemini(String accidentDescription,
+                                                                                              Consumer<String> onDelta, Priority priority) {
         if (geminiApiKey == null || geminiApiKey.isEmpty()) {
             logger.warn("Gemini API key not configured.");
-            return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Nie ustawiono klucza API do modelu Gemini");
+            return CompletableFuture.completedFuture(
+                    new CircumstancesAssistantResponse(0, Collections.emptyList(), "Nie ustawiono klucza API do modelu Gemini"));
         }
 
-        try {
-            String geminiResponse = callGeminiApi(accidentDescription);
-            return parseCircumstancesResponse(geminiResponse);
-        } catch (Exception e) {
-            logger.error("Error calling Gemini API for circumstances questions: {}", e.getMessage(), e);
-            return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Wystąpił nieznany błąd podczas odpytania modelu Gemini: " + e.getMessage());
-        }
+        CompletableFuture<String> call = onDelta == null
+                ? callGeminiApi(GEMINI_CIRCUMSTANCES_SYSTEM_PROMPT, "Opis zdarzenia:\n" + accidentDescription, priority)
+                : streamGeminiApi(GEMINI_CIRCUMSTANCES_SYSTEM_PROMPT, "Opis zdarzenia:\n" + accidentDescription, onDelta);
+        return cancelling(call, call
+                .thenApply(this::parseCircumstancesResponse)
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof ProviderUnavailableException) {
+                        logger.warn("Gemini call rejected: {}", cause.getMessage());
+                        return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Model Gemini jest chwilowo niedostępny - spróbuj ponownie za chwilę");
+                    }
+                    logger.error("Error calling Gemini API for circumstances questions: {}", cause.getMessage(), cause);
+                    return new CircumstancesAssistantResponse(0, Collections.emptyList(), "Wystąpił nieznany błąd podczas odpytania modelu Gemini: " + cause.getMessage());
+                }));
     }
 
-    private String callGeminiApi(String prompt) throws IOException {
-        String systemPrompt = """
-                Jesteś asystentem BHP weryfikującym kompletność opisu wypadku przy pracy.
-                                                                        Twoim zadaniem jest sprawdzenie, czy opis zawiera 5 KLUCZOWYCH ELEMENTÓW.
-                
-                                                                        ZASADA NACZELNA: Zwracasz WYŁĄCZNIE obiekt JSON. Żadnego innego tekstu.
-                                                                        Struktura JSON: { "questions_count": liczba, "questions": [ { "id": liczba, "text": "tekst_pytania" } ] }
-                
-                                                                        ### LISTA KONTROLNA (5 ELEMENTÓW WYMAGANYCH)
-                                                                        Musisz zadać pytanie o każdy element z poniższej listy, którego brakuje w opisie lub jest zbyt ogólny:
-                
-                                                                        1. CZAS: Data i godzina (Samo "rano" lub "dzisiaj" to za mało – musi być konkret).
-                                                                        2. MIEJSCE: Konkretne miejsce zdarzenia (Samo "w pracy" to za mało – musi być np. "na hali", "w biurze", "przy maszynie X").
-                                                                        3. CZYNNOŚĆ: Co dokładnie robiła osoba w chwili wypadku? (np. "niosłem karton", "schodziłem z drabiny").
-                                                                        4. PRZYCZYNA: Co się wydarzyło? (np. "poślizgnięcie na plamie oleju", "upadek z wysokości", "awaria narzędzia").
-                                                                        5. URAZ: Jaka część ciała i jaki skutek? (np. "rana cięta dłoni", "skręcenie kostki").
-                
-                                                                        ### ALGORYTM DZIAŁANIA
-                                                                        1. Przeczytaj opis użytkownika.
-                                                                        2. Sprawdź po kolei każdy z 5 punktów listy kontrolnej.
-                                                                        3. Jeżeli w opisie brakuje punktu -> Generujesz pytanie.
-                                                                        4. Jeżeli opis punktu jest szczątkowy (np. tylko "boli mnie ręka" bez rodzaju urazu) -> Generujesz pytanie doprecyzowujące.
-                                                                        5. Obecność jednego elementu (np. czasu) NIE ZWALNIA z pytania o pozostałe brakujące elementy! To najczęstszy błąd – unikaj go.
-                                                                        6. Jeśli opis zawiera wszystkie 5 elementów w sposób konkretny -> Zwróć "questions_count": 0.
-                
-                                                                        ### ZASADY PYTAŃ
-                                                                        - Maksymalnie 5 pytań.
-                                                                        - Pytania muszą być po polsku, krótkie i konkretne.
-                                                                        - Nie używaj słowa "Czy" na początku.
-                                                                        - Jedno pytanie dotyczy jednego brakującego elementu.
-                                                                        - Nie pytaj o BHP, kaski, buty czy szkolenia. Interesują nas tylko fakty o przebiegu zdarzenia.
-                
-                                                                        ### PRZYKŁADY (Ucz się na nich)
-                
-                                                                        PRZYKŁAD 1 (Opis niekompletny):
-                                                                        Opis: "Złamałem nogę dzisiaj rano."
-                                                                        Analiza:
-                                                                        - Czas: Jest ("dzisiaj rano") -> OK (ewentualnie dopytać o godzinę, ale jest nieźle).
-                                                                        - Miejsce: BRAK -> Pytanie 1.
-                                                                        - Czynność: BRAK -> Pytanie 2.
-                                                                        - Przyczyna: BRAK -> Pytanie 3.
-                                                                        - Uraz: Jest ("złamanie nogi") -> OK.
-                                                                        Wynik JSON: Ma zawierać 3 pytania (o miejsce, czynność i przyczynę).
-                
-                                                                        PRZYKŁAD 2 (Opis kompletny):
-                                                                        Opis: "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę. Upadłem na lewy bok i stłukłem bark."
-                                                                        Analiza:
-                                                                        - Czas: Jest (data, godzina) -> OK.
-                                                                        - Miejsce: Jest (magazyn) -> OK.
-                                                                        - Czynność: Jest (zdejmowanie paczki) -> OK.
-                                                                        - Przyczyna: Jest (potknięcie o paletę) -> OK.
-                                                                        - Uraz: Jest (stłuczenie barku) -> OK.
-                                                                        Wynik JSON: "questions_count": 0, "questions": []
-                
-                                                                        ### TERAZ PRZEANALIZUJ PONIŻSZY OPIS UŻYTKOWNIKA I WYGENERUJ JSON:                """;
+    private CompletableFuture<String> callGeminiApi(String systemPrompt, String userContent, Priority priority) {
+        CompletableFuture<String> call = enqueue(buildGeminiRequest(systemPrompt, userContent, false), "Gemini", priority);
+        return cancelling(call, call.thenApply(this::extractGeminiContent));
+    }
+
+    /**
+     * Streaming Gemini call ({@code streamGenerateContent?alt=sse}); {@code onDelta} receives each text piece.
+     */
+    private CompletableFuture<String> streamGeminiApi(String systemPrompt, String userContent, Consumer<String> onDelta) {
+        return enqueueStream(buildGeminiRequest(systemPrompt, userContent, true), "Gemini", this::extractGeminiDelta, onDelta);
+    }
 
-        String url = geminiApiUrl + "/" + geminiModel + ":generateContent?key=" + geminiApiKey;
+    /**
+     * @param systemPrompt instructions put before {@code userContent} in the single user part, or null for none
+     */
+    private Request buildGeminiRequest(String systemPrompt, String userContent, boolean stream) {
+
+        String url = geminiApiUrl + "/" + geminiModel
+                + (stream ? ":streamGenerateContent?alt=sse&key=" : ":generateContent?key=") + geminiApiKey;
 
         // Build Gemini API request
         JsonObject requestBody = new JsonObject();
@@ -463,7 +1192,7 @@ public class AiClient {
 
         JsonArray parts = new JsonArray();
         JsonObject systemPart = new JsonObject();
-        systemPart.addProperty("text", systemPrompt + "\n\nOpis zdarzenia:\n" + prompt);
+        systemPart.addProperty("text", systemPrompt != null ? systemPrompt + "\n\n" + userContent : userContent);
         parts.add(systemPart);
 
         content.add("parts", parts);
@@ -479,36 +1208,49 @@ public class AiClient {
         Request request = new Request.Builder()
                 .url(url)
                 .addHeader("Content-Type", "application/json")
+                .tag(LlmCallMetrics.Provider.class, new LlmCallMetrics.Provider("gemini"))
                 .post(body)
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error body";
-                logger.error("Gemini API error: {} - {}", response.code(), errorBody);
-                throw new IOException("Unexpected code " + response + " - " + errorBody);
-            }
-
-            String responseBody = response.body().string();
-            log.info("Gemini response body: {}", responseBody);
-
-            // Parse Gemini response
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+        return request;
+    }
 
-            if (jsonResponse.has("candidates") && jsonResponse.getAsJsonArray("candidates").size() > 0) {
-                JsonObject candidate = jsonResponse.getAsJsonArray("candidates").get(0).getAsJsonObject();
-                JsonObject content2 = candidate.getAsJsonObject("content");
-                JsonArray parts2 = content2.getAsJsonArray("parts");
-                if (parts2.size() > 0) {
-                    JsonObject part = parts2.get(0).getAsJsonObject();
-                    String text = part.get("text").getAsString();
-                    log.info("Gemini API response content: {}", text);
-                    return text;
-                }
+    private String extractGeminiContent(String responseBody) {
+        log.info("Gemini response body: {}", responseBody);
+
+        // Parse Gemini response
+        JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+
+        if (jsonResponse.has("candidates") && jsonResponse.getAsJsonArray("candidates").size() > 0) {
+            JsonObject candidate = jsonResponse.getAsJsonArray("candidates").get(0).getAsJsonObject();
+            JsonObject content = candidate.getAsJsonObject("content");
+            JsonArray parts = content.getAsJsonArray("parts");
+            if (parts.size() > 0) {
+                JsonObject part = parts.get(0).getAsJsonObject();
+                String text = part.get("text").getAsString();
+                log.info("Gemini API response content: {}", text);
+                return text;
             }
+        }
 
-            return "{}";
+        return "{}";
+    }
+
+    /**
+     * Text piece of one streamed {@code GenerateContentResponse}; null when the event carries no text.
+     */
+    private String extractGeminiDelta(String data) {
+        JsonObject chunk = gson.fromJson(data, JsonObject.class);
+        JsonArray candidates = chunk.getAsJsonArray("candidates");
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        JsonObject content = candidates.get(0).getAsJsonObject().getAsJsonObject("content");
+        JsonArray parts = content != null ? content.getAsJsonArray("parts") : null;
+        if (parts == null || parts.isEmpty() || !parts.get(0).getAsJsonObject().has("text")) {
+            return null;
         }
+        return parts.get(0).getAsJsonObject().get("text").getAsString();
     }
 
     private CircumstancesAssistantResponse parseCircumstancesResponse(String pllumText) {
@@ -594,6 +1336,23 @@ public class AiClient {
         private String error;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProviderStatus {
+        private String provider;
+        private boolean configured;
+        private int recentCalls;
+        private double errorRate;
+        private long latencyPercentileMs; // -1 = no successful calls yet
+        private boolean failedOver;
+        private String circuitState; // CLOSED | OPEN | HALF_OPEN
+        private int activeCalls;
+        private int queuedCalls;
+        private int rateLimitQueued;
+        private long rateLimitPausedMs; // > 0 after a 429, until its Retry-After has passed
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,231 @@
+package com.zant.backend.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.zant.backend.config.RequiredField;
+import com.zant.backend.model.AccidentReport;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the chat extraction prompt. The instruction sections never change and are kept as ready strings;
+ * the report goes in as dense {@code path=value} lines with empty slots left out instead of a full JSON dump.
+ * Earlier turns go in as the rolling summary plus the recent window, newest kept first, in at most a quarter
+ * of the room. The prompt is kept within {@code maxTokens}: the longest report values are shortened first, then
+ * trailing slots are dropped, and only a message that alone takes over half the room is cut.
+ */
+final class AssistantPromptBuilder {
+
+    /** Rough estimate used for the budget and the metrics: about four characters per token. */
+    static int estimateTokens(CharSequence text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static final String PREAMBLE = """
+            Jesteś asystentem ZUS do zgłaszania wypadków przy pracy dla osób prowadzących działalność gospodarczą.
+
+            DEFINICJA WYPADKU:
+            - Wypadek to nagłe zdarzenie wywołane przyczyną zewnętrzną
+            - Powodujące uraz lub śmierć
+            - Które nastąpiło w związku z pracą
+
+            TWOJE ZADANIE:
+            1. Wyciągnij informacje z wiadomości użytkownika
+            2. Podsumuj co zrozumiałeś
+            3. Zadaj 1-2 pytania uzupełniające o brakujące dane
+
+            WYMAGANE POLA DO ZEBRANIA:
+            """;
+
+    private static final String REPORT_HEADER = "\nAKTUALNY STAN ZGŁOSZENIA (pole=wartość, puste pola pominięte):\n";
+    private static final String EMPTY_REPORT = "Brak danych\n";
+    private static final String HISTORY_HEADER = "\nHISTORIA ROZMOWY:\n";
+    private static final String SUMMARY_PREFIX = "(wcześniej)\n";
+    private static final String MESSAGE_HEADER = "\nWIADOMOŚĆ UŻYTKOWNIKA:\n";
+
+    private static final String ANSWER_FORMAT = """
+
+
+            ODPOWIEDŹ W FORMACIE JSON:
+            {
+              "extractedFields": {},
+              "summaryForUser": "krótkie podsumowanie co zrozumiałeś",
+              "followUpQuestions": ["pytanie 1", "pytanie 2"]
+            }
+            """;
+
+    /** Report values are never shortened below this many characters. */
+    private static final int MIN_VALUE_CHARS = 40;
+    /** Single earlier turns are shortened to this many characters. */
+    private static final int MAX_TURN_CHARS = 300;
+    private static final String ELLIPSIS = "…";
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new AiClient.LocalDateTimeAdapter())
+            .create();
+    private final int maxChars;
+
+    /** Required-fields section for the last field list seen - in practice the list never changes. */
+    private volatile FieldsSection fieldsSection;
+
+    AssistantPromptBuilder(int maxTokens) {
+        this.maxChars = maxTokens * 4;
+    }
+
+    /**
+     * @param historySummary rolling summary of turns that left the history window, may be null
+     * @param previousTurns  recent turns before the current message ({@code role} / {@code content} maps)
+     */
+    Prompt build(AccidentReport report, String historySummary, List<Map<String, String>> previousTurns,
+                 String userMessage, List<RequiredField> requiredFields) {
+        String fields = fieldsSection(requiredFields);
+        int fixedChars = PREAMBLE.length() + fields.length() + REPORT_HEADER.length() + MESSAGE_HEADER.length()
+                + ANSWER_FORMAT.length();
+        int room = Math.max(0, maxChars - fixedChars);
+
+        boolean truncated = false;
+        String message = userMessage != null ? userMessage : "";
+        if (message.length() > room / 2) {
+            message = shorten(message, Math.max(MIN_VALUE_CHARS, room / 2));
+            truncated = true;
+        }
+
+        String history = fitHistory(historySummary, previousTurns, room / 4);
+
+        List<Slot> slots = new ArrayList<>();
+        if (report != null) {
+            flatten("", gson.toJsonTree(report), slots);
+        }
+        int reportRoom = Math.max(0, room - message.length() - history.length());
+        String reportSection = slots.isEmpty() ? EMPTY_REPORT : fitReport(slots, reportRoom);
+        truncated |= !slots.isEmpty() && reportSection.length() < render(slots, Integer.MAX_VALUE).length();
+
+        String text = PREAMBLE + fields + REPORT_HEADER + reportSection + history + MESSAGE_HEADER + message + ANSWER_FORMAT;
+        return new Prompt(text, estimateTokens(text), estimateTokens(reportSection), truncated);
+    }
+
+    private String fieldsSection(List<RequiredField> requiredFields) {
+        FieldsSection section = fieldsSection;
+        if (section != null && section.fields() == requiredFields) {
+            return section.text();
+        }
+        StringBuilder text = new StringBuilder();
+        for (RequiredField field : requiredFields) {
+            if (field.isMandatory()) {
+                text.append("- ").append(field.getLabel()).append(" (").append(field.getCode()).append(")\n");
+            }
+        }
+        fieldsSection = new FieldsSection(requiredFields, text.toString());
+        return text.toString();
+    }
+
+    /**
+     * Newest turns first until the room is used up, then as much of the summary's most recent part as still fits.
+     */
+    private static String fitHistory(String summary, List<Map<String, String>> turns, int room) {
+        boolean hasSummary = summary != null && !summary.isBlank();
+        if (!hasSummary && (turns == null || turns.isEmpty())) {
+            return "";
+        }
+        int left = room - HISTORY_HEADER.length();
+        List<String> lines = new ArrayList<>();
+        if (turns != null) {
+            for (int i = turns.size() - 1; i >= 0; i--) {
+                String content = turns.get(i).get("content");
+                if (content == null || content.isBlank()) {
+                    continue;
+                }
+                String role = "assistant".equals(turns.get(i).get("role")) ? "asystent" : "użytkownik";
+                String line = role + ": " + shorten(content.strip().replaceAll("\\s+", " "), MAX_TURN_CHARS) + "\n";
+                if (line.length() > left) {
+                    break;
+                }
+                lines.add(0, line);
+                left -= line.length();
+            }
+        }
+
+        StringBuilder text = new StringBuilder(HISTORY_HEADER);
+        if (hasSummary && left > SUMMARY_PREFIX.length() + MIN_VALUE_CHARS) {
+            String tail = summary.length() <= left - SUMMARY_PREFIX.length()
+                    ? summary
+                    : ELLIPSIS + summary.substring(summary.length() - (left - SUMMARY_PREFIX.length() - 1));
+            text.append(SUMMARY_PREFIX).append(tail);
+            if (!tail.endsWith("\n")) {
+                text.append('\n');
+            }
+        }
+        lines.forEach(text::append);
+        return text.length() == HISTORY_HEADER.length() ? "" : text.toString();
+    }
+
+    private static void flatten(String path, JsonElement element, List<Slot> slots) {
+        if (element == null || element.isJsonNull()) {
+            return;
+        }
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                flatten(path.isEmpty() ? entry.getKey() : path + "." + entry.getKey(), entry.getValue(), slots);
+            }
+        } else if (element.isJsonArray()) {
+            for (int i = 0; i < element.getAsJsonArray().size(); i++) {
+                flatten(path + "[" + i + "]", element.getAsJsonArray().get(i), slots);
+            }
+        } else {
+            String value = element.getAsString().strip().replaceAll("\\s+", " ");
+            if (!value.isEmpty()) {
+                slots.add(new Slot(path, value));
+            }
+        }
+    }
+
+    /**
+     * Lowers the per-value cap until the report fits; if even {@link #MIN_VALUE_CHARS} is too much,
+     * drops slots from the end (attorney, documents and witnesses come last).
+     */
+    private static String fitReport(List<Slot> slots, int room) {
+        int cap = slots.stream().mapToInt(slot -> slot.value().length()).max().orElse(0);
+        String rendered = render(slots, cap);
+        while (rendered.length() > room && cap > MIN_VALUE_CHARS) {
+            cap = Math.max(MIN_VALUE_CHARS, cap * 3 / 4);
+            rendered = render(slots, cap);
+        }
+        int kept = slots.size();
+        while (rendered.length() > room && kept > 0) {
+            kept--;
+            rendered = render(slots.subList(0, kept), cap) + "(pominięto pól: " + (slots.size() - kept) + ")\n";
+        }
+        return rendered;
+    }
+
+    private static String render(List<Slot> slots, int cap) {
+        StringBuilder text = new StringBuilder();
+        for (Slot slot : slots) {
+            text.append(slot.path()).append('=').append(shorten(slot.value(), cap)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String shorten(String value, int maxChars) {
+        return value.length() <= maxChars ? value : value.substring(0, Math.max(0, maxChars - 1)) + ELLIPSIS;
+    }
+
+    /**
+     * @param tokens       estimated tokens of the whole prompt
+     * @param reportTokens estimated tokens of the report section alone
+     * @param truncated    whether anything was shortened or left out to stay within the budget
+     */
+    record Prompt(String text, int tokens, int reportTokens, boolean truncated) {
+    }
+
+    private record Slot(String path, String value) {
+    }
+
+    private record FieldsSection(List<RequiredField> fields, String text) {
+    }
+}
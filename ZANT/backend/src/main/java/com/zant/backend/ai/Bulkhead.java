@@ -0,0 +1,88 @@
+package com.zant.backend.ai;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking concurrency limit for one LLM provider: at most {@code maxConcurrent} calls in flight and
+ * {@code maxQueued} waiting. A waiter is a future, so no thread is parked while queued; it fails with
+ * {@link ProviderUnavailableException} when the queue is full or after {@code queueTimeoutMs}.
+ */
+final class Bulkhead {
+
+    private final String provider;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final GuardClock clock;
+
+    private int active;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    Bulkhead(String provider, int maxConcurrent, int maxQueued, long queueTimeoutMs) {
+        this(provider, maxConcurrent, maxQueued, queueTimeoutMs, GuardClock.SYSTEM);
+    }
+
+    Bulkhead(String provider, int maxConcurrent, int maxQueued, long queueTimeoutMs, GuardClock clock) {
+        this.provider = provider;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.clock = clock;
+    }
+
+    /**
+     * @return future completing when a permit is granted; every successful acquire needs one {@link #release()}
+     */
+    synchronized CompletableFuture<Void> acquire() {
+        if (active < maxConcurrent) {
+            active++;
+            return CompletableFuture.completedFuture(null);
+        }
+        if (waiters.size() >= maxQueued) {
+            return CompletableFuture.failedFuture(new ProviderUnavailableException(
+                    provider + " bulkhead full (" + maxConcurrent + " calls in flight, " + maxQueued + " queued)"));
+        }
+
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        clock.schedule(() -> {
+            if (waiter.completeExceptionally(new ProviderUnavailableException(
+                    provider + " bulkhead queue timeout after " + queueTimeoutMs + " ms"))) {
+                remove(waiter);
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs));
+        return waiter;
+    }
+
+    void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+            // The permit passes straight to the next waiter, unless it has just timed out
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void remove(CompletableFuture<Void> waiter) {
+        waiters.remove(waiter);
+    }
+
+    synchronized int getActive() {
+        return active;
+    }
+
+    synchronized int getQueued() {
+        return waiters.size();
+    }
+}
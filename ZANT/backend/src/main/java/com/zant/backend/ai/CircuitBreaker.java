@@ -0,0 +1,88 @@
+package com.zant.backend.ai;
+
+/**
+ * Circuit breaker for one LLM provider. After {@code failureThreshold} consecutive failures the circuit opens
+ * and calls are rejected at once for {@code openDurationMs}; then a single trial call is let through
+ * (half-open) - its success closes the circuit, its failure opens it again.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * Cheap check before queuing for the bulkhead: false while open and not yet due for a trial.
+     */
+    synchronized boolean isCallPermitted(long nowMillis) {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nowMillis - openedAt >= openDurationMs;
+            case HALF_OPEN -> !trialInFlight;
+        };
+    }
+
+    /**
+     * Claims the right to call; in half-open state only one caller gets it.
+     */
+    synchronized boolean tryAcquire(long nowMillis) {
+        if (state == State.OPEN && nowMillis - openedAt >= openDurationMs) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * @return true if this failure opened the circuit
+     */
+    synchronized boolean onFailure(long nowMillis) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = nowMillis;
+            trialInFlight = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a claimed call that never reached the provider (e.g. cancelled before sending).
+     */
+    synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,138 @@
+package com.zant.backend.ai;
+
+import java.text.Normalizer;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rule-based check of the five elements the circumstances prompt asks about (time, place, activity, cause,
+ * injury), for Polish text. Patterns work on lower-cased text without diacritics, so "złamałem" and "zlamalem"
+ * match alike. The check is deliberately strict - an element counts only when stated concretely (a date and
+ * a clock time, a place noun rather than "w pracy", a body part together with the kind of injury) - because
+ * a description found complete is answered with no questions, without asking the model. For the same reason a
+ * negated cause or injury ("bez urazu", "nie upadłem", "żadnych obrażeń") does not count: the element stays
+ * uncertain and the description goes to the model.
+ */
+final class CircumstancesPreExtractor {
+
+    enum Element { TIME, PLACE, ACTIVITY, CAUSE, INJURY }
+
+    private static final Pattern DATE = Pattern.compile(
+            "\\b(\\d{1,2}[./-]\\d{1,2}([./-]\\d{2,4})?|\\d{4}-\\d{2}-\\d{2}"
+            + "|\\d{1,2}\\s+(stycznia|lutego|marca|kwietnia|maja|czerwca|lipca|sierpnia|wrzesnia|pazdziernika|listopada|grudnia))\\b");
+
+    /** "10:30" anywhere; "10.30" or a bare hour only after "o godz." / "około" - "12.05" alone is a date. */
+    private static final Pattern CLOCK_TIME = Pattern.compile(
+            "\\b([01]?\\d|2[0-3]):[0-5]\\d\\b"
+            + "|\\b(o|okolo|ok\\.)\\s+godz(\\.|iny|inie)?\\s*([01]?\\d|2[0-3])([:.][0-5]\\d)?\\b"
+            + "|\\b(o|okolo|ok\\.)\\s+([01]?\\d|2[0-3])\\.[0-5]\\d\\b");
+
+    private static final Pattern PLACE = Pattern.compile(
+            "\\b(na|w|we|przy|obok|pod|nad|z|ze|do|po)\\s+(\\w+\\s+)?"
+            + "(hal[iae]?|magazyn\\w*|biur\\w*|warsztac\\w*|warsztat\\w*|budow\\w*|rusztowa\\w*|dach\\w*|schod\\w*"
+            + "|kuchni\\w*|parking\\w*|zaklad\\w*|produkcj\\w*|maszyn\\w*|korytarz\\w*|sklep\\w*|zaplecz\\w*|plac\\w*"
+            + "|drabin\\w*|stanowisk\\w*|regal\\w*|tasm\\w*|piwnic\\w*|podworz\\w*|ramp\\w*|chlodni\\w*|pomieszczen\\w*"
+            + "|lini\\w*|samochod\\w*|pojezd\\w*|wozk\\w*|klat\\w*|ulic\\w*|chodnik\\w*|posadzc\\w*|podlodz\\w*|terenie"
+            + "|obiek\\w*|stolarni\\w*|lakierni\\w*|spawalni\\w*|sali|toalet\\w*|szatni\\w*|recepcj\\w*|gabinec\\w*)\\b"
+            + "|\\bul\\.\\s*\\w+");
+
+    private static final Pattern ACTIVITY = Pattern.compile(
+            "\\b(podczas|w trakcie|w czasie)\\s+\\w{4,}"
+            + "|\\bprzy\\s+(rozladun\\w*|zaladun\\w*|montaz\\w*|demontaz\\w*|naprawi\\w*|czyszczeni\\w*|sprzatani\\w*"
+            + "|obsludze\\w*|transpor\\w*|pakowani\\w*|ciec\\w*|spawani\\w*)"
+            // -ac participles; -ujac/-ajac/-ojac only, other endings collide with infinitives once diacritics are gone
+            + "|\\b\\w{2,}(ujac|ajac|ojac)\\b"
+            + "|\\b(niosac|schodzac|wchodzac|jadac|idac|siedzac|biegnac|tnac|wiozac|ciagnac)\\b"
+            + "|\\bcial(em|am)\\b"
+            + "|\\b(nios|przenosi|schodzi|wchodzi|pracowa|obslugiwa|montowa|naprawia|sprzata|jecha|prowadzi|kroi"
+            + "|podnosi|zdejmowa|uklada|malowa|wierci|spawa|szlifowa|pakowa|rozladowywa|zaladowywa|czysci"
+            + "|przestawia|wykonywa|przycina|dzwiga|wyciaga|wklada|ustawia|zaklada|wymienia|sprawdza|my|obiera"
+            + "|smarowa|kopa|przykreca|odkreca|wiesza|przesuwa|ciagna|ciaga|pcha|otwiera|zamyka)(l|lem|lam|la|lismy|lysmy)\\b");
+
+    private static final Pattern CAUSE = Pattern.compile(
+            "\\b(poslizg\\w*|potkn\\w*|upad\\w*|spad\\w*|przewroc\\w*|uderz\\w*|przygni\\w*|przytrza\\w*|zaczepi\\w*"
+            + "|wpad\\w*|zsun\\w*|osun\\w*|porazen\\w*|porazil\\w*|wybuch\\w*|awari\\w*|zerwal\\w*|zerwani\\w*"
+            + "|pekl\\w*|przecial\\w*|przeciec\\w*|wciagn\\w*|najech\\w*|zderz\\w*|potraci\\w*|ugryz\\w*|runal\\w*"
+            + "|oparzy\\w*|poparzy\\w*|przysypa\\w*|skaleczy\\w*|zahaczy\\w*|wysun\\w*|przechyli\\w*|zlecial\\w*)");
+
+    private static final Pattern BODY_PART = Pattern.compile(
+            "\\b(rek[aeiy]?|rece|rekach|dlon\\w*|palc\\w*|palec|kciuk\\w*|nadgarst\\w*|przedrami\\w*|lokiec|lokc\\w*"
+            + "|ramie\\w*|ramion\\w*|bark\\w*|obojczyk\\w*|nog[aeiy]?|nodze|kolan\\w*|kost\\w*|stop[aeiy]?|stopie"
+            + "|piet[aeyi]|piecie|udo|udzie|podudzi\\w*|biodr\\w*|kregoslup\\w*|plecy|plecach|plecow|glow[aeyi]|glowie"
+            + "|czaszk\\w*|twarz\\w*|oko|oka|oczu|oczy|nos|nosa|nosie|uch[ao]|szyi|szyj\\w*|klatk\\w* piersiow\\w*"
+            + "|zebr[oa]|zeber|zebrach|brzuch\\w*|miednic\\w*|lydk\\w*|piszczel\\w*|sciegn\\w*|bok)\\b");
+
+    private static final Pattern INJURY_TYPE = Pattern.compile(
+            "\\b(zlama\\w*|skrec\\w*|zwichn\\w*|stluk\\w*|stlucz\\w*|ran[aey]?|ranny|skalecz\\w*|oparzen\\w*|poparz\\w*"
+            + "|otarc\\w*|otar\\w*|peknie\\w*|uraz\\w*|krwiak\\w*|siniak\\w*|naciagn\\w*|naderw\\w*|zerwan\\w*"
+            + "|amputac\\w*|wstrzas\\w*|rozcie\\w*|przeciec\\w*|zmiazdz\\w*|obrzek\\w*|wybity|wybicie)\\b");
+
+    /** A negation at most two words before a match - "bez urazu", "nie bylo urazu", "zadnego powaznego urazu". */
+    private static final Pattern NEGATION_BEFORE = Pattern.compile("\\b(bez|nie|ani|zadn\\w*|brak\\w*)\\s+(\\w+\\s+){0,2}$");
+
+    /** How far back {@link #NEGATION_BEFORE} looks; commas and full stops end the search anyway. */
+    private static final int NEGATION_WINDOW = 40;
+
+    /** Any denied injury makes the injury uncertain, even next to an affirmed one ("złamana ręka, bez innych obrażeń"). */
+    private static final Pattern INJURY_DENIED = Pattern.compile(
+            "\\b(bez|nie|ani|zadn\\w*|brak\\w*)\\s+(\\w+\\s+){0,2}(obrazen\\w*|uraz\\w*|ran\\w*|dozna\\w*|uszkodz\\w*)");
+
+    private CircumstancesPreExtractor() {
+    }
+
+    /**
+     * @return the elements stated concretely in the description
+     */
+    static Set<Element> detect(String description) {
+        Set<Element> found = EnumSet.noneOf(Element.class);
+        if (description == null || description.isBlank()) {
+            return found;
+        }
+        String text = normalize(description);
+        if (DATE.matcher(text).find() && CLOCK_TIME.matcher(text).find()) {
+            found.add(Element.TIME);
+        }
+        if (PLACE.matcher(text).find()) {
+            found.add(Element.PLACE);
+        }
+        if (ACTIVITY.matcher(text).find()) {
+            found.add(Element.ACTIVITY);
+        }
+        if (findAffirmed(CAUSE, text)) {
+            found.add(Element.CAUSE);
+        }
+        if (BODY_PART.matcher(text).find() && findAffirmed(INJURY_TYPE, text) && !INJURY_DENIED.matcher(text).find()) {
+            found.add(Element.INJURY);
+        }
+        return found;
+    }
+
+    /**
+     * True when all five elements are present - the model would answer {@code "questions_count": 0}.
+     */
+    static boolean isComplete(String description) {
+        return detect(description).size() == Element.values().length;
+    }
+
+    /**
+     * True when the pattern matches at least once without a negation right before it.
+     */
+    private static boolean findAffirmed(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            String before = text.substring(Math.max(0, matcher.start() - NEGATION_WINDOW), matcher.start());
+            if (!NEGATION_BEFORE.matcher(before).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String text) {
+        String lower = text.toLowerCase(new Locale("pl", "PL")).replace('ł', 'l');
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+}
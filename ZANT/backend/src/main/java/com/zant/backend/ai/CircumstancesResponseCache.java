@@ -0,0 +1,255 @@
+package com.zant.backend.ai;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.gson.Gson;
+import com.zant.backend.ai.AiClient.CircumstancesAssistantResponse;
+import com.zant.backend.model.LlmResponseCacheEntry;
+import com.zant.backend.repository.LlmResponseCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Two-tier cache of circumstances questions: an in-heap Caffeine cache (size-bounded) in front of
+ * the {@code llm_response_cache} table. The key covers everything the LLM answer depends on - provider,
+ * model, temperature, prompt version and the normalised description - so a changed prompt or model
+ * simply stops hitting the old entries until they expire.
+ * Only successful responses are cached; errors are always retried upstream.
+ */
+@Slf4j
+@Component
+public class CircumstancesResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Pending table writes; beyond that an entry stays in memory only - it is a cache, not a record. */
+    private static final int WRITE_QUEUE_CAPACITY = 1000;
+
+    private final LlmResponseCacheRepository repository;
+    private final Gson gson = new Gson();
+    private final Cache<String, Entry> memory;
+    private final Duration ttl;
+    private final boolean persistentEnabled;
+    private final Counter persistentHits;
+    private final Counter persistentMisses;
+    /**
+     * {@link #put} is called from OkHttp callbacks - the blocking JPA save runs here instead of
+     * holding a dispatcher thread.
+     */
+    private final ThreadPoolExecutor writer;
+
+    public CircumstancesResponseCache(LlmResponseCacheRepository repository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${ai.cache.max.size:10000}") long maxSize,
+                                      @Value("${ai.cache.ttl.hours:168}") long ttlHours,
+                                      @Value("${ai.cache.persistent.enabled:true}") boolean persistentEnabled) {
+        this.repository = repository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.persistentEnabled = persistentEnabled;
+        // Entries loaded from the table keep their original expiry instead of getting a fresh TTL
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return remainingNanos(entry.expiresAt());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return remainingNanos(entry.expiresAt());
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "llm-circumstances");
+        this.persistentHits = Counter.builder("ai.cache.persistent.gets")
+                .tag("result", "hit").register(meterRegistry);
+        this.persistentMisses = Counter.builder("ai.cache.persistent.gets")
+                .tag("result", "miss").register(meterRegistry);
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "llm-cache-writer");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, executor) -> log.warn("LLM cache write queue full, entry kept in memory only"));
+    }
+
+    /**
+     * Case, Unicode form and whitespace differences do not change the model's answer,
+     * so they should not change the key either.
+     */
+    static String normalize(String description) {
+        String normalized = Normalizer.normalize(description, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    public static String key(String provider, String model, Double temperature, String promptVersion, String description) {
+        String material = provider + '\n' + model + '\n' + temperature + '\n' + promptVersion + '\n' + normalize(description);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Looks the key up in memory, then in the table. A table read is a blocking JDBC call,
+     * so this is meant for the request thread, not for OkHttp callbacks.
+     */
+    public Optional<CircumstancesAssistantResponse> get(String key) {
+        Entry entry = memory.getIfPresent(key);
+        if (entry != null) {
+            return Optional.of(entry.response());
+        }
+        if (!persistentEnabled) {
+            return Optional.empty();
+        }
+
+        try {
+            Optional<LlmResponseCacheEntry> stored = repository.findById(key)
+                    .filter(e -> e.getExpiresAt().isAfter(LocalDateTime.now()));
+            if (stored.isEmpty()) {
+                persistentMisses.increment();
+                return Optional.empty();
+            }
+            persistentHits.increment();
+            CircumstancesAssistantResponse response = gson.fromJson(stored.get().getResponse(), CircumstancesAssistantResponse.class);
+            memory.put(key, new Entry(response, stored.get().getExpiresAt()));
+            return Optional.of(response);
+        } catch (Exception e) {
+            log.warn("LLM cache lookup failed, calling the model: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the response in memory right away; the table write is queued on a background thread,
+     * so this is safe to call from OkHttp callbacks.
+     */
+    public void put(String key, String provider, String model, String promptVersion, CircumstancesAssistantResponse response) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+        memory.put(key, new Entry(response, expiresAt));
+        if (!persistentEnabled) {
+            return;
+        }
+        writer.execute(() -> persist(key, provider, model, promptVersion, response, now, expiresAt));
+    }
+
+    private void persist(String key, String provider, String model, String promptVersion,
+                         CircumstancesAssistantResponse response, LocalDateTime now, LocalDateTime expiresAt) {
+        try {
+            LlmResponseCacheEntry stored = new LlmResponseCacheEntry();
+            stored.setCacheKey(key);
+            stored.setProvider(provider);
+            stored.setModel(model);
+            stored.setPromptVersion(promptVersion);
+            stored.setResponse(gson.toJson(response));
+            stored.setCreatedAt(now);
+            stored.setExpiresAt(expiresAt);
+            repository.save(stored);
+        } catch (Exception e) {
+            log.warn("Could not persist LLM cache entry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops cached responses of one provider, or all of them when {@code provider} is null.
+     *
+     * @return number of rows removed from the table
+     */
+    public int invalidate(String provider) {
+        // In-memory entries do not carry the provider; dropping all of them is cheap and always correct
+        memory.invalidateAll();
+        if (!persistentEnabled) {
+            return 0;
+        }
+        int removed = provider == null ? repository.deleteAllEntries() : repository.deleteByProvider(provider);
+        log.info("LLM cache invalidated (provider: {}), {} persistent entries removed", provider == null ? "all" : provider, removed);
+        return removed;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("LLM cache writes still pending at shutdown, {} entries dropped", writer.shutdownNow().size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.cache.cleanup.interval.ms:3600000}",
+            initialDelayString = "${ai.cache.cleanup.interval.ms:3600000}")
+    public void deleteExpired() {
+        if (!persistentEnabled) {
+            return;
+        }
+        try {
+            int removed = repository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) {
+                log.info("Removed {} expired LLM cache entries", removed);
+            }
+        } catch (Exception e) {
+            log.warn("Could not remove expired LLM cache entries: {}", e.getMessage());
+        }
+    }
+
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = memory.stats();
+        long hits = stats.hitCount() + (long) persistentHits.count();
+        long requests = stats.requestCount();
+        return new CacheStats(memory.estimatedSize(), stats.hitCount(), (long) persistentHits.count(),
+                (long) persistentMisses.count(), requests > 0 ? (double) hits / requests : 0.0);
+    }
+
+    private static long remainingNanos(LocalDateTime expiresAt) {
+        return Math.max(0, Duration.between(LocalDateTime.now(), expiresAt).toNanos());
+    }
+
+    private record Entry(CircumstancesAssistantResponse response, LocalDateTime expiresAt) {
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheStats {
+        private long memorySize;
+        private long memoryHits;
+        private long persistentHits;
+        private long persistentMisses;
+        private double hitRate;
+    }
+}
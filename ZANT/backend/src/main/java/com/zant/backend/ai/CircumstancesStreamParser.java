@@ -0,0 +1,131 @@
+package com.zant.backend.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.zant.backend.ai.AiClient.CircumstancesQuestion;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for the circumstances JSON ({@code {"questions_count": n, "questions": [{"id": 1, "text": "..."}]}})
+ * while the model is still writing it. Text pieces are fed as they arrive and every element of {@code questions}
+ * is returned as soon as its closing brace has been seen. Only new characters are scanned on each call.
+ *
+ * <p>Anything around the top-level object (markdown fences, stray text) is ignored. The full text is still
+ * parsed once at the end, so answers that do not follow the structure fall back to the regular path.
+ */
+@Slf4j
+final class CircumstancesStreamParser {
+
+    private final Gson gson;
+    private final StringBuilder text = new StringBuilder();
+
+    private int position;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int stringStart = -1;
+    /** Last string read directly in the top-level object - the key when followed by ':'. */
+    private String lastTopLevelString;
+    private boolean expectingQuestionsValue;
+    /** Depth of the "questions" array while inside it, -1 otherwise. */
+    private int questionsDepth = -1;
+    private int questionStart = -1;
+    private int emitted;
+
+    CircumstancesStreamParser(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * @return questions completed by this piece of text, in order (usually none or one)
+     */
+    List<CircumstancesQuestion> feed(String piece) {
+        text.append(piece);
+        List<CircumstancesQuestion> completed = new ArrayList<>();
+        for (; position < text.length(); position++) {
+            char c = text.charAt(position);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1) {
+                        lastTopLevelString = text.substring(stringStart + 1, position);
+                    }
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+
+            boolean questionsValue = expectingQuestionsValue;
+            expectingQuestionsValue = false;
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringStart = position;
+                }
+                case ':' -> expectingQuestionsValue = depth == 1 && "questions".equals(lastTopLevelString);
+                case '[' -> {
+                    depth++;
+                    if (questionsValue) {
+                        questionsDepth = depth;
+                    }
+                }
+                case '{' -> {
+                    depth++;
+                    if (questionsDepth > 0 && depth == questionsDepth + 1) {
+                        questionStart = position;
+                    }
+                }
+                case '}' -> {
+                    if (questionStart >= 0 && depth == questionsDepth + 1) {
+                        CircumstancesQuestion question = parseQuestion(text.substring(questionStart, position + 1));
+                        if (question != null) {
+                            completed.add(question);
+                        }
+                        questionStart = -1;
+                    }
+                    depth--;
+                }
+                case ']' -> {
+                    if (depth == questionsDepth) {
+                        questionsDepth = -1;
+                    }
+                    depth--;
+                }
+                default -> {
+                    // commas, numbers, literals and text outside the JSON
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Everything fed so far - the complete model answer once the stream has ended.
+     */
+    String text() {
+        return text.toString();
+    }
+
+    private CircumstancesQuestion parseQuestion(String json) {
+        try {
+            JsonObject questionObj = gson.fromJson(json, JsonObject.class);
+            emitted++;
+            int id = questionObj.has("id") ? questionObj.get("id").getAsInt() : emitted;
+            String questionText = questionObj.has("text") ? questionObj.get("text").getAsString() : "";
+            return new CircumstancesQuestion(id, questionText);
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            log.debug("Skipping malformed streamed question: {}", json);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.zant.backend.ai;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time source and timer of the provider guards ({@link ProviderRateLimiter}, {@link Bulkhead}).
+ * Production uses {@link #SYSTEM}; tests pass a clock they advance by hand.
+ */
+interface GuardClock {
+
+    GuardClock SYSTEM = new GuardClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(task);
+        }
+    };
+
+    long nanoTime();
+
+    /**
+     * Runs {@code task} on another thread after {@code delayNanos}.
+     */
+    void schedule(Runnable task, long delayNanos);
+}
@@ -0,0 +1,144 @@
+package com.zant.backend.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OkHttp listener (one instance per call) that splits each LLM call into network phases, so a slow assistant
+ * answer can be traced to DNS, connecting, TLS or the model itself. Histograms, all tagged with the provider:
+ * <ul>
+ *   <li>{@code ai.http.dns}, {@code ai.http.connect}, {@code ai.http.tls} - only when a new connection is opened</li>
+ *   <li>{@code ai.http.ttfb} - call start until the response headers arrive (for the LLMs mostly model time)</li>
+ *   <li>{@code ai.http.call} - whole call including the body, tagged with protocol and outcome</li>
+ * </ul>
+ * plus the counter {@code ai.http.connections.acquired{reused}} showing how often keep-alive pays off.
+ * The provider comes from the request's {@link Provider} tag.
+ */
+public final class LlmCallMetrics extends EventListener {
+
+    /** Request tag naming the provider, e.g. {@code .tag(Provider.class, new Provider("pllum"))}. */
+    public record Provider(String name) {
+    }
+
+    private final MeterRegistry registry;
+    private final String provider;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long tlsStart;
+    private boolean newConnection;
+    private boolean cancelled;
+    private String protocol = "unknown";
+
+    private LlmCallMetrics(MeterRegistry registry, String provider) {
+        this.registry = registry;
+        this.provider = provider;
+    }
+
+    public static EventListener.Factory factory(MeterRegistry registry) {
+        return call -> {
+            Provider tag = call.request().tag(Provider.class);
+            return new LlmCallMetrics(registry, tag != null ? tag.name() : "unknown");
+        };
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record("ai.http.dns", dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        newConnection = true;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        record("ai.http.connect", connectStart);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+                              IOException ioe) {
+        registry.counter("ai.http.connect.failures", "provider", provider).increment();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record("ai.http.tls", tlsStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        protocol = connection.protocol().toString();
+        registry.counter("ai.http.connections.acquired", "provider", provider,
+                "reused", String.valueOf(!newConnection)).increment();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        record("ai.http.ttfb", callStart);
+    }
+
+    @Override
+    public void canceled(Call call) {
+        cancelled = true;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        recordCall("success");
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        recordCall(cancelled ? "cancelled" : "failure");
+    }
+
+    private void recordCall(String outcome) {
+        Timer.builder("ai.http.call")
+                .tag("provider", provider)
+                .tag("protocol", protocol)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    }
+
+    private void record(String name, long start) {
+        Timer.builder(name)
+                .tag("provider", provider)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
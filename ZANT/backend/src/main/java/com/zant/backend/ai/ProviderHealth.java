@@ -0,0 +1,95 @@
+package com.zant.backend.ai;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the most recent calls to one LLM provider: latencies of successful calls
+ * (for the percentile-based hedge delay) and success/failure flags (for the error rate that triggers failover).
+ */
+final class ProviderHealth {
+
+    private final long[] latenciesMs;
+    private int latencyCount;
+    private int latencyNext;
+
+    private final boolean[] failed;
+    private int outcomeCount;
+    private int outcomeNext;
+    private int failures;
+
+    private long failedOverUntil;
+
+    ProviderHealth(int windowSize) {
+        this.latenciesMs = new long[windowSize];
+        this.failed = new boolean[windowSize];
+    }
+
+    synchronized void recordSuccess(long latencyMs) {
+        latenciesMs[latencyNext] = latencyMs;
+        latencyNext = (latencyNext + 1) % latenciesMs.length;
+        latencyCount = Math.min(latencyCount + 1, latenciesMs.length);
+        recordOutcome(false);
+    }
+
+    synchronized void recordFailure() {
+        recordOutcome(true);
+    }
+
+    private void recordOutcome(boolean failure) {
+        if (outcomeCount == failed.length) {
+            if (failed[outcomeNext]) {
+                failures--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        failed[outcomeNext] = failure;
+        if (failure) {
+            failures++;
+        }
+        outcomeNext = (outcomeNext + 1) % failed.length;
+    }
+
+    /**
+     * @return latency percentile (0..1) of the successful calls in the window, or -1 with fewer than {@code minSamples}
+     */
+    synchronized long latencyPercentile(double percentile, int minSamples) {
+        if (latencyCount < Math.max(1, minSamples)) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latenciesMs, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    synchronized int samples() {
+        return outcomeCount;
+    }
+
+    synchronized double errorRate() {
+        return outcomeCount == 0 ? 0.0 : (double) failures / outcomeCount;
+    }
+
+    synchronized boolean isFailedOver(long nowMillis) {
+        return nowMillis < failedOverUntil;
+    }
+
+    /**
+     * Takes the provider out of rotation for {@code cooldownMillis}. The outcome window is cleared, so that
+     * afterwards the provider is judged only on new calls rather than on the failures that tripped it.
+     *
+     * @return false if the provider was already failed over (another request got here first)
+     */
+    synchronized boolean failOver(long nowMillis, long cooldownMillis) {
+        if (isFailedOver(nowMillis)) {
+            return false;
+        }
+        failedOverUntil = nowMillis + cooldownMillis;
+        Arrays.fill(failed, false);
+        outcomeCount = 0;
+        outcomeNext = 0;
+        failures = 0;
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package com.zant.backend.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side quota for one LLM provider: two token buckets, one for requests per minute and one for
+ * (estimated) model tokens per minute, both refilled continuously. A limit of 0 or less disables that bucket.
+ *
+ * <p>Calls that cannot go at once wait in a queue ordered by {@link Priority}, then arrival. A waiter is a future,
+ * so no thread is parked. It fails with {@link ProviderUnavailableException} after {@code maxWaitMs}, or
+ * straight away when the queue is full and nothing of lower priority can be shed to make room.
+ * {@link #pauseFor(long)} stops all calls after a 429 until the provider's {@code Retry-After} has passed.
+ */
+final class ProviderRateLimiter {
+
+    /** Interactive calls always leave the queue before background ones. */
+    enum Priority { INTERACTIVE, BACKGROUND }
+
+    private static final Comparator<Waiter> ORDER = Comparator.<Waiter>comparingInt(w -> w.priority.ordinal())
+            .thenComparingLong(w -> w.sequence);
+
+    private final String provider;
+    private final double requestsPerNano;
+    private final double tokensPerNano;
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final int maxQueued;
+    private final long maxWaitMs;
+    private final GuardClock clock;
+
+    private double requests;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private long sequence;
+    private boolean drainScheduled;
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ORDER);
+
+    /**
+     * @param burstSeconds bucket size in seconds of refill - how far a quiet period can be made up for in one burst
+     */
+    ProviderRateLimiter(String provider, int requestsPerMinute, int tokensPerMinute, int burstSeconds,
+                        int maxQueued, long maxWaitMs) {
+        this(provider, requestsPerMinute, tokensPerMinute, burstSeconds, maxQueued, maxWaitMs, GuardClock.SYSTEM);
+    }
+
+    ProviderRateLimiter(String provider, int requestsPerMinute, int tokensPerMinute, int burstSeconds,
+                        int maxQueued, long maxWaitMs, GuardClock clock) {
+        this.provider = provider;
+        this.requestsPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokensPerNano = tokensPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.requestCapacity = Math.max(1, requestsPerMinute * burstSeconds / 60.0);
+        this.tokenCapacity = Math.max(1, tokensPerMinute * burstSeconds / 60.0);
+        this.maxQueued = maxQueued;
+        this.maxWaitMs = maxWaitMs;
+        this.requests = requestCapacity;
+        this.tokens = tokenCapacity;
+        this.clock = clock;
+        this.lastRefill = clock.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * @return future completing when the call may be sent; the quota it takes is not given back
+     */
+    CompletableFuture<Void> acquire(Priority priority, int estimatedTokens) {
+        Waiter shed = null;
+        Waiter waiter;
+        synchronized (this) {
+            long now = clock.nanoTime();
+            long pausedMs = TimeUnit.NANOSECONDS.toMillis(pausedUntil - now);
+            if (pausedMs > maxWaitMs) {
+                return CompletableFuture.failedFuture(new ProviderUnavailableException(
+                        provider + " rate limited by the provider for another " + pausedMs + " ms"));
+            }
+            // A single call larger than the bucket would never fit - it waits for a full bucket instead
+            double cost = tokensPerNano > 0 ? Math.min(estimatedTokens, tokenCapacity) : 0;
+            if (queue.isEmpty() && waitNanos(now, cost) == 0) {
+                take(cost);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (queue.size() >= maxQueued) {
+                Waiter last = queue.stream().max(ORDER).orElseThrow();
+                if (last.priority.ordinal() <= priority.ordinal()) {
+                    return CompletableFuture.failedFuture(new ProviderUnavailableException(
+                            provider + " rate limit queue full (" + maxQueued + " waiting)"));
+                }
+                queue.remove(last);
+                shed = last;
+            }
+            waiter = new Waiter(priority, sequence++, cost);
+            queue.add(waiter);
+            scheduleDrain(now);
+        }
+
+        if (shed != null) {
+            shed.future.completeExceptionally(new ProviderUnavailableException(
+                    provider + " rate limit queue full - dropped for a higher priority call"));
+        }
+        clock.schedule(() -> {
+            if (waiter.future.completeExceptionally(new ProviderUnavailableException(
+                    provider + " rate limit wait over " + maxWaitMs + " ms"))) {
+                remove(waiter);
+            }
+        }, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+        return waiter.future;
+    }
+
+    /**
+     * Holds every call (queued and new) until {@code millis} from now, e.g. the provider's {@code Retry-After}.
+     */
+    synchronized void pauseFor(long millis) {
+        long now = clock.nanoTime();
+        pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(millis));
+        if (!queue.isEmpty()) {
+            scheduleDrain(now);
+        }
+    }
+
+    synchronized int getQueued() {
+        return queue.size();
+    }
+
+    synchronized long getPausedMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - clock.nanoTime()));
+    }
+
+    long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            long now = clock.nanoTime();
+            while (!queue.isEmpty()) {
+                Waiter head = queue.peek();
+                if (head.future.isDone()) {
+                    // Timed out or cancelled while queued
+                    queue.poll();
+                    continue;
+                }
+                if (waitNanos(now, head.cost) > 0) {
+                    scheduleDrain(now);
+                    break;
+                }
+                take(head.cost);
+                ready.add(queue.poll());
+            }
+        }
+        for (Waiter waiter : ready) {
+            if (!waiter.future.complete(null)) {
+                refund(waiter.cost);
+            }
+        }
+    }
+
+    private void scheduleDrain(long now) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        long delay = queue.isEmpty() ? 0 : waitNanos(now, queue.peek().cost);
+        clock.schedule(this::drain, Math.max(delay, 1));
+    }
+
+    /**
+     * Time until the pause is over and both buckets hold enough for one call of {@code cost} tokens.
+     */
+    private long waitNanos(long now, double cost) {
+        refill(now);
+        long wait = Math.max(0, pausedUntil - now);
+        if (requestsPerNano > 0 && requests < 1) {
+            wait = Math.max(wait, (long) Math.ceil((1 - requests) / requestsPerNano));
+        }
+        if (tokensPerNano > 0 && tokens < cost) {
+            wait = Math.max(wait, (long) Math.ceil((cost - tokens) / tokensPerNano));
+        }
+        return wait;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            requests = Math.min(requestCapacity, requests + elapsed * requestsPerNano);
+            tokens = Math.min(tokenCapacity, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+
+    private void take(double cost) {
+        requests -= 1;
+        tokens -= cost;
+    }
+
+    private synchronized void refund(double cost) {
+        requests = Math.min(requestCapacity, requests + 1);
+        tokens = Math.min(tokenCapacity, tokens + cost);
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queue.remove(waiter);
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long sequence;
+        private final double cost;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(Priority priority, long sequence, double cost) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.cost = cost;
+        }
+    }
+}
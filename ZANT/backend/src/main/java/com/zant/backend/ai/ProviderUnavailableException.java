@@ -0,0 +1,15 @@
+package com.zant.backend.ai;
+
+import java.io.IOException;
+
+/**
+ * Call rejected locally without reaching the provider - open circuit breaker, full bulkhead or rate limit -
+ * or refused by the provider because of its quota ({@link RateLimitedException}).
+ * Extends IOException so it takes the same error path as a failed HTTP call.
+ */
+public class ProviderUnavailableException extends IOException {
+
+    public ProviderUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.zant.backend.ai;
+
+/**
+ * The provider answered 429 (quota exceeded). {@code retryAfterMs} comes from its {@code Retry-After}
+ * header or, for Gemini, the {@code retryDelay} in the error body.
+ */
+public class RateLimitedException extends ProviderUnavailableException {
+
+    private final long retryAfterMs;
+
+    public RateLimitedException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
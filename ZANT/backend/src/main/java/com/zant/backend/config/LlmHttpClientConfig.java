@@ -0,0 +1,75 @@
+package com.zant.backend.config;
+
+import com.zant.backend.ai.LlmCallMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one OkHttpClient used for all LLM calls - connection pool, dispatcher and timeouts in one place.
+ */
+@Configuration
+@Slf4j
+public class LlmHttpClientConfig {
+
+    @Bean
+    public OkHttpClient llmHttpClient(MeterRegistry meterRegistry,
+                                      @Value("${ai.http.max.requests:256}") int maxRequests,
+                                      @Value("${ai.http.max.requests.per.host:256}") int maxRequestsPerHost,
+                                      @Value("${ai.http.pool.max.idle:32}") int maxIdleConnections,
+                                      @Value("${ai.http.pool.keep.alive.ms:300000}") long keepAliveMs,
+                                      @Value("${ai.http.http2.enabled:true}") boolean http2Enabled,
+                                      @Value("${ai.http.connect.timeout.ms:10000}") long connectTimeoutMs,
+                                      @Value("${ai.http.read.timeout.ms:120000}") long readTimeoutMs,
+                                      @Value("${ai.http.write.timeout.ms:30000}") long writeTimeoutMs,
+                                      @Value("${ai.http.call.timeout.ms:130000}") long callTimeoutMs,
+                                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // Each enqueued call holds a dispatcher thread while it waits for the model - a streamed answer for
+        // the whole stream. On Java 21 these waits run on virtual threads instead of a platform thread each.
+        boolean useVirtualThreads = VirtualThreads.use(virtualThreads);
+        Dispatcher dispatcher = useVirtualThreads
+                ? new Dispatcher(VirtualThreads.newThreadPerTaskExecutor("okhttp-llm-"))
+                : new Dispatcher();
+        // Calls are enqueued, so these limits (not servlet threads) cap how many LLM requests are in flight.
+        // OkHttp's default of 5 per host would queue almost every chat message behind the slow ones.
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        // The default pool keeps 5 idle connections for 5 minutes - too few for bursts of chat messages,
+        // every extra one would pay for a new TCP + TLS handshake
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("ai.http.pool.connections", connectionPool, ConnectionPool::connectionCount)
+                .description("Open connections to the LLM providers")
+                .register(meterRegistry);
+        Gauge.builder("ai.http.pool.idle", connectionPool, ConnectionPool::idleConnectionCount)
+                .description("Idle keep-alive connections to the LLM providers")
+                .register(meterRegistry);
+
+        // HTTP/2 is negotiated over TLS (ALPN) where the upstream offers it; many calls then share one connection
+        List<Protocol> protocols = http2Enabled ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1);
+
+        log.info("LLM HTTP client: pool {} idle / {} ms keep-alive, {} requests ({} per host), protocols {}, call timeout {} ms, {} threads",
+                maxIdleConnections, keepAliveMs, maxRequests, maxRequestsPerHost, protocols, callTimeoutMs,
+                useVirtualThreads ? "virtual" : "platform");
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .protocols(protocols)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .eventListenerFactory(LlmCallMetrics.factory(meterRegistry))
+                .build();
+    }
+}
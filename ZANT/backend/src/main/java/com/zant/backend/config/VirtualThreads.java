@@ -0,0 +1,40 @@
+package com.zant.backend.config;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads for the blocking executors, switched on together with Spring's own
+ * {@code spring.threads.virtual.enabled}. The build still targets Java 17 (the {@code java21} Maven profile is
+ * opt-in), so the Java 21 API is reached through Spring's {@link VirtualThreadTaskExecutor}; callers check
+ * {@link #use(boolean)} first and keep their platform threads on an older runtime.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        // Java 19-20 have the API only as a preview feature
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * @param enabled value of {@code spring.threads.virtual.enabled}
+     * @return true when virtual threads were asked for and the runtime has them
+     */
+    public static boolean use(boolean enabled) {
+        return enabled && isSupported();
+    }
+
+    /**
+     * A new virtual thread for every task - for work that mostly waits on I/O, where a pool would only add queueing.
+     * Threads are named {@code namePrefix + counter}. The returned service cannot be shut down - there is nothing
+     * pooled to release.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return new ExecutorServiceAdapter(new VirtualThreadTaskExecutor(namePrefix));
+    }
+}
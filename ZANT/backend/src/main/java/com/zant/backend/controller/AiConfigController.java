@@ -1,6 +1,7 @@
 package com.zant.backend.controller;
 
 import com.zant.backend.ai.AiClient;
+import com.zant.backend.ai.CircumstancesResponseCache;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/ai-config")
 @RequiredArgsConstructor
@@ -16,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 public class AiConfigController {
 
     private final AiClient aiClient;
+    private final CircumstancesResponseCache circumstancesCache;
 
     @GetMapping("/provider")
     public ResponseEntity<AiProviderResponse> getCurrentProvider() {
@@ -32,6 +36,33 @@ public class AiConfigController {
         return ResponseEntity.ok(new AiProviderResponse(newProvider));
     }
 
+    @GetMapping("/routing")
+    public ResponseEntity<List<AiClient.ProviderStatus>> getRoutingStatus() {
+        return ResponseEntity.ok(aiClient.getRoutingStatus());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<CircumstancesResponseCache.CacheStats> getCacheStats() {
+        return ResponseEntity.ok(circumstancesCache.getStats());
+    }
+
+    /**
+     * Drops cached LLM answers, e.g. after a prompt or model change. Without {@code provider} clears everything.
+     */
+    @DeleteMapping("/cache")
+    public ResponseEntity<CacheInvalidationResponse> invalidateCache(@RequestParam(required = false) String provider) {
+        log.info("Invalidating LLM response cache, provider: {}", provider != null ? provider : "all");
+        int removed = circumstancesCache.invalidate(provider != null ? provider.toLowerCase() : null);
+        return ResponseEntity.ok(new CacheInvalidationResponse(removed));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheInvalidationResponse {
+        private int removedEntries;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -3,10 +3,17 @@ package com.zant.backend.controller;
 import com.zant.backend.ai.AiClient;
 import com.zant.backend.model.AssistantTurn;
 import com.zant.backend.service.AssistantService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/assistant")
 public class AssistantController {
@@ -20,17 +27,54 @@ public class AssistantController {
     }
 
     @PostMapping("/{conversationId}/message")
-    public AssistantTurn handleMessage(@PathVariable String conversationId, @RequestBody String userMessage) {
+    public CompletableFuture<AssistantTurn> handleMessage(@PathVariable String conversationId, @RequestBody String userMessage) {
         return assistantService.handleMessage(conversationId, userMessage);
     }
 
     @PostMapping("/circumstances")
-    public AiClient.CircumstancesAssistantResponse generateCircumstancesQuestions(@RequestBody Map<String, String> request) {
+    public CompletableFuture<AiClient.CircumstancesAssistantResponse> generateCircumstancesQuestions(@RequestBody Map<String, String> request) {
         String accidentDescription = request.get("accidentDescription");
         if (accidentDescription == null || accidentDescription.trim().isEmpty()) {
             // Return empty response if no description provided
-            return new AiClient.CircumstancesAssistantResponse(0, java.util.Collections.emptyList(), "Brak opisu zdarzenia!");
+            return CompletableFuture.completedFuture(
+                    new AiClient.CircumstancesAssistantResponse(0, java.util.Collections.emptyList(), "Brak opisu zdarzenia!"));
+        }
+        // The servlet thread is released here; Spring MVC writes the response when the model answers
+        return aiClient.generateCircumstancesQuestionsAsync(accidentDescription);
+    }
+
+    /**
+     * Streaming variant of {@link #generateCircumstancesQuestions}: a {@code question} event is pushed for every
+     * question as soon as the model has written it, followed by one {@code done} event with the full response
+     * (same shape as the non-streaming endpoint, including {@code error}).
+     */
+    @PostMapping(value = "/circumstances/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCircumstancesQuestions(@RequestBody Map<String, String> request) {
+        // No explicit timeout - uses spring.mvc.async.request-timeout
+        SseEmitter emitter = new SseEmitter();
+        String accidentDescription = request.get("accidentDescription");
+        if (accidentDescription == null || accidentDescription.trim().isEmpty()) {
+            sendDone(emitter, new AiClient.CircumstancesAssistantResponse(0, java.util.Collections.emptyList(), "Brak opisu zdarzenia!"));
+            return emitter;
+        }
+
+        aiClient.streamCircumstancesQuestionsAsync(accidentDescription, question -> {
+            try {
+                emitter.send(SseEmitter.event().name("question").data(question));
+            } catch (IOException e) {
+                // Client disconnected - aborts the upstream stream
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((response, e) -> sendDone(emitter, response));
+        return emitter;
+    }
+
+    private static void sendDone(SseEmitter emitter, AiClient.CircumstancesAssistantResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("done").data(response));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not send final circumstances event: {}", e.getMessage());
         }
-        return aiClient.generateCircumstancesQuestions(accidentDescription);
     }
 }
@@ -1,9 +1,11 @@
 package com.zant.backend.controller;
 
 import com.zant.backend.dto.ewyp.EWYPReportDTO;
+import com.zant.backend.dto.ewyp.ScoringResultDTO;
 import com.zant.backend.mapper.EWYPReportMapper;
 import com.zant.backend.model.ewyp.EWYPReport;
 import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.service.AsyncScoringService;
 import com.zant.backend.service.EWYPDocumentService;
 import com.zant.backend.service.OnnxScoringService;
 import jakarta.validation.Valid;
@@ -27,13 +29,16 @@ public class EWYPReportController {
     private final EWYPReportMapper mapper;
     private final EWYPDocumentService documentService;
     private final OnnxScoringService onnxScoringService;
+    private final AsyncScoringService asyncScoringService;
     
     public EWYPReportController(EWYPReportRepository repository, EWYPReportMapper mapper, 
-                                EWYPDocumentService documentService, OnnxScoringService onnxScoringService) {
+                                EWYPDocumentService documentService, OnnxScoringService onnxScoringService,
+                                AsyncScoringService asyncScoringService) {
         this.repository = repository;
         this.mapper = mapper;
         this.documentService = documentService;
         this.onnxScoringService = onnxScoringService;
+        this.asyncScoringService = asyncScoringService;
     }
     
     @PostMapping
@@ -87,6 +92,10 @@ public class EWYPReportController {
         target.setDeathDocsCopyFile(source.getDeathDocsCopyFile());
         target.setOtherDocumentsFiles(source.getOtherDocumentsFiles());
         target.setCreatedAt(source.getCreatedAt());
+        // The DTO does not carry the scoring result back in, it is only written by AsyncScoringService
+        target.setScoringStatus(source.getScoringStatus());
+        target.setScoringClassification(source.getScoringClassification());
+        target.setScoringModelVersion(source.getScoringModelVersion());
     }
     
     @PostMapping("/{id}/submit")
@@ -94,17 +103,27 @@ public class EWYPReportController {
         return repository.findById(id)
                 .map(report -> {
                     report.setStatus("SUBMITTED");
+                    report.setScoringStatus(AsyncScoringService.SCORING_PENDING);
+                    report.setScoringClassification(null);
                     
-                    // Wykonaj scoring przy użyciu modelu ONNX
-                    Double scoringResult = onnxScoringService.scoreReport(report);
-                    report.setScoringClassification(scoringResult);
-                    
+                    // Tekst do scoringu budujemy tutaj - świadkowie są już wczytani (findById z entity graph)
+                    String scoringText = onnxScoringService.extractTextFromReport(report);
                     EWYPReport savedEntity = repository.save(report);
+                    
+                    // Scoring liczy się w tle - wynik dostępny pod GET /{id}/scoring
+                    asyncScoringService.submit(savedEntity.getId(), scoringText);
                     return ResponseEntity.ok(mapper.toDTO(savedEntity));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @GetMapping("/{id}/scoring")
+    public ResponseEntity<ScoringResultDTO> getScoring(@PathVariable UUID id) {
+        return repository.findScoringById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<EWYPReportDTO> getReportById(@PathVariable UUID id) {
         return repository.findById(id)
@@ -457,7 +476,7 @@ public class EWYPReportController {
             return ResponseEntity.badRequest().build();
         }
         
-        return repository.findById(id)
+        return repository.findWithOtherDocumentsById(id)
                 .<ResponseEntity<EWYPReportDTO>>map(report -> {
                     try {
                         // Store file in a map with a unique key (document name + timestamp)
@@ -0,0 +1,66 @@
+package com.zant.backend.controller;
+
+import com.zant.backend.service.OnnxScoringService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/scoring-config")
+@RequiredArgsConstructor
+@Slf4j
+public class ScoringConfigController {
+
+    private final OnnxScoringService onnxScoringService;
+
+    @GetMapping("/backend")
+    public ResponseEntity<ScoringBackendResponse> getCurrentBackend() {
+        return ResponseEntity.ok(currentBackend());
+    }
+
+    @PostMapping("/backend")
+    public ResponseEntity<ScoringBackendResponse> setBackend(@RequestBody ScoringBackendRequest request) {
+        log.info("Changing scoring backend to: {}", request.getBackend());
+        if (!onnxScoringService.switchBackend(request.getBackend())) {
+            log.warn("Scoring backend {} is not available. Keeping current: {}", request.getBackend(), onnxScoringService.getActiveBackend());
+            return ResponseEntity.unprocessableEntity().body(currentBackend());
+        }
+        return ResponseEntity.ok(currentBackend());
+    }
+
+    /**
+     * Reloads the model file of the active backend. The new model is warmed up before it replaces the old one.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<ScoringBackendResponse> reloadModel() {
+        log.info("Reloading scoring model (current: {})", onnxScoringService.getActiveModelVersion());
+        if (!onnxScoringService.reloadModel()) {
+            log.warn("Scoring model reload failed. Keeping current: {}", onnxScoringService.getActiveModelVersion());
+            return ResponseEntity.unprocessableEntity().body(currentBackend());
+        }
+        return ResponseEntity.ok(currentBackend());
+    }
+
+    private ScoringBackendResponse currentBackend() {
+        return new ScoringBackendResponse(onnxScoringService.getActiveBackend(), onnxScoringService.getActiveModelVersion());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScoringBackendRequest {
+        private String backend;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScoringBackendResponse {
+        private String backend;
+        private String modelVersion;
+    }
+}
@@ -0,0 +1,42 @@
+package com.zant.backend.controller;
+
+import com.zant.backend.service.BatchScoringService;
+import com.zant.backend.service.BatchScoringService.RescoreProgress;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/scoring/rescore")
+@RequiredArgsConstructor
+@Slf4j
+public class ScoringJobController {
+
+    private final BatchScoringService batchScoringService;
+
+    @GetMapping
+    public ResponseEntity<RescoreProgress> getProgress() {
+        return ResponseEntity.ok(batchScoringService.getProgress());
+    }
+
+    /**
+     * Starts re-scoring all SUBMITTED reports. By default resumes from the last checkpoint.
+     */
+    @PostMapping("/start")
+    public ResponseEntity<RescoreProgress> start(@RequestParam(defaultValue = "false") boolean fromScratch) {
+        log.info("Starting re-scoring job (fromScratch={})", fromScratch);
+        if (!batchScoringService.start(fromScratch)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(batchScoringService.getProgress());
+        }
+        return ResponseEntity.accepted().body(batchScoringService.getProgress());
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<RescoreProgress> stop() {
+        log.info("Stopping re-scoring job");
+        batchScoringService.stop();
+        return ResponseEntity.accepted().body(batchScoringService.getProgress());
+    }
+}
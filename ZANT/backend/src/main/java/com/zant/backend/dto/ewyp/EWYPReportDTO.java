@@ -24,4 +24,6 @@ public class EWYPReportDTO {
     private String attachmentContentType;
     private String status;
     private Double scoringClassification;
+    private String scoringStatus;
+    private String scoringModelVersion;
 }
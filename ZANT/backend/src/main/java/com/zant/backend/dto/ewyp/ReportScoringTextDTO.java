@@ -0,0 +1,32 @@
+package com.zant.backend.dto.ewyp;
+
+import com.zant.backend.model.ewyp.AccidentInfo;
+import com.zant.backend.model.ewyp.InjuredPerson;
+import com.zant.backend.model.ewyp.Reporter;
+import com.zant.backend.model.ewyp.WitnessInfo;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Pola zgłoszenia potrzebne do zbudowania tekstu do scoringu - bez załączników (kolumn LOB).
+ */
+@Data
+@NoArgsConstructor
+public class ReportScoringTextDTO {
+    private UUID id;
+    private InjuredPerson injuredPerson;
+    private Reporter reporter;
+    private AccidentInfo accidentInfo;
+    private List<WitnessInfo> witnesses = new ArrayList<>();
+
+    public ReportScoringTextDTO(UUID id, InjuredPerson injuredPerson, Reporter reporter, AccidentInfo accidentInfo) {
+        this.id = id;
+        this.injuredPerson = injuredPerson;
+        this.reporter = reporter;
+        this.accidentInfo = accidentInfo;
+    }
+}
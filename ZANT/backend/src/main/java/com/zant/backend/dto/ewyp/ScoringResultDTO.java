@@ -0,0 +1,17 @@
+package com.zant.backend.dto.ewyp;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoringResultDTO {
+    private UUID id;
+    private String scoringStatus;
+    private Double scoringClassification;
+    private String scoringModelVersion;
+}
@@ -41,6 +41,8 @@ public class EWYPReportMapper {
         dto.setResponseDeliveryMethod(entity.getResponseDeliveryMethod());
         dto.setSignature(toSignatureDTO(entity.getSignature()));
         dto.setScoringClassification(entity.getScoringClassification());
+        dto.setScoringStatus(entity.getScoringStatus());
+        dto.setScoringModelVersion(entity.getScoringModelVersion());
         dto.setStatus(entity.getStatus());
 
         return dto;
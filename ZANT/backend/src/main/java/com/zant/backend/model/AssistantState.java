@@ -1,12 +1,20 @@
 package com.zant.backend.model;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
 import com.google.gson.reflect.TypeToken;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.lang.reflect.Type;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -19,25 +27,72 @@ public class AssistantState {
 
     @Id
     private String conversationId;
-    
-    @Column(columnDefinition = "TEXT")
+
+    /**
+     * Zgłoszenie jako jsonb (w H2 - json). Zmienione sloty zapisuje {@code AssistantSlotWriter} przez
+     * {@code jsonb_set}, więc UPDATE encji nie przepisuje całego dokumentu - kolumna jest tylko wstawiana.
+     */
+    @Column(updatable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
     @Convert(converter = AccidentReportConverter.class)
     private AccidentReport accidentReport;
     
-    @Column(columnDefinition = "TEXT")
-    @Convert(converter = ConversationHistoryConverter.class)
+    /**
+     * Okno ostatnich wpisów historii. Nie jest kolumną - tury są dopisywane do {@link ConversationTurn},
+     * a okno jest wczytywane z ostatnich tur, gdy rozmowa trafia do pamięci.
+     */
+    @Transient
     private List<Map<String, String>> conversationHistory;
-    
+
+    /**
+     * Historia zapisana w całości przed wprowadzeniem tabeli tur - tylko do odczytu, uzupełnia okno historii,
+     * gdy rozmowa ma w {@link ConversationTurn} mniej tur, niż mieści okno.
+     */
+    @Column(name = "conversation_history", columnDefinition = "TEXT", insertable = false, updatable = false)
+    @Convert(converter = ConversationHistoryConverter.class)
+    private List<Map<String, String>> legacyConversationHistory;
+
+    /**
+     * Skrót tur, które wypadły z okna historii - najstarsze na początku. Razem z oknem ogranicza
+     * rozmiar zapisywanego stanu i promptu niezależnie od długości rozmowy.
+     */
     @Column(columnDefinition = "TEXT")
+    private String historySummary;
+    
+    @JdbcTypeCode(SqlTypes.JSON)
     @Convert(converter = StringListConverter.class)
     private List<String> missingFields;
     
     private double completionProgress;
 
+    /**
+     * Liczba zakończonych tur rozmowy. Tury z dziennika o wyższym numerze nie są jeszcze w bazie
+     * i są powtarzane przy starcie.
+     */
+    @ColumnDefault("0")
+    private long turnCount;
+
+    /**
+     * Wersja wiersza (optimistic locking) - zapis stanu zmienionego w międzyczasie przez inny węzeł kończy się
+     * konfliktem zamiast nadpisania jego tur.
+     */
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     // JPA Converters for JSON serialization
     @Converter
     public static class AccidentReportConverter implements AttributeConverter<AccidentReport, String> {
-        private static final Gson gson = new Gson();
+        /**
+         * Gson bez adaptera nie serializuje LocalDateTime na Javie 17+ (moduł java.time jest zamknięty dla refleksji).
+         * Publiczny - tym samym formatem zapisywane są pojedyncze sloty.
+         */
+        public static final Gson gson = new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class,
+                        (JsonSerializer<LocalDateTime>) (value, type, context) -> new JsonPrimitive(value.toString()))
+                .registerTypeAdapter(LocalDateTime.class,
+                        (JsonDeserializer<LocalDateTime>) (json, type, context) -> LocalDateTime.parse(json.getAsString()))
+                .create();
 
         @Override
         public String convertToDatabaseColumn(AccidentReport attribute) {
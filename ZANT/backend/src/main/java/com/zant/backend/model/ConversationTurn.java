@@ -0,0 +1,66 @@
+package com.zant.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Jedna tura czatu asystenta (wiadomość użytkownika i odpowiedź). Tabela jest tylko dopisywana - koszt zapisu
+ * tury nie zależy od długości rozmowy, a historia do promptu to kilka ostatnich wierszy z klucza
+ * (conversationId, seq).
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "assistant_turns")
+@IdClass(ConversationTurn.Key.class)
+public class ConversationTurn implements Persistable<ConversationTurn.Key> {
+
+    @Id
+    private String conversationId;
+
+    @Id
+    private long seq; // numer tury w rozmowie, od 1 (AssistantState.turnCount po turze)
+
+    @Column(columnDefinition = "TEXT")
+    private String userMessage;
+
+    @Column(columnDefinition = "TEXT")
+    private String assistantMessage;
+
+    private LocalDateTime createdAt;
+
+    public ConversationTurn(String conversationId, long seq, String userMessage, String assistantMessage) {
+        this.conversationId = conversationId;
+        this.seq = seq;
+        this.userMessage = userMessage;
+        this.assistantMessage = assistantMessage;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(conversationId, seq);
+    }
+
+    /**
+     * Tury nigdy nie są aktualizowane - zapis to zawsze INSERT, bez SELECT-a, który robiłby merge.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String conversationId;
+        private long seq;
+    }
+}
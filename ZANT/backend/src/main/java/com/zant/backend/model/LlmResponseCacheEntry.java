@@ -0,0 +1,34 @@
+package com.zant.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trwała warstwa cache odpowiedzi LLM (pytania o okoliczności wypadku). Przeżywa restart backendu
+ * i jest współdzielona przez wszystkie instancje.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "llm_response_cache", indexes = @Index(name = "idx_llm_response_cache_expires_at", columnList = "expiresAt"))
+public class LlmResponseCacheEntry {
+
+    @Id
+    private String cacheKey; // SHA-256(dostawca, model, temperatura, wersja promptu, znormalizowany opis)
+
+    private String provider;
+
+    private String model;
+
+    private String promptVersion;
+
+    @Column(columnDefinition = "TEXT")
+    private String response; // CircumstancesAssistantResponse jako JSON
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.zant.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Punkt kontrolny zadania ponownego scoringu - pozwala wznowić przerwane zadanie od ostatniej zapisanej paczki.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "scoring_job_checkpoints")
+public class ScoringJobCheckpoint {
+
+    @Id
+    private String jobName;
+    
+    private UUID lastReportId; // ID ostatniego ocenionego zgłoszenia (kolejność po id)
+    
+    private long processed;
+    
+    private String status; // RUNNING | COMPLETED | STOPPED | FAILED
+    
+    private String backend;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime updatedAt;
+}
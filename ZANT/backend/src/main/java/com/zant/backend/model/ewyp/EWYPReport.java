@@ -51,8 +51,10 @@ public class EWYPReport {
     @Embedded
     private AccidentInfo accidentInfo;
     
+    // Ta sama kolejność co findWitnessesByReportIds - tekst do scoringu numeruje świadków
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "ewyp_report_id")
+    @OrderBy("id")
     private List<WitnessInfo> witnesses = new ArrayList<>();
     
     @Embedded
@@ -106,6 +108,12 @@ public class EWYPReport {
     @Column(name = "scoring_classification")
     private Double scoringClassification; // Prawdopodobieństwo wypadku przy pracy (0.0-1.0)
     
+    @Column(name = "scoring_status")
+    private String scoringStatus; // SCORING_PENDING | SCORED | SCORING_FAILED
+    
+    @Column(name = "scoring_model_version")
+    private String scoringModelVersion; // Backend i wersja modelu, np. onnx:3fa2c1d9e0ab
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -1,9 +1,33 @@
 package com.zant.backend.repository;
 
+import com.zant.backend.model.AccidentReport;
 import com.zant.backend.model.AssistantState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AssistantStateRepository extends JpaRepository<AssistantState, String> {
+
+    /**
+     * Podmienia jeden slot zgłoszenia w kolumnie jsonb (PostgreSQL) - reszta dokumentu nie jest przepisywana.
+     *
+     * @param path  ścieżka slotu jako literał tablicy text, np. {@code {victimData}}
+     * @param value nowa wartość slotu jako JSON
+     */
+    @Modifying
+    @Query(value = "update assistant_states set accident_report = jsonb_set(coalesce(accident_report, cast('{}' as jsonb)), "
+            + "cast(:path as text[]), cast(:value as jsonb), true) where conversation_id = :conversationId",
+            nativeQuery = true)
+    int updateReportSlot(@Param("conversationId") String conversationId, @Param("path") String path,
+                         @Param("value") String value);
+
+    /**
+     * Zapis całego zgłoszenia - dla baz bez {@code jsonb_set} (H2 w testach).
+     */
+    @Modifying
+    @Query("update AssistantState s set s.accidentReport = :report where s.conversationId = :conversationId")
+    int updateReport(@Param("conversationId") String conversationId, @Param("report") AccidentReport report);
 }
@@ -0,0 +1,14 @@
+package com.zant.backend.repository;
+
+import com.zant.backend.model.ConversationTurn;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConversationTurnRepository extends JpaRepository<ConversationTurn, ConversationTurn.Key> {
+
+    List<ConversationTurn> findByConversationIdOrderBySeqDesc(String conversationId, Pageable pageable);
+}
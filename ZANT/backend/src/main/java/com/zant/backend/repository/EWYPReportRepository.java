@@ -1,11 +1,77 @@
 package com.zant.backend.repository;
 
+import com.zant.backend.dto.ewyp.ReportScoringTextDTO;
+import com.zant.backend.dto.ewyp.ScoringResultDTO;
 import com.zant.backend.model.ewyp.EWYPReport;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface EWYPReportRepository extends JpaRepository<EWYPReport, UUID> {
+    
+    /**
+     * Świadkowie wczytywani od razu - open-in-view jest wyłączone, a kontrolery mapują encję na DTO
+     * (i generują dokumenty) już po zamknięciu sesji.
+     */
+    @Override
+    @EntityGraph(attributePaths = "witnesses")
+    Optional<EWYPReport> findById(UUID id);
+    
+    @Override
+    @EntityGraph(attributePaths = "witnesses")
+    List<EWYPReport> findAll();
+    
+    /**
+     * Jak {@link #findById}, razem z plikami innych dokumentów - dla dopisania kolejnego pliku.
+     */
+    @EntityGraph(attributePaths = {"witnesses", "otherDocumentsFiles"})
+    Optional<EWYPReport> findWithOtherDocumentsById(UUID id);
+    
+    /**
+     * Zapisuje wynik scoringu bez wczytywania całego zgłoszenia (załączników LOB) i bez nadpisywania
+     * zmian wprowadzonych w zgłoszeniu w czasie, gdy scoring był liczony.
+     */
+    @Modifying
+    @Transactional
+    @Query("update EWYPReport r set r.scoringClassification = :classification, r.scoringStatus = :scoringStatus, "
+            + "r.scoringModelVersion = :modelVersion, r.updatedAt = :updatedAt where r.id = :id")
+    int updateScoring(@Param("id") UUID id,
+                      @Param("classification") Double classification,
+                      @Param("scoringStatus") String scoringStatus,
+                      @Param("modelVersion") String modelVersion,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Query("select new com.zant.backend.dto.ewyp.ScoringResultDTO(r.id, r.scoringStatus, r.scoringClassification, "
+            + "r.scoringModelVersion) "
+            + "from EWYPReport r where r.id = :id")
+    Optional<ScoringResultDTO> findScoringById(@Param("id") UUID id);
+    
+    // Stronicowanie po kluczu (id > ostatnie id) dla zadania ponownego scoringu - bez OFFSET i bez kolumn LOB
+    @Query("select new com.zant.backend.dto.ewyp.ReportScoringTextDTO(r.id, r.injuredPerson, r.reporter, r.accidentInfo) "
+            + "from EWYPReport r where r.status = :status order by r.id")
+    List<ReportScoringTextDTO> findScoringTextsByStatus(@Param("status") String status, Pageable pageable);
+    
+    @Query("select new com.zant.backend.dto.ewyp.ReportScoringTextDTO(r.id, r.injuredPerson, r.reporter, r.accidentInfo) "
+            + "from EWYPReport r where r.status = :status and r.id > :lastId order by r.id")
+    List<ReportScoringTextDTO> findScoringTextsByStatusAfter(@Param("status") String status, @Param("lastId") UUID lastId,
+                                                             Pageable pageable);
+    
+    /**
+     * Świadkowie całej strony zgłoszeń jednym zapytaniem: [id zgłoszenia, WitnessInfo].
+     */
+    @Query("select r.id, w from EWYPReport r join r.witnesses w where r.id in :ids order by w.id")
+    List<Object[]> findWitnessesByReportIds(@Param("ids") List<UUID> ids);
+    
+    long countByStatus(String status);
 }
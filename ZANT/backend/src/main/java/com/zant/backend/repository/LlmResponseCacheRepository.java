@@ -0,0 +1,30 @@
+package com.zant.backend.repository;
+
+import com.zant.backend.model.LlmResponseCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface LlmResponseCacheRepository extends JpaRepository<LlmResponseCacheEntry, String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from LlmResponseCacheEntry e where e.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from LlmResponseCacheEntry e")
+    int deleteAllEntries();
+
+    @Modifying
+    @Transactional
+    @Query("delete from LlmResponseCacheEntry e where e.provider = :provider")
+    int deleteByProvider(@Param("provider") String provider);
+}
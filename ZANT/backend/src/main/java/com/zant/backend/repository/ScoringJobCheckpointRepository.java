@@ -0,0 +1,9 @@
+package com.zant.backend.repository;
+
+import com.zant.backend.model.ScoringJobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ScoringJobCheckpointRepository extends JpaRepository<ScoringJobCheckpoint, String> {
+}
@@ -0,0 +1,45 @@
+package com.zant.backend.scoring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Wersja modelu = początek skrótu SHA-256 pliku modelu. Zmienia się przy każdym nowym pliku,
+ * także gdy ścieżka pozostaje ta sama.
+ */
+final class ModelVersion {
+
+    private static final int LENGTH = 12;
+
+    private ModelVersion() {
+    }
+
+    static String of(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()).substring(0, LENGTH);
+    }
+
+    static String of(byte[] content) {
+        return HexFormat.of().formatHex(sha256().digest(content)).substring(0, LENGTH);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Brak SHA-256 w JVM", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.zant.backend.scoring;
+
+import ai.onnxruntime.OnnxMap;
+import ai.onnxruntime.OnnxSequence;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Scoring przez ONNX Runtime (CPU) na modelu wyeksportowanym skryptem {@code Python/export_onnx.py}.
+ * Sesja jest tworzona raz i współdzielona - {@link OrtSession#run} jest thread-safe.
+ *
+ * <p>Wejście: tensor stringów {@code [N, 1]}. Wyjście: tensor prawdopodobieństw {@code [N, 2]}
+ * (eksport z {@code zipmap=False}) albo sekwencja map klasa -> prawdopodobieństwo (domyślny ZipMap skl2onnx).
+ */
+@Slf4j
+public class OnnxRuntimeScoringModel implements ScoringModel {
+
+    private static final String PROBABILITIES_OUTPUT = "probabilities";
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final String inputName;
+    private final String probabilitiesOutput;
+    private final String version;
+
+    private OnnxRuntimeScoringModel(OrtEnvironment environment, OrtSession session, String version) {
+        this.environment = environment;
+        this.session = session;
+        this.version = version;
+        this.inputName = session.getInputNames().iterator().next();
+        this.probabilitiesOutput = session.getOutputNames().contains(PROBABILITIES_OUTPUT)
+                ? PROBABILITIES_OUTPUT
+                : session.getOutputNames().stream().skip(1).findFirst().orElseThrow();
+    }
+
+    public static OnnxRuntimeScoringModel load(Path path, int intraOpThreads) throws OrtException, IOException {
+        String version = ModelVersion.of(path);
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            if (intraOpThreads > 0) {
+                options.setIntraOpNumThreads(intraOpThreads);
+            }
+            OrtSession session = environment.createSession(path.toString(), options);
+            OnnxRuntimeScoringModel model = new OnnxRuntimeScoringModel(environment, session, version);
+            log.info("Wczytano model ONNX z {} (wersja: {}, wejście: {}, wyjście: {}, wątki intra-op: {})",
+                    path, version, model.inputName, model.probabilitiesOutput, intraOpThreads > 0 ? intraOpThreads : "domyślnie");
+            return model;
+        }
+    }
+
+    @Override
+    public List<Double> predict(List<String> texts) {
+        String[] cleaned = new String[texts.size()];
+        for (int i = 0; i < cleaned.length; i++) {
+            cleaned[i] = TfidfLogisticRegressionModel.basicClean(texts.get(i));
+        }
+
+        try (OnnxTensor input = OnnxTensor.createTensor(environment, cleaned, new long[]{cleaned.length, 1});
+             OrtSession.Result result = session.run(Map.of(inputName, input))) {
+            Optional<OnnxValue> output = result.get(probabilitiesOutput);
+            if (output.isEmpty()) {
+                throw new ScoringException("Model ONNX nie zwrócił wyjścia: " + probabilitiesOutput);
+            }
+            return readPositiveClass(output.get(), cleaned.length);
+        } catch (OrtException e) {
+            throw new ScoringException("Błąd inferencji ONNX: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<Double> readPositiveClass(OnnxValue output, int expected) throws OrtException {
+        List<Double> result = new ArrayList<>(expected);
+        if (output instanceof OnnxTensor tensor) {
+            float[][] probabilities = (float[][]) tensor.getValue();
+            for (float[] row : probabilities) {
+                result.add((double) row[1]);
+            }
+        } else if (output instanceof OnnxSequence sequence) {
+            for (Object item : sequence.getValue()) {
+                Map<?, ?> classProbabilities = ((OnnxMap) item).getValue();
+                result.add(((Number) classProbabilities.get(1L)).doubleValue());
+            }
+        } else {
+            throw new ScoringException("Nieobsługiwany typ wyjścia modelu ONNX: " + output.getType());
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "onnx";
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (OrtException e) {
+            log.warn("Błąd przy zamykaniu sesji ONNX: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.zant.backend.scoring;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pojedynczy długożyjący proces {@code predictor.py --serve}.
+ * Model jest ładowany raz przy starcie procesu, a żądania idą przez stdin/stdout
+ * w ramkach: 4 bajty długości (big-endian) + JSON w UTF-8.
+ * Instancja nie jest thread-safe - pulę pilnuje, by w danej chwili używał jej jeden wątek.
+ */
+@Slf4j
+class PredictorWorker {
+
+    private static final Gson gson = new Gson();
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final int id;
+    private final Process process;
+    private final DataOutputStream toWorker;
+    private final DataInputStream fromWorker;
+
+    private PredictorWorker(int id, Process process) {
+        this.id = id;
+        this.process = process;
+        this.toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    /**
+     * Uruchamia proces i czeka na ramkę gotowości (model wczytany).
+     */
+    static PredictorWorker start(int id, String pythonExecutable, String predictorScript, String modelPath) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(
+                pythonExecutable,
+                predictorScript,
+                "--model-path", modelPath,
+                "--serve"
+        );
+        // stderr workera trafia do logów aplikacji, stdout jest zarezerwowany dla protokołu
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+
+        PredictorWorker worker = new PredictorWorker(id, process);
+        try {
+            JsonObject ready = worker.readFrame();
+            if (!ready.has("ready")) {
+                throw new IOException("Nieoczekiwana ramka startowa workera: " + ready);
+            }
+        } catch (IOException e) {
+            worker.destroy();
+            throw e;
+        }
+        log.info("Worker predyktora #{} gotowy (pid {})", id, process.pid());
+        return worker;
+    }
+
+    /**
+     * Zwraca prawdopodobieństwa klasy 1 dla każdego tekstu, w tej samej kolejności.
+     * Jeśli odpowiedź nie przyjdzie w {@code timeoutMs}, proces jest zabijany, a wywołanie kończy się wyjątkiem.
+     */
+    List<Double> predict(List<String> texts, long timeoutMs, ScheduledExecutorService watchdog) throws IOException {
+        JsonObject request = new JsonObject();
+        JsonArray array = new JsonArray();
+        texts.forEach(array::add);
+        request.add("texts", array);
+
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            log.warn("Worker predyktora #{} nie odpowiedział w {} ms - zabijam proces", id, timeoutMs);
+            process.destroyForcibly();
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            writeFrame(request);
+            JsonObject response = readFrame();
+            if (response.has("error")) {
+                throw new ScoringException("Błąd predykcji w workerze: " + response.get("error").getAsString());
+            }
+            JsonArray probabilities = response.getAsJsonArray("probabilities");
+            List<Double> result = new ArrayList<>(probabilities.size());
+            probabilities.forEach(p -> result.add(p.getAsDouble()));
+            return result;
+        } finally {
+            kill.cancel(false);
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    void destroy() {
+        try {
+            toWorker.close();
+        } catch (IOException ignored) {
+            // proces i tak zostanie zabity
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFrame(JsonObject obj) throws IOException {
+        byte[] payload = gson.toJson(obj).getBytes(StandardCharsets.UTF_8);
+        toWorker.writeInt(payload.length);
+        toWorker.write(payload);
+        toWorker.flush();
+    }
+
+    private JsonObject readFrame() throws IOException {
+        int length = fromWorker.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Nieprawidłowa długość ramki od workera: " + length);
+        }
+        byte[] payload = new byte[length];
+        fromWorker.readFully(payload);
+        return gson.fromJson(new String(payload, StandardCharsets.UTF_8), JsonObject.class);
+    }
+}
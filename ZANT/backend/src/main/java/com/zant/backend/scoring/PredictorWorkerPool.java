@@ -0,0 +1,211 @@
+package com.zant.backend.scoring;
+
+import com.zant.backend.config.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pula długożyjących workerów {@code predictor.py --serve}.
+ * <ul>
+ *     <li>każdy worker ładuje model raz, więc koszt startu interpretera i deserializacji modelu
+ *     ponosimy przy starcie puli, a nie przy każdym zgłoszeniu,</li>
+ *     <li>padnięty worker jest ubijany i w tle zastępowany nowym,</li>
+ *     <li>gdy wszystkie workery są zajęte, wywołujący czeka maksymalnie {@code acquireTimeoutMs},
+ *     a potem dostaje {@link ScoringException} (backpressure zamiast nieograniczonej kolejki).</li>
+ * </ul>
+ */
+@Slf4j
+public class PredictorWorkerPool implements ScoringModel {
+
+    private static final long MAX_RESTART_BACKOFF_MS = 30_000;
+
+    private final String pythonExecutable;
+    private final String predictorScript;
+    private final String modelPath;
+    private final String version;
+    private final int size;
+    private final long acquireTimeoutMs;
+    private final long requestTimeoutMs;
+
+    private final BlockingQueue<PredictorWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
+    private final ExecutorService spawner;
+    private final ScheduledExecutorService watchdog;
+    private volatile boolean closed = false;
+
+    public PredictorWorkerPool(String pythonExecutable, String predictorScript, String modelPath,
+                               int size, long acquireTimeoutMs, long requestTimeoutMs,
+                               boolean virtualThreads) throws IOException {
+        this.pythonExecutable = pythonExecutable;
+        this.predictorScript = predictorScript;
+        this.modelPath = modelPath;
+        this.version = ModelVersion.of(Path.of(modelPath));
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.requestTimeoutMs = requestTimeoutMs;
+        // Start workera to głównie czekanie na proces i ładowanie modelu - na Javie 21 wystarczy wątek wirtualny
+        this.spawner = VirtualThreads.use(virtualThreads)
+                ? VirtualThreads.newThreadPerTaskExecutor("predictor-spawner-")
+                : Executors.newCachedThreadPool(daemonThreads("predictor-spawner"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("predictor-watchdog"));
+    }
+
+    /**
+     * Uruchamia workery w tle - nie blokuje startu aplikacji na ładowaniu modelu.
+     */
+    public void start() {
+        log.info("Uruchamiam pulę {} workerów predyktora (model: {})", size, modelPath);
+        for (int i = 0; i < size; i++) {
+            spawnInBackground();
+        }
+    }
+
+    /**
+     * Zwraca prawdopodobieństwa klasy 1 dla podanych tekstów (jedno wywołanie modelu na całą listę).
+     */
+    @Override
+    public List<Double> predict(List<String> texts) {
+        if (closed) {
+            throw new ScoringException("Pula workerów predyktora jest zamknięta");
+        }
+
+        PredictorWorker worker;
+        try {
+            worker = idleWorkers.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScoringException("Przerwano oczekiwanie na wolnego workera predyktora", e);
+        }
+        if (worker == null) {
+            throw new ScoringException("Wszystkie workery predyktora są zajęte (czekano " + acquireTimeoutMs + " ms)");
+        }
+
+        try {
+            List<Double> result = worker.predict(texts, requestTimeoutMs, watchdog);
+            release(worker);
+            return result;
+        } catch (IOException e) {
+            log.warn("Worker predyktora #{} przestał odpowiadać: {}. Restartuję.", worker.getId(), e.getMessage());
+            replace(worker);
+            throw new ScoringException("Worker predyktora uległ awarii", e);
+        } catch (ScoringException e) {
+            release(worker);
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Worker predyktora #{} zwrócił nieczytelną odpowiedź: {}. Restartuję.", worker.getId(), e.getMessage());
+            replace(worker);
+            throw new ScoringException("Nieczytelna odpowiedź workera predyktora", e);
+        }
+    }
+
+    /**
+     * Czeka na pierwszy gotowy worker - {@link #start()} uruchamia je w tle.
+     */
+    @Override
+    public boolean awaitReady(long timeoutMs) throws InterruptedException {
+        PredictorWorker worker = idleWorkers.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (worker == null) {
+            return false;
+        }
+        idleWorkers.offer(worker);
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "python";
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getIdleCount() {
+        return idleWorkers.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PredictorWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+        if (spawner instanceof ThreadPoolExecutor pool) {
+            pool.shutdownNow();
+        }
+        // wątki wirtualne nie mają puli do zamknięcia - pętla startu kończy się po sprawdzeniu flagi closed
+        watchdog.shutdownNow();
+        log.info("Pula workerów predyktora zamknięta");
+    }
+
+    private void release(PredictorWorker worker) {
+        if (closed) {
+            worker.destroy();
+        } else if (!worker.isAlive()) {
+            replace(worker);
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private void replace(PredictorWorker worker) {
+        worker.destroy();
+        if (!closed) {
+            spawnInBackground();
+        }
+    }
+
+    private void spawnInBackground() {
+        spawner.execute(() -> {
+            long backoffMs = 1_000;
+            while (!closed) {
+                try {
+                    PredictorWorker worker = PredictorWorker.start(
+                            nextWorkerId.incrementAndGet(), pythonExecutable, predictorScript, modelPath);
+                    if (closed) {
+                        worker.destroy();
+                    } else {
+                        idleWorkers.offer(worker);
+                    }
+                    return;
+                } catch (IOException e) {
+                    log.error("Nie udało się uruchomić workera predyktora: {}. Ponowię za {} ms", e.getMessage(), backoffMs);
+                    try {
+                        Thread.sleep(backoffMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    backoffMs = Math.min(backoffMs * 2, MAX_RESTART_BACKOFF_MS);
+                }
+            }
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
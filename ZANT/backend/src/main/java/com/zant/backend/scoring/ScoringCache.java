@@ -0,0 +1,59 @@
+package com.zant.backend.scoring;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Cache wyników scoringu (LRU + TTL). Klucz to skrót SHA-256 tekstu zgłoszenia oraz backend i wersja modelu,
+ * więc po podmianie modelu stare wpisy nie są już trafiane, a tylko wygasają.
+ */
+public class ScoringCache {
+
+    private final Cache<String, Double> cache;
+
+    /**
+     * @param maxSize maksymalna liczba wpisów; 0 wyłącza cache
+     * @param ttl czas życia wpisu od zapisu
+     */
+    public ScoringCache(long maxSize, Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Rejestruje metryki {@code cache.gets{cache=scoring,result=hit|miss}}, {@code cache.size}, {@code cache.evictions}.
+     */
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "scoring");
+    }
+
+    public static String hash(String text) {
+        byte[] digest = ModelVersion.sha256().digest(text.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    public static String key(String textHash, ScoringModel model) {
+        return textHash + "|" + model.getVersionTag();
+    }
+
+    public Double get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, Double score) {
+        cache.put(key, score);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,16 @@
+package com.zant.backend.scoring;
+
+/**
+ * Błąd scoringu, po którym nie ma sensu ponawiać wywołania na tym samym modelu
+ * (np. model odrzucił dane wejściowe albo wszystkie workery są zajęte).
+ */
+public class ScoringException extends RuntimeException {
+
+    public ScoringException(String message) {
+        super(message);
+    }
+
+    public ScoringException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
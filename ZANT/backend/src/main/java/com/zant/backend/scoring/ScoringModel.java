@@ -0,0 +1,45 @@
+package com.zant.backend.scoring;
+
+import java.util.List;
+
+/**
+ * Model oceniający, czy opis zdarzenia to wypadek przy pracy.
+ * Implementacje muszą dawać ten sam wynik co {@code predict_proba(...)[:, 1]} modelu z {@code model_training.py}.
+ */
+public interface ScoringModel extends AutoCloseable {
+
+    /**
+     * Zwraca prawdopodobieństwa klasy 1 (wniosek uznany) dla każdego tekstu, w tej samej kolejności.
+     * Teksty są surowe - czyszczenie {@code basic_clean} wykonuje implementacja.
+     */
+    List<Double> predict(List<String> texts);
+
+    /**
+     * Krótka nazwa backendu do logów, np. {@code "python"} albo {@code "java"}.
+     */
+    String getName();
+
+    /**
+     * Wersja wczytanego modelu (skrót pliku modelu) - część klucza cache wyników.
+     */
+    String getVersion();
+
+    /**
+     * Znacznik zapisywany przy wyniku scoringu, np. {@code "onnx:3fa2c1d9e0ab"}.
+     */
+    default String getVersionTag() {
+        return getName() + ":" + getVersion();
+    }
+
+    /**
+     * Czeka, aż model będzie gotowy do predykcji (np. wystartują procesy workerów).
+     *
+     * @return false jeśli model nie był gotowy w podanym czasie
+     */
+    default boolean awaitReady(long timeoutMs) throws InterruptedException {
+        return true;
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,92 @@
+package com.zant.backend.scoring;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Trzyma aktualnie używany {@link ScoringModel} i pozwala go atomowo podmienić w trakcie działania.
+ * Wywołania rozpoczęte na starym modelu kończą się na nim, a stary model jest zamykany
+ * dopiero po zakończeniu ostatniego z nich (ważne dla sesji ONNX i puli procesów Pythona).
+ */
+@Slf4j
+public class ScoringModelHolder implements AutoCloseable {
+
+    private final AtomicReference<Entry> current = new AtomicReference<>();
+
+    /**
+     * Wykonuje operację na aktualnym modelu. Zwraca {@code null}, gdy żaden model nie jest ustawiony.
+     */
+    public <T> T withModel(Function<ScoringModel, T> action) {
+        while (true) {
+            Entry entry = current.get();
+            if (entry == null) {
+                return null;
+            }
+            entry.inFlight.incrementAndGet();
+            if (entry.retired) {
+                // model został podmieniony między get() a incrementAndGet() - spróbuj z nowym
+                entry.release();
+                continue;
+            }
+            try {
+                return action.apply(entry.model);
+            } finally {
+                entry.release();
+            }
+        }
+    }
+
+    /**
+     * Ustawia nowy model; poprzedni zostanie zamknięty, gdy skończą się na nim trwające wywołania.
+     */
+    public void swap(ScoringModel model) {
+        Entry previous = current.getAndSet(model == null ? null : new Entry(model));
+        if (previous != null) {
+            previous.retire();
+        }
+    }
+
+    public ScoringModel peek() {
+        Entry entry = current.get();
+        return entry == null ? null : entry.model;
+    }
+
+    @Override
+    public void close() {
+        swap(null);
+    }
+
+    private static final class Entry {
+        private final ScoringModel model;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean retired = false;
+
+        private Entry(ScoringModel model) {
+            this.model = model;
+        }
+
+        private void retire() {
+            retired = true;
+            closeIfIdle();
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            if (retired) {
+                closeIfIdle();
+            }
+        }
+
+        private void closeIfIdle() {
+            if (inFlight.get() == 0 && closed.compareAndSet(false, true)) {
+                log.info("Zamykam wycofany model scoringu ({})", model.getName());
+                model.close();
+            }
+        }
+    }
+}
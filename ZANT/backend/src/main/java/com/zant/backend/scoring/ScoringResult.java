@@ -0,0 +1,12 @@
+package com.zant.backend.scoring;
+
+import lombok.Value;
+
+/**
+ * Wynik scoringu razem z wersją modelu, który go policzył ({@link ScoringModel#getVersionTag()}).
+ */
+@Value
+public class ScoringResult {
+    double probability;
+    String modelVersion;
+}
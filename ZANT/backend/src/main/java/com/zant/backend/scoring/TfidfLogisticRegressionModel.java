@@ -0,0 +1,216 @@
+package com.zant.backend.scoring;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scoring w JVM: odtworzenie pipeline'u {@code TfidfVectorizer + LogisticRegression} z {@code model_training.py}
+ * na podstawie pliku wyeksportowanego przez {@code Python/export_model.py}.
+ *
+ * <p>Format pliku (big-endian, zgodny z {@link DataInputStream}):
+ * <pre>
+ * "ZTLR" | int wersja=1 | byte lowercase | int ngramMin | int ngramMax | byte sublinearTf | byte l2Norm
+ *        | double intercept | int n | n x (string termin, double idf, double współczynnik)
+ * </pre>
+ * gdzie {@code string} to int długości + bajty UTF-8, a kolejność terminów odpowiada indeksom cech.
+ *
+ * <p>Instancja jest niemutowalna po wczytaniu, więc można jej używać z wielu wątków.
+ */
+@Slf4j
+public class TfidfLogisticRegressionModel implements ScoringModel {
+
+    static final int MAGIC = 0x5A544C52; // "ZTLR"
+    static final int FORMAT_VERSION = 1;
+
+    // Odpowiednik domyślnego token_pattern sklearn: r"(?u)\b\w\w+\b", czyli maksymalne ciągi >= 2 znaków słowa.
+    // \w Pythona to litery, wszystkie cyfry (także "²") i "_" - javowe \w zna tylko cyfry dziesiętne, za to łapie znaki
+    // łączące, więc klasa jest zapisana wprost.
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}_]{2,}");
+
+    // Odpowiedniki wyrażeń z basic_clean (predictor.py / model_training.py)
+    private static final Pattern PAGE_MARKER = Pattern.compile("=+\\s*STRONA\\s+\\d+\\s*=+",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern MANY_NEWLINES = Pattern.compile("\n{3,}");
+    private static final Pattern MANY_SPACES = Pattern.compile("[ \t]{2,}");
+
+    private final boolean lowercase;
+    private final int ngramMin;
+    private final int ngramMax;
+    private final boolean sublinearTf;
+    private final boolean l2Norm;
+    private final double intercept;
+    private final Map<String, Integer> vocabulary;
+    private final double[] idf;
+    private final double[] coefficients;
+    private final String version;
+
+    private TfidfLogisticRegressionModel(boolean lowercase, int ngramMin, int ngramMax, boolean sublinearTf, boolean l2Norm,
+                                         double intercept, Map<String, Integer> vocabulary, double[] idf, double[] coefficients,
+                                         String version) {
+        this.lowercase = lowercase;
+        this.ngramMin = ngramMin;
+        this.ngramMax = ngramMax;
+        this.sublinearTf = sublinearTf;
+        this.l2Norm = l2Norm;
+        this.intercept = intercept;
+        this.vocabulary = vocabulary;
+        this.idf = idf;
+        this.coefficients = coefficients;
+        this.version = version;
+    }
+
+    public static TfidfLogisticRegressionModel load(Path path) throws IOException {
+        // Plik czytany raz - z tych samych bajtów liczona jest wersja
+        byte[] bytes = Files.readAllBytes(path);
+        TfidfLogisticRegressionModel model = read(new ByteArrayInputStream(bytes), ModelVersion.of(bytes));
+        log.info("Wczytano model TF-IDF + LR z {} ({} cech, wersja {})", path, model.idf.length, model.version);
+        return model;
+    }
+
+    static TfidfLogisticRegressionModel read(InputStream stream) throws IOException {
+        return read(stream, "unknown");
+    }
+
+    static TfidfLogisticRegressionModel read(InputStream stream, String modelVersion) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("To nie jest plik modelu TF-IDF + LR (zły nagłówek)");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Nieobsługiwana wersja formatu modelu: " + version);
+        }
+
+        boolean lowercase = in.readBoolean();
+        int ngramMin = in.readInt();
+        int ngramMax = in.readInt();
+        boolean sublinearTf = in.readBoolean();
+        boolean l2Norm = in.readBoolean();
+        double intercept = in.readDouble();
+
+        int n = in.readInt();
+        Map<String, Integer> vocabulary = new HashMap<>(n * 4 / 3 + 1);
+        double[] idf = new double[n];
+        double[] coefficients = new double[n];
+        for (int i = 0; i < n; i++) {
+            byte[] term = new byte[in.readInt()];
+            in.readFully(term);
+            vocabulary.put(new String(term, StandardCharsets.UTF_8), i);
+            idf[i] = in.readDouble();
+            coefficients[i] = in.readDouble();
+        }
+
+        return new TfidfLogisticRegressionModel(lowercase, ngramMin, ngramMax, sublinearTf, l2Norm,
+                intercept, vocabulary, idf, coefficients, modelVersion);
+    }
+
+    @Override
+    public List<Double> predict(List<String> texts) {
+        List<Double> result = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            result.add(predictOne(text));
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "java";
+    }
+
+    @Override
+    public String getVersion() {
+        return version;
+    }
+
+    @Override
+    public void close() {
+        // brak zasobów natywnych
+    }
+
+    double predictOne(String text) {
+        Map<Integer, Integer> counts = countFeatures(basicClean(text));
+
+        // decyzja = w · (tfidf / ||tfidf||) + b, liczone w jednym przejściu po niezerowych cechach
+        double dot = 0.0;
+        double squaredNorm = 0.0;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            int index = entry.getKey();
+            double tf = sublinearTf ? 1.0 + Math.log(entry.getValue()) : entry.getValue();
+            double weight = tf * idf[index];
+            dot += weight * coefficients[index];
+            squaredNorm += weight * weight;
+        }
+        if (l2Norm && squaredNorm > 0.0) {
+            dot /= Math.sqrt(squaredNorm);
+        }
+        return 1.0 / (1.0 + Math.exp(-(dot + intercept)));
+    }
+
+    private Map<Integer, Integer> countFeatures(String text) {
+        String doc = lowercase ? text.toLowerCase(Locale.ROOT) : text;
+
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(doc);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int n = ngramMin; n <= ngramMax; n++) {
+            for (int i = 0; i + n <= tokens.size(); i++) {
+                String gram = n == 1 ? tokens.get(i) : String.join(" ", tokens.subList(i, i + n));
+                Integer index = vocabulary.get(gram);
+                if (index != null) {
+                    counts.merge(index, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Odpowiednik {@code basic_clean} z {@code predictor.py}.
+     */
+    static String basicClean(String text) {
+        if (text == null) {
+            return "";
+        }
+        String cleaned = PAGE_MARKER.matcher(text).replaceAll(" ");
+        cleaned = cleaned.replace("\r\n", "\n").replace("\r", "\n");
+        cleaned = MANY_NEWLINES.matcher(cleaned).replaceAll("\n\n");
+        cleaned = MANY_SPACES.matcher(cleaned).replaceAll(" ");
+        return pythonStrip(cleaned);
+    }
+
+    // str.strip() w Pythonie usuwa też m.in. NBSP i U+0085, których String.strip() nie rusza
+    private static String pythonStrip(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && isPythonSpace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && isPythonSpace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.substring(start, end);
+    }
+
+    private static boolean isPythonSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+    }
+}
@@ -3,71 +3,199 @@ package com.zant.backend.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zant.backend.ai.AiClient;
 import com.zant.backend.ai.AiClient.AiResponse;
+import com.zant.backend.config.VirtualThreads;
 import com.zant.backend.model.AccidentData;
 import com.zant.backend.model.AccidentReport;
 import com.zant.backend.model.AssistantState;
 import com.zant.backend.model.AssistantTurn;
 import com.zant.backend.model.BusinessData;
 import com.zant.backend.model.PersonData;
-import com.zant.backend.repository.AssistantStateRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AssistantService {
 
     private final MissingFieldsCalculator missingFieldsCalculator;
     private final AiClient aiClient;
-    private final AssistantStateRepository assistantStateRepository;
+    private final AssistantStateStore assistantStateStore;
     private final ObjectMapper objectMapper;
 
-    public AssistantService(MissingFieldsCalculator missingFieldsCalculator, AiClient aiClient, AssistantStateRepository assistantStateRepository, ObjectMapper objectMapper) {
+    /** Liczba ostatnich wpisów historii (użytkownik + asystent) trzymanych w całości. */
+    private final int historyWindow;
+
+    /** Maksymalna długość skrótu starszych tur - po przekroczeniu wypadają najstarsze linie. */
+    private final int historySummaryMaxChars;
+
+    /** Sloty zgłoszenia, które model może uzupełnić w turze - tylko one trafiają do dziennika tur. */
+    private static final List<String> SLOTS = List.of("victimData", "businessData", "accidentData");
+
+    /** Długość, do której przycinana jest pojedyncza wiadomość w skrócie. */
+    private static final int SUMMARY_LINE_MAX_CHARS = 200;
+
+    /**
+     * Skrzynka każdej rozmowy: ostatnia przyjęta tura. Kolejna wiadomość tej samej rozmowy startuje dopiero po jej
+     * zakończeniu, wiadomości różnych rozmów nie czekają na siebie. Wpis znika, gdy kolejka rozmowy jest pusta.
+     */
+    private final Map<String, CompletableFuture<AssistantTurn>> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Wątki dla blokującej części tury (wczytanie stanu, zapis do bazy). Odpowiedź modelu przychodzi na wątku
+     * klienta HTTP - gdyby tam czekała na JDBC, blokowałaby kolejne wywołania modelu.
+     */
+    private final ExecutorService turnExecutor;
+
+    public AssistantService(MissingFieldsCalculator missingFieldsCalculator, AiClient aiClient, AssistantStateStore assistantStateStore, ObjectMapper objectMapper,
+                            @Value("${assistant.history.window:12}") int historyWindow,
+                            @Value("${assistant.history.summary.max.chars:2000}") int historySummaryMaxChars,
+                            @Value("${assistant.turn.threads:10}") int turnThreads,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.missingFieldsCalculator = missingFieldsCalculator;
         this.aiClient = aiClient;
-        this.assistantStateRepository = assistantStateRepository;
+        this.assistantStateStore = assistantStateStore;
         this.objectMapper = objectMapper;
+        this.historyWindow = historyWindow;
+        this.historySummaryMaxChars = historySummaryMaxChars;
+        this.turnExecutor = VirtualThreads.use(virtualThreads)
+                ? VirtualThreads.newThreadPerTaskExecutor("assistant-turn-")
+                : newTurnPool(turnThreads);
+    }
+
+    private static ExecutorService newTurnPool(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        // Bez limitu kolejki - tur w locie jest tyle, ile równoczesnych wywołań modelu
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "assistant-turn-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
-    public AssistantTurn handleMessage(String conversationId, String userMessage) {
-        // 1. Pobierz stan rozmowy z bazy danych lub utwórz nowy
-        AssistantState state = assistantStateRepository.findById(conversationId)
-                .orElseGet(() -> {
-                    AssistantState newState = new AssistantState();
-                    newState.setConversationId(conversationId);
-                    newState.setAccidentReport(new AccidentReport());
-                    newState.setConversationHistory(new ArrayList<>());
-                    newState.setMissingFields(new ArrayList<>());
-                    newState.setCompletionProgress(0.0);
-                    return newState;
+    /**
+     * Powtarza tury z dziennika, które nie zdążyły trafić do bazy przed awarią.
+     */
+    @PostConstruct
+    public void recoverTurns() {
+        // Ta sama funkcja powtarza tury po konflikcie wersji z innym węzłem
+        assistantStateStore.recover(AssistantService::newState,
+                (state, turn) -> applyTurn(state, turn.userMessage(), turn.extractedFields(), turn.assistantMessage()));
+    }
+
+    /**
+     * Czeka chwilę na rozpoczęte tury - magazyn stanów zapisuje je przy swoim zamknięciu (zamykany po tym serwisie).
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // wątki wirtualne nie mają puli do zamknięcia
+        if (turnExecutor instanceof ThreadPoolExecutor pool) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Obsługuje wiadomość z czatu. Wywołanie modelu nie blokuje wątku żądania - dalsza część
+     * (aktualizacja slotów i zapis stanu) wykonuje się po nadejściu odpowiedzi. Tury jednej rozmowy
+     * wykonują się po kolei, w kolejności przyjęcia wiadomości.
+     */
+    public CompletableFuture<AssistantTurn> handleMessage(String conversationId, String userMessage) {
+        CompletableFuture<AssistantTurn> turn = new CompletableFuture<>();
+        CompletableFuture<AssistantTurn> previous = mailboxes.put(conversationId, turn);
+        CompletableFuture<?> ready = previous == null
+                ? CompletableFuture.completedFuture(null)
+                : previous.handle((result, e) -> null);
+        ready.thenComposeAsync(ignored -> processMessage(conversationId, userMessage), turnExecutor)
+                .whenComplete((result, e) -> {
+                    mailboxes.remove(conversationId, turn);
+                    if (e != null) {
+                        turn.completeExceptionally(e);
+                    } else {
+                        turn.complete(result);
+                    }
                 });
+        return turn;
+    }
 
-        // 2. Dodaj wiadomość użytkownika do historii rozmowy
-        Map<String, String> userMessageEntry = new HashMap<>();
-        userMessageEntry.put("role", "user");
-        userMessageEntry.put("content", userMessage);
-        state.getConversationHistory().add(userMessageEntry);
+    private CompletableFuture<AssistantTurn> processMessage(String conversationId, String userMessage) {
+        // 1. Pobierz stan rozmowy (pamięć węzła, baza danych) lub utwórz nowy
+        AssistantStateStore.Entry entry = assistantStateStore.acquire(conversationId, () -> {
+            AssistantState newState = newState();
+            newState.setConversationId(conversationId);
+            return newState;
+        });
+
+        // 2-3. Wywołaj AiClient.extractInfoFromUserMessageAsync(...) - wiadomość użytkownika trafia do historii
+        // dopiero razem z odpowiedzią, więc przerwana tura nie zostawia śladu w stanie
+        return aiClient.extractInfoFromUserMessageAsync(entry.getState(), userMessage, missingFieldsCalculator.getRequiredFields())
+                .thenApplyAsync(aiResponse -> applyAiResponse(entry, userMessage, aiResponse), turnExecutor)
+                .whenComplete((turn, e) -> assistantStateStore.release(entry));
+    }
 
-        // 3. Wywołaj AiClient.extractInfoFromUserMessage(...)
-        AiResponse aiResponse = aiClient.extractInfoFromUserMessage(state, userMessage, missingFieldsCalculator.getRequiredFields());
+    private AssistantTurn applyAiResponse(AssistantStateStore.Entry entry, String userMessage, AiResponse aiResponse) {
+        entry.lock.lock();
+        try {
+            // Stan bierzemy dopiero pod blokadą - zapis mógł go w międzyczasie zastąpić wersją z bazy
+            AssistantState state = entry.getState();
+            // 4-6. Sloty, brakujące pola, wiadomość i odpowiedź w historii
+            applyTurn(state, userMessage, aiResponse.getExtractedFields(), aiResponse.getSummaryForUser());
 
+            // 7. Zapisz turę - stan trafi do bazy z opóźnieniem, kompletne zgłoszenie od razu
+            Map<String, Object> slots = new HashMap<>();
+            for (String slot : SLOTS) {
+                if (aiResponse.getExtractedFields().containsKey(slot)) {
+                    slots.put(slot, aiResponse.getExtractedFields().get(slot));
+                }
+            }
+            assistantStateStore.commitTurn(entry, new AssistantTurnLog.TurnRecord(state.getConversationId(),
+                            state.getTurnCount(), userMessage, aiResponse.getSummaryForUser(), slots),
+                    state.getMissingFields().isEmpty());
+
+            // 8. Zwróć AssistantTurn (po konflikcie wersji stan jest już tym z bazy, z tą turą powtórzoną)
+            state = entry.getState();
+            return new AssistantTurn(
+                    aiResponse.getSummaryForUser(),
+                    aiResponse.getFollowUpQuestions(),
+                    state.getMissingFields(),
+                    state.getCompletionProgress()
+            );
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Nakłada wynik tury na stan: sloty wyciągnięte przez model, brakujące pola, wiadomość i odpowiedź w historii.
+     * Wspólne dla bieżących tur i tur powtarzanych z dziennika lub po konflikcie wersji.
+     */
+    private void applyTurn(AssistantState state, String userMessage, Map<String, Object> extractedFields, String assistantMessage) {
         // 4. Zaktualizuj sloty w AssistantState
-        if (aiResponse.getExtractedFields().containsKey("victimData")) {
-            Object victimDataObj = aiResponse.getExtractedFields().get("victimData");
+        if (extractedFields.containsKey("victimData")) {
+            Object victimDataObj = extractedFields.get("victimData");
             PersonData victimData = objectMapper.convertValue(victimDataObj, PersonData.class);
             state.getAccidentReport().setVictimData(victimData);
         }
-        if (aiResponse.getExtractedFields().containsKey("businessData")) {
-            Object businessDataObj = aiResponse.getExtractedFields().get("businessData");
+        if (extractedFields.containsKey("businessData")) {
+            Object businessDataObj = extractedFields.get("businessData");
             BusinessData businessData = objectMapper.convertValue(businessDataObj, BusinessData.class);
             state.getAccidentReport().setBusinessData(businessData);
         }
-        if (aiResponse.getExtractedFields().containsKey("accidentData")) {
-            Object accidentDataObj = aiResponse.getExtractedFields().get("accidentData");
+        if (extractedFields.containsKey("accidentData")) {
+            Object accidentDataObj = extractedFields.get("accidentData");
             AccidentData accidentData = objectMapper.convertValue(accidentDataObj, AccidentData.class);
             state.getAccidentReport().setAccidentData(accidentData);
         }
@@ -77,21 +205,67 @@ public class AssistantService {
         state.setMissingFields(missingFields);
         state.setCompletionProgress((double) (missingFieldsCalculator.getRequiredFields().size() - missingFields.size()) / missingFieldsCalculator.getRequiredFields().size() * 100);
 
-        // 6. Dodaj odpowiedź asystenta do historii rozmowy
-        Map<String, String> assistantMessageEntry = new HashMap<>();
-        assistantMessageEntry.put("role", "assistant");
-        assistantMessageEntry.put("content", aiResponse.getSummaryForUser());
-        state.getConversationHistory().add(assistantMessageEntry);
-
-        // 7. Zapisz zaktualizowany stan do bazy danych
-        assistantStateRepository.save(state);
-
-        // 8. Zwróć AssistantTurn
-        return new AssistantTurn(
-                aiResponse.getSummaryForUser(),
-                aiResponse.getFollowUpQuestions(),
-                missingFields,
-                state.getCompletionProgress()
-        );
+        // 6. Dodaj wiadomość użytkownika i odpowiedź asystenta do historii rozmowy
+        state.getConversationHistory().add(historyEntry("user", userMessage));
+        state.getConversationHistory().add(historyEntry("assistant", assistantMessage));
+        compactHistory(state);
+        state.setTurnCount(state.getTurnCount() + 1);
+    }
+
+    private static AssistantState newState() {
+        AssistantState newState = new AssistantState();
+        newState.setAccidentReport(new AccidentReport());
+        newState.setConversationHistory(new ArrayList<>());
+        newState.setMissingFields(new ArrayList<>());
+        newState.setCompletionProgress(0.0);
+        return newState;
+    }
+
+    private static Map<String, String> historyEntry(String role, String content) {
+        Map<String, String> entry = new HashMap<>();
+        entry.put("role", role);
+        entry.put("content", content);
+        return entry;
+    }
+
+    /**
+     * Przesuwa okno historii: wpisy starsze niż ostatnie {@code historyWindow} trafiają jako krótkie linie
+     * do skrótu rozmowy i są usuwane z listy. Skrót jest przycinany od najstarszych linii, więc zarówno
+     * zapisywany stan, jak i historia w prompcie mają rozmiar zależny od okna, a nie od długości rozmowy.
+     * Fakty ze starszych tur są już w slotach zgłoszenia - skrót ma tylko zachować wątek rozmowy.
+     */
+    private void compactHistory(AssistantState state) {
+        List<Map<String, String>> history = state.getConversationHistory();
+        int overflow = history.size() - historyWindow;
+        if (overflow <= 0) {
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder(state.getHistorySummary() != null ? state.getHistorySummary() : "");
+        List<Map<String, String>> evicted = history.subList(0, overflow);
+        for (Map<String, String> entry : evicted) {
+            String content = entry.getOrDefault("content", "");
+            if (content == null || content.isBlank()) {
+                continue;
+            }
+            content = content.strip().replaceAll("\\s+", " ");
+            if (content.length() > SUMMARY_LINE_MAX_CHARS) {
+                content = content.substring(0, SUMMARY_LINE_MAX_CHARS - 1) + "…";
+            }
+            String role = "assistant".equals(entry.get("role")) ? "asystent" : "użytkownik";
+            summary.append(role).append(": ").append(content).append('\n');
+        }
+        evicted.clear();
+
+        // Najstarsze linie wypadają pierwsze
+        while (summary.length() > historySummaryMaxChars) {
+            int lineEnd = summary.indexOf("\n");
+            if (lineEnd < 0) {
+                summary.setLength(historySummaryMaxChars);
+                break;
+            }
+            summary.delete(0, lineEnd + 1);
+        }
+        state.setHistorySummary(summary.toString());
     }
 }
@@ -0,0 +1,94 @@
+package com.zant.backend.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.repository.AssistantStateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Zapis zmienionych slotów zgłoszenia ({@link AssistantState#getAccidentReport()}) bez przepisywania całego
+ * dokumentu. Na PostgreSQL każdy slot to jeden {@code jsonb_set}; na innych bazach (H2 w testach) zapisywane
+ * jest całe zgłoszenie.
+ *
+ * <p>Przy starcie na PostgreSQL przestawia kolumny zapisane wcześniej jako TEXT na jsonb ({@code ddl-auto=update}
+ * nie zmienia typów) i zakłada indeksy GIN - zapytania analityczne o stan slotów i brakujące pola
+ * (np. {@code missing_fields ? 'victimData.pesel'}) działają po stronie bazy.
+ */
+@Slf4j
+@Component
+public class AssistantSlotWriter {
+
+    private static final List<String> JSONB_COLUMNS = List.of("accident_report", "missing_fields");
+
+    private final AssistantStateRepository repository;
+    private final boolean postgres;
+    private final Gson gson = AssistantState.AccidentReportConverter.gson;
+
+    public AssistantSlotWriter(AssistantStateRepository repository, DataSource dataSource) {
+        this.repository = repository;
+        this.postgres = isPostgres(dataSource);
+        if (postgres) {
+            migrateToJsonb(new JdbcTemplate(dataSource));
+        }
+    }
+
+    /**
+     * Zapisuje wskazane sloty stanu istniejącego w bazie. Wywoływane w transakcji zapisu stanu.
+     */
+    void writeSlots(AssistantState state, Collection<String> slots) {
+        if (slots.isEmpty() || state.getAccidentReport() == null) {
+            return;
+        }
+        if (!postgres) {
+            repository.updateReport(state.getConversationId(), state.getAccidentReport());
+            return;
+        }
+        // Ten sam Gson co w AccidentReportConverter - slot wygląda tak samo jak przy zapisie całego dokumentu
+        JsonObject report = gson.toJsonTree(state.getAccidentReport()).getAsJsonObject();
+        for (String slot : slots) {
+            JsonElement value = report.get(slot);
+            repository.updateReportSlot(state.getConversationId(), "{" + slot + "}",
+                    value != null ? gson.toJson(value) : "null");
+        }
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("Nie udało się ustalić typu bazy: {}. Sloty będą zapisywane w całości.", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void migrateToJsonb(JdbcTemplate jdbc) {
+        try {
+            for (String column : JSONB_COLUMNS) {
+                List<String> types = jdbc.queryForList("select data_type from information_schema.columns "
+                        + "where table_name = 'assistant_states' and column_name = ?", String.class, column);
+                if (types.contains("text")) {
+                    log.info("Zmieniam typ kolumny assistant_states.{} z text na jsonb", column);
+                    jdbc.execute("alter table assistant_states alter column " + column + " type jsonb using "
+                            + column + "::jsonb");
+                }
+            }
+            // jsonb_path_ops: mniejszy indeks, wystarcza do zapytań @> o zawartość slotów
+            jdbc.execute("create index if not exists idx_assistant_states_accident_report "
+                    + "on assistant_states using gin (accident_report jsonb_path_ops)");
+            jdbc.execute("create index if not exists idx_assistant_states_missing_fields "
+                    + "on assistant_states using gin (missing_fields)");
+        } catch (Exception e) {
+            log.error("Migracja kolumn stanu asystenta na jsonb nie powiodła się: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.zant.backend.service;
+
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.model.ConversationTurn;
+import com.zant.backend.repository.AssistantStateRepository;
+import com.zant.backend.repository.ConversationTurnRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Stany aktywnych rozmów trzymane w pamięci węzła z zapisem do bazy z opóźnieniem (write-behind).
+ *
+ * <p>Tura czatu zmienia stan w pamięci i dopisuje jedną linię do {@link AssistantTurnLog}; do bazy trafia
+ * dopiero co {@code assistant.state.flush.interval.ms} (kilka tur jednej rozmowy = jeden zapis), przy
+ * wyrzuceniu bezczynnej rozmowy z pamięci oraz od razu, gdy zgłoszenie jest kompletne. Po awarii węzła tury
+ * z dziennika są powtarzane na stanie z bazy przy starcie ({@link #recover}).
+ *
+ * <p>Zapis stanu to jedna transakcja: INSERT nowych wierszy {@link ConversationTurn}, UPDATE wiersza stanu
+ * (brakujące pola, skrót historii, {@code turnCount}) i {@code jsonb_set} slotów zmienionych w zapisywanych turach
+ * ({@link AssistantSlotWriter}). Historia nie jest przepisywana - przy wczytaniu rozmowy do pamięci
+ * pobierane jest tylko okno ostatnich tur ({@code assistant.history.window}).
+ *
+ * <p>Pamięć jest lokalna dla węzła - przy kilku instancjach rozmowa powinna trafiać zawsze do tej samej
+ * (sticky sessions) albo cache należy wyłączyć ({@code assistant.state.cache.enabled=false}). Gdy mimo to dwa węzły
+ * zmienią tę samą rozmowę, zapis kończy się konfliktem wersji ({@link AssistantState#getVersion()}): niezapisane
+ * tury są powtarzane na świeżym stanie z bazy i zapis jest ponawiany, bez ponownego wołania modelu.
+ */
+@Slf4j
+@Component
+public class AssistantStateStore {
+
+    private final AssistantStateRepository repository;
+    private final ConversationTurnRepository turnRepository;
+    private final AssistantSlotWriter slotWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int historyWindow;
+    private final int conflictRetries;
+    private final boolean cacheEnabled;
+    private final long idleMs;
+    private final int maxSize;
+    private final AssistantTurnLog turnLog;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Powtarza turę na stanie - ustawiane przez {@link #recover}, potrzebne też przy konflikcie wersji. */
+    private volatile BiConsumer<AssistantState, AssistantTurnLog.TurnRecord> replay;
+
+    /** Segmenty od tego numeru wzwyż wolno usuwać - starsze czekają na udane odtworzenie przy starcie. */
+    private volatile long firstDeletableSegment = Long.MAX_VALUE;
+
+    private final MeterRegistry meterRegistry;
+
+    public AssistantStateStore(AssistantStateRepository repository, ConversationTurnRepository turnRepository,
+                               AssistantSlotWriter slotWriter,
+                               PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${assistant.history.window:12}") int historyWindow,
+                               @Value("${assistant.state.conflict.retries:3}") int conflictRetries,
+                               @Value("${assistant.state.cache.enabled:true}") boolean cacheEnabled,
+                               @Value("${assistant.state.cache.idle.ms:300000}") long idleMs,
+                               @Value("${assistant.state.cache.max.size:10000}") int maxSize,
+                               @Value("${assistant.state.log.dir:data/assistant-turns}") String logDir,
+                               @Value("${assistant.state.log.fsync:false}") boolean logFsync) {
+        this.repository = repository;
+        this.turnRepository = turnRepository;
+        this.slotWriter = slotWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.historyWindow = historyWindow;
+        this.conflictRetries = conflictRetries;
+        this.meterRegistry = meterRegistry;
+        this.cacheEnabled = cacheEnabled;
+        this.idleMs = idleMs;
+        this.maxSize = maxSize;
+        this.turnLog = cacheEnabled ? openLog(logDir, logFsync) : null;
+
+        Gauge.builder("assistant.state.cache.size", entries, Map::size)
+                .description("Rozmowy trzymane w pamięci")
+                .register(meterRegistry);
+        Gauge.builder("assistant.state.dirty", entries, e -> e.values().stream().filter(entry -> entry.dirty).count())
+                .description("Rozmowy ze zmianami jeszcze niezapisanymi w bazie")
+                .register(meterRegistry);
+    }
+
+    private static AssistantTurnLog openLog(String logDir, boolean fsync) {
+        if (logDir == null || logDir.isBlank()) {
+            log.warn("Dziennik tur wyłączony - niezapisane tury przepadną przy awarii węzła.");
+            return null;
+        }
+        try {
+            return new AssistantTurnLog(Path.of(logDir), fsync);
+        } catch (IOException e) {
+            log.error("Nie udało się otworzyć dziennika tur w {}: {}. Niezapisane tury przepadną przy awarii węzła.",
+                    logDir, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Zwraca wpis rozmowy (z pamięci, z bazy albo nowy z {@code creator}). Wpis jest przypięty do pamięci,
+     * dopóki nie zostanie zwolniony przez {@link #release}.
+     */
+    Entry acquire(String conversationId, Supplier<AssistantState> creator) {
+        if (!cacheEnabled) {
+            Entry entry = new Entry(load(conversationId, creator));
+            entry.inUse = 1;
+            return entry;
+        }
+        while (true) {
+            Entry entry = entries.get(conversationId);
+            if (entry == null) {
+                // Zapytanie do bazy poza computeIfAbsent - nie blokuje na jego czas innych rozmów z tego kubełka mapy.
+                // Przy wyścigu wygrywa pierwszy wpis; drugi odczyt przepada (wyrzucany wpis jest najpierw zapisywany,
+                // więc oba odczyty widzą ten sam stan)
+                Entry loaded = new Entry(load(conversationId, creator));
+                entry = entries.putIfAbsent(conversationId, loaded);
+                if (entry == null) {
+                    entry = loaded;
+                }
+            }
+            entry.lock.lock();
+            try {
+                if (!entry.evicted) {
+                    entry.inUse++;
+                    entry.lastAccessMillis = System.currentTimeMillis();
+                    return entry;
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+            // Wyrzucony z pamięci między pobraniem a zablokowaniem - wczytaj jeszcze raz
+        }
+    }
+
+    void release(Entry entry) {
+        entry.lock.lock();
+        try {
+            entry.inUse--;
+            entry.lastAccessMillis = System.currentTimeMillis();
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Zapamiętuje zakończoną turę. Wywołujący trzyma blokadę wpisu ({@link Entry#lock}).
+     *
+     * @param flushNow zapisz stan do bazy od razu (np. zgłoszenie jest kompletne)
+     */
+    void commitTurn(Entry entry, AssistantTurnLog.TurnRecord record, boolean flushNow) {
+        entry.pendingTurns.add(record);
+        entry.dirty = true;
+        if (!cacheEnabled) {
+            saveWithRetry(entry);
+            return;
+        }
+        if (turnLog != null) {
+            try {
+                turnLog.append(record);
+            } catch (IOException e) {
+                log.warn("Nie udało się dopisać tury rozmowy {} do dziennika: {}. Zapisuję stan od razu.",
+                        record.conversationId(), e.getMessage());
+                flushNow = true;
+            }
+        }
+        if (flushNow) {
+            flush(entry);
+        }
+    }
+
+    /**
+     * Zapisuje do bazy wszystkie zmienione stany, wyrzuca z pamięci rozmowy bezczynne dłużej niż
+     * {@code assistant.state.cache.idle.ms} i pilnuje limitu {@code assistant.state.cache.max.size}.
+     */
+    @Scheduled(fixedDelayString = "${assistant.state.flush.interval.ms:5000}",
+            initialDelayString = "${assistant.state.flush.interval.ms:5000}")
+    public void flushDirty() {
+        if (!cacheEnabled) {
+            return;
+        }
+        long sealedBelow = -1;
+        if (turnLog != null) {
+            try {
+                sealedBelow = turnLog.roll();
+            } catch (IOException e) {
+                log.warn("Nie udało się rozpocząć nowego segmentu dziennika tur: {}", e.getMessage());
+            }
+        }
+
+        boolean allSaved = true;
+        long now = System.currentTimeMillis();
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            entry.lock.lock();
+            try {
+                allSaved &= flush(entry);
+                if (entry.inUse == 0 && now - entry.lastAccessMillis > idleMs && !entry.dirty) {
+                    evict(entry);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        evictOverLimit();
+
+        // Tury z zamkniętych segmentów są już w bazie
+        if (allSaved && sealedBelow > 0 && firstDeletableSegment < sealedBelow) {
+            turnLog.deleteSegments(firstDeletableSegment, sealedBelow);
+        }
+    }
+
+    /**
+     * Powtarza tury z dziennika, których nie ma w bazie (numer tury większy niż {@code turnCount} zapisanego
+     * stanu), i zapisuje odtworzone stany. Wołane raz przy starcie.
+     *
+     * @param replay powtarza jedną turę na stanie - bez wołania modelu
+     */
+    void recover(Supplier<AssistantState> creator, BiConsumer<AssistantState, AssistantTurnLog.TurnRecord> replay) {
+        this.replay = replay;
+        if (turnLog == null) {
+            return;
+        }
+        long firstOwnSegment = turnLog.currentSegment();
+        try {
+            Map<String, List<AssistantTurnLog.TurnRecord>> byConversation = new LinkedHashMap<>();
+            for (AssistantTurnLog.TurnRecord record : turnLog.readSealed()) {
+                byConversation.computeIfAbsent(record.conversationId(), id -> new ArrayList<>()).add(record);
+            }
+            int replayed = 0;
+            for (Map.Entry<String, List<AssistantTurnLog.TurnRecord>> conversation : byConversation.entrySet()) {
+                AssistantState state = load(conversation.getKey(), creator);
+                state.setConversationId(conversation.getKey());
+                List<AssistantTurnLog.TurnRecord> replayedTurns = new ArrayList<>();
+                for (AssistantTurnLog.TurnRecord record : conversation.getValue()) {
+                    if (record.turn() > state.getTurnCount()) {
+                        replay.accept(state, record);
+                        replayedTurns.add(record);
+                    }
+                }
+                if (!replayedTurns.isEmpty()) {
+                    save(state, replayedTurns);
+                    replayed += replayedTurns.size();
+                }
+            }
+            if (replayed > 0) {
+                log.info("Odtworzono z dziennika {} tur w {} rozmowach", replayed, byConversation.size());
+            }
+            turnLog.deleteSegments(0, firstOwnSegment);
+        } catch (Exception e) {
+            log.error("Nie udało się odtworzyć tur z dziennika: {}. Segmenty zostają do następnego startu.",
+                    e.getMessage(), e);
+        }
+        firstDeletableSegment = firstOwnSegment;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+        if (turnLog != null) {
+            try {
+                turnLog.close();
+            } catch (IOException e) {
+                log.warn("Błąd zamykania dziennika tur: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stan z bazy z oknem ostatnich tur w historii albo nowy z {@code creator}.
+     */
+    private AssistantState load(String conversationId, Supplier<AssistantState> creator) {
+        return repository.findById(conversationId).map(this::loadHistory).orElseGet(creator);
+    }
+
+    private AssistantState loadHistory(AssistantState state) {
+        // Tura to dwa wpisy historii (użytkownik + asystent)
+        int turns = (historyWindow + 1) / 2;
+        List<ConversationTurn> tail = turns > 0
+                ? turnRepository.findByConversationIdOrderBySeqDesc(state.getConversationId(), PageRequest.of(0, turns))
+                : List.of();
+        List<Map<String, String>> history = new ArrayList<>();
+        // Rozmowa sprzed tabeli tur ma w niej tylko nowsze tury - brakującą część okna bierzemy z końca starej historii
+        List<Map<String, String>> legacy = state.getLegacyConversationHistory();
+        int gap = historyWindow - 2 * tail.size();
+        if (gap > 0 && legacy != null) {
+            history.addAll(legacy.subList(Math.max(0, legacy.size() - gap), legacy.size()));
+        }
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            history.add(historyEntry("user", tail.get(i).getUserMessage()));
+            history.add(historyEntry("assistant", tail.get(i).getAssistantMessage()));
+        }
+        int overflow = Math.max(0, history.size() - historyWindow);
+        state.setConversationHistory(new ArrayList<>(history.subList(overflow, history.size())));
+        return state;
+    }
+
+    private static Map<String, String> historyEntry(String role, String content) {
+        Map<String, String> entry = new HashMap<>();
+        entry.put("role", role);
+        entry.put("content", content);
+        return entry;
+    }
+
+    /** Nowe tury i stan rozmowy w jednej transakcji - {@code turnCount} w bazie zgadza się z tabelą tur. */
+    private void save(AssistantState state, List<AssistantTurnLog.TurnRecord> turns) {
+        List<ConversationTurn> rows = turns.stream()
+                .map(turn -> new ConversationTurn(turn.conversationId(), turn.turn(), turn.userMessage(),
+                        turn.assistantMessage()))
+                .toList();
+        // Nowy stan trafia do bazy w całości (INSERT), w istniejącym zapisywane są tylko zmienione sloty
+        boolean existing = state.getVersion() != null;
+        Set<String> changedSlots = new LinkedHashSet<>();
+        for (AssistantTurnLog.TurnRecord turn : turns) {
+            if (turn.extractedFields() != null) {
+                changedSlots.addAll(turn.extractedFields().keySet());
+            }
+        }
+        AssistantState saved = transactionTemplate.execute(status -> {
+            turnRepository.saveAll(rows);
+            AssistantState result = repository.save(state);
+            if (existing) {
+                slotWriter.writeSlots(state, changedSlots);
+            }
+            return result;
+        });
+        // save() zwraca kopię z nową wersją - stan w pamięci musi ją znać, inaczej następny zapis byłby konfliktem
+        if (saved != null && saved != state) {
+            state.setVersion(saved.getVersion());
+        }
+    }
+
+    /**
+     * Zapisuje stan z oczekującymi turami. Przy konflikcie (inny węzeł zapisał w międzyczasie tę rozmowę: nowsza
+     * wersja stanu albo zajęty numer tury) wczytuje stan z bazy, powtarza na nim oczekujące tury z nowymi numerami
+     * i próbuje ponownie. Wywołujący trzyma blokadę wpisu.
+     */
+    private void saveWithRetry(Entry entry) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                save(entry.state, entry.pendingTurns);
+                entry.pendingTurns.clear();
+                entry.dirty = false;
+                return;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt >= conflictRetries || !rebase(entry)) {
+                    throw e;
+                }
+                meterRegistry.counter("assistant.state.conflicts").increment();
+                log.info("Konflikt zapisu rozmowy {} - powtarzam {} tur na stanie z bazy (próba {})",
+                        entry.state.getConversationId(), entry.pendingTurns.size(), attempt + 1);
+            }
+        }
+    }
+
+    /** Zastępuje stan wpisu stanem z bazy z powtórzonymi oczekującymi turami. Wywołujący trzyma blokadę wpisu. */
+    private boolean rebase(Entry entry) {
+        BiConsumer<AssistantState, AssistantTurnLog.TurnRecord> replay = this.replay;
+        if (replay == null) {
+            return false;
+        }
+        AssistantState fresh = repository.findById(entry.state.getConversationId()).map(this::loadHistory).orElse(null);
+        if (fresh == null) {
+            return false;
+        }
+        List<AssistantTurnLog.TurnRecord> renumbered = new ArrayList<>();
+        for (AssistantTurnLog.TurnRecord turn : entry.pendingTurns) {
+            AssistantTurnLog.TurnRecord next = new AssistantTurnLog.TurnRecord(turn.conversationId(),
+                    fresh.getTurnCount() + 1, turn.userMessage(), turn.assistantMessage(), turn.extractedFields());
+            replay.accept(fresh, next);
+            renumbered.add(next);
+        }
+        entry.pendingTurns.clear();
+        entry.pendingTurns.addAll(renumbered);
+        entry.state = fresh;
+        return true;
+    }
+
+    /** Wywołujący trzyma blokadę wpisu. */
+    private boolean flush(Entry entry) {
+        if (!entry.dirty) {
+            return true;
+        }
+        try {
+            saveWithRetry(entry);
+            meterRegistry.counter("assistant.state.flushes", "outcome", "success").increment();
+            return true;
+        } catch (Exception e) {
+            meterRegistry.counter("assistant.state.flushes", "outcome", "failure").increment();
+            log.warn("Nie udało się zapisać stanu rozmowy {}: {}. Ponowię przy następnym zapisie.",
+                    entry.state.getConversationId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** Wywołujący trzyma blokadę wpisu. */
+    private void evict(Entry entry) {
+        entry.evicted = true;
+        entries.remove(entry.state.getConversationId(), entry);
+    }
+
+    private void evictOverLimit() {
+        int excess = entries.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        List<Entry> oldestFirst = new ArrayList<>(entries.values());
+        oldestFirst.sort(Comparator.comparingLong(entry -> entry.lastAccessMillis));
+        for (Entry entry : oldestFirst) {
+            if (excess <= 0) {
+                break;
+            }
+            entry.lock.lock();
+            try {
+                if (entry.inUse == 0 && flush(entry)) {
+                    evict(entry);
+                    excess--;
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stan jednej rozmowy w pamięci. Zmiany stanu i jego zapis odbywają się pod {@link #lock}.
+     */
+    static final class Entry {
+        final ReentrantLock lock = new ReentrantLock();
+        private volatile AssistantState state;
+        /** Tury jeszcze niezapisane w tabeli tur - dopisywane razem ze stanem przy zapisie. */
+        private final List<AssistantTurnLog.TurnRecord> pendingTurns = new ArrayList<>();
+        private volatile boolean dirty;
+        private boolean evicted;
+        private int inUse;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private Entry(AssistantState state) {
+            this.state = state;
+        }
+
+        AssistantState getState() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.zant.backend.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Lokalny dziennik tur czatu (jedna linia JSON na turę) - odtwarza stany rozmów, które nie zdążyły trafić
+ * do bazy przed awarią węzła. Dziennik jest dzielony na segmenty {@code turns-NNNNNN.log}: przy każdym zapisie
+ * do bazy {@link #roll()} zamyka bieżący segment, a po udanym zapisie wszystkich zmienionych stanów zamknięte
+ * segmenty są usuwane, więc dziennik zawiera tylko tury sprzed ostatniego zapisu.
+ */
+@Slf4j
+final class AssistantTurnLog implements Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("turns-(\\d+)\\.log");
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Gson gson = new Gson();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long segment;
+    private FileOutputStream out;
+    private BufferedWriter writer;
+    private boolean appendedSinceRoll;
+
+    AssistantTurnLog(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        this.segment = segments().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        open();
+    }
+
+    void append(TurnRecord record) throws IOException {
+        String line = gson.toJson(record);
+        lock.lock();
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+            if (fsync) {
+                out.getFD().sync();
+            }
+            appendedSinceRoll = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zaczyna nowy segment; pusty segment zostaje bieżącym.
+     *
+     * @return numer bieżącego segmentu - wszystkie wcześniejsze są zamknięte
+     */
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            if (!appendedSinceRoll) {
+                return segment;
+            }
+            appendedSinceRoll = false;
+            writer.close();
+            segment++;
+            open();
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa zamknięte segmenty o numerach z przedziału [{@code from}, {@code to}).
+     */
+    void deleteSegments(long from, long to) {
+        for (long number : segments()) {
+            if (number >= from && number < to) {
+                try {
+                    Files.deleteIfExists(segmentPath(number));
+                } catch (IOException e) {
+                    log.warn("Nie udało się usunąć segmentu dziennika tur {}: {}", number, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Wszystkie wpisy z segmentów wcześniejszych niż bieżący, w kolejności zapisu. Urwana ostatnia linia
+     * (awaria w trakcie zapisu) jest pomijana.
+     */
+    List<TurnRecord> readSealed() throws IOException {
+        List<TurnRecord> records = new ArrayList<>();
+        for (long number : segments()) {
+            if (number >= segment) {
+                continue;
+            }
+            for (String line : Files.readAllLines(segmentPath(number), StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    records.add(gson.fromJson(line, TurnRecord.class));
+                } catch (JsonParseException e) {
+                    log.warn("Pomijam uszkodzony wpis dziennika tur w segmencie {}", number);
+                }
+            }
+        }
+        return records;
+    }
+
+    long currentSegment() {
+        lock.lock();
+        try {
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        out = new FileOutputStream(segmentPath(segment).toFile(), true);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("turns-%06d.log", number));
+    }
+
+    private List<Long> segments() {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Nie udało się odczytać katalogu dziennika tur {}: {}", dir, e.getMessage());
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    /**
+     * Jedna tura: wiadomość użytkownika, odpowiedź asystenta i sloty wyciągnięte przez model - tyle wystarcza,
+     * żeby powtórzyć turę na stanie z bazy bez ponownego wołania modelu.
+     *
+     * @param turn numer tury w rozmowie ({@link com.zant.backend.model.AssistantState#getTurnCount()} po turze)
+     */
+    record TurnRecord(@SerializedName("c") String conversationId,
+                      @SerializedName("t") long turn,
+                      @SerializedName("u") String userMessage,
+                      @SerializedName("a") String assistantMessage,
+                      @SerializedName("f") Map<String, Object> extractedFields) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.zant.backend.service;
+
+import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.scoring.ScoringResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scoring zgłoszeń poza wątkiem żądania HTTP. Zgłoszenie jest zapisywane od razu ze statusem
+ * {@link #SCORING_PENDING}, a wynik trafia do bazy, gdy model skończy liczyć.
+ * Kolejka jest ograniczona - gdy jest pełna, scoring kończy się statusem {@link #SCORING_FAILED}
+ * zamiast blokować submit.
+ */
+@Slf4j
+@Service
+public class AsyncScoringService {
+
+    public static final String SCORING_PENDING = "SCORING_PENDING";
+    public static final String SCORED = "SCORED";
+    public static final String SCORING_FAILED = "SCORING_FAILED";
+
+    private final OnnxScoringService onnxScoringService;
+    private final EWYPReportRepository repository;
+
+    /** Liczba wątków scoringu; 0 = liczba dostępnych rdzeni. */
+    @Value("${scoring.async.threads:0}")
+    private int threads;
+
+    @Value("${scoring.async.queue.capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    public AsyncScoringService(OnnxScoringService onnxScoringService, EWYPReportRepository repository) {
+        this.onnxScoringService = onnxScoringService;
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Zwykłe wątki platformowe także na Javie 21 - pula i tak ogranicza równoległość do liczby workerów,
+        // a trzymanie wątków wirtualnych w stałej puli nic by nie dało
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "scoring-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Asynchroniczny scoring: {} wątków, kolejka {}", size, queueCapacity);
+    }
+
+    /**
+     * Kolejkuje scoring zgłoszenia. Zgłoszenie musi być już zapisane ze statusem {@link #SCORING_PENDING}.
+     *
+     * @param reportId ID zgłoszenia
+     * @param inputText Tekst z {@link OnnxScoringService#extractTextFromReport}
+     */
+    public void submit(UUID reportId, String inputText) {
+        try {
+            executor.execute(() -> score(reportId, inputText));
+        } catch (RejectedExecutionException e) {
+            log.warn("Kolejka scoringu pełna - zgłoszenie {} nie zostanie ocenione.", reportId);
+            repository.updateScoring(reportId, null, SCORING_FAILED, null, LocalDateTime.now());
+        }
+    }
+
+    private void score(UUID reportId, String inputText) {
+        // scoreText nie rzuca wyjątków - null oznacza, że scoring się nie udał
+        ScoringResult result = onnxScoringService.scoreText(inputText);
+        try {
+            int updated = result != null
+                    ? repository.updateScoring(reportId, result.getProbability(), SCORED, result.getModelVersion(), LocalDateTime.now())
+                    : repository.updateScoring(reportId, null, SCORING_FAILED, null, LocalDateTime.now());
+            if (updated == 0) {
+                log.warn("Zgłoszenie {} zostało usunięte przed zapisaniem wyniku scoringu.", reportId);
+            }
+        } catch (Exception e) {
+            log.error("Błąd zapisu wyniku scoringu zgłoszenia {}: {}", reportId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Scoring nie zakończył się w czasie zamykania aplikacji - zgłoszenia pozostaną w {}.", SCORING_PENDING);
+            executor.shutdownNow();
+        }
+    }
+}
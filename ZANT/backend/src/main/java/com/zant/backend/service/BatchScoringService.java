@@ -0,0 +1,270 @@
+package com.zant.backend.service;
+
+import com.zant.backend.dto.ewyp.ReportScoringTextDTO;
+import com.zant.backend.model.ScoringJobCheckpoint;
+import com.zant.backend.model.ewyp.WitnessInfo;
+import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.repository.ScoringJobCheckpointRepository;
+import com.zant.backend.scoring.ScoringResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ponowny scoring wszystkich wysłanych zgłoszeń, np. po wdrożeniu nowego modelu.
+ *
+ * <p>Zgłoszenia są czytane stronami po kluczu (id), każda strona jest oceniana jednym wywołaniem modelu,
+ * a wyniki zapisywane batchowym UPDATE przez JDBC. Punkt kontrolny jest zapisywany w tej samej transakcji
+ * co wyniki, więc przerwane zadanie można wznowić od ostatniej zapisanej strony.
+ */
+@Slf4j
+@Service
+public class BatchScoringService {
+
+    static final String JOB_NAME = "rescore-submitted";
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String STOPPED = "STOPPED";
+    public static final String FAILED = "FAILED";
+
+    private static final String UPDATE_SQL =
+            "UPDATE ewyp_reports SET scoring_classification = ?, scoring_status = ?, scoring_model_version = ?, updated_at = ? "
+            + "WHERE id = ?";
+
+    private final EWYPReportRepository reportRepository;
+    private final ScoringJobCheckpointRepository checkpointRepository;
+    private final OnnxScoringService onnxScoringService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    /** Liczba zgłoszeń w jednej stronie = w jednym wywołaniu modelu. */
+    @Value("${scoring.rescore.batch.size:200}")
+    private int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rescore-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private boolean running = false;
+    private volatile boolean stopRequested = false;
+
+    // Postęp bieżącego uruchomienia (przepustowość liczona od startu/wznowienia)
+    private volatile long runProcessed = 0;
+    private volatile long runStartedNanos = 0;
+    private volatile long runFinishedNanos = 0;
+    private volatile long total = 0;
+
+    public BatchScoringService(EWYPReportRepository reportRepository,
+                               ScoringJobCheckpointRepository checkpointRepository,
+                               OnnxScoringService onnxScoringService,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.reportRepository = reportRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.onnxScoringService = onnxScoringService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Uruchamia zadanie w tle.
+     *
+     * @param fromScratch true - zacznij od pierwszego zgłoszenia; false - wznów od punktu kontrolnego
+     * @return false jeśli zadanie już działa
+     */
+    public synchronized boolean start(boolean fromScratch) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        stopRequested = false;
+        executor.execute(() -> {
+            try {
+                run(fromScratch);
+            } finally {
+                synchronized (this) {
+                    running = false;
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Zatrzymuje zadanie po zakończeniu bieżącej strony - punkt kontrolny pozwala je potem wznowić.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    private void run(boolean fromScratch) {
+        ScoringJobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElse(null);
+        if (checkpoint == null || fromScratch || COMPLETED.equals(checkpoint.getStatus())) {
+            checkpoint = new ScoringJobCheckpoint();
+            checkpoint.setJobName(JOB_NAME);
+            checkpoint.setStartedAt(LocalDateTime.now());
+        }
+        checkpoint.setStatus(RUNNING);
+        checkpoint.setBackend(onnxScoringService.getActiveBackend());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoint = checkpointRepository.save(checkpoint);
+
+        total = reportRepository.countByStatus("SUBMITTED");
+        runProcessed = 0;
+        runStartedNanos = System.nanoTime();
+        runFinishedNanos = 0;
+        log.info("Start ponownego scoringu: {} zgłoszeń, wznowienie od {}, backend {}",
+                total, checkpoint.getLastReportId(), checkpoint.getBackend());
+
+        try {
+            while (!stopRequested) {
+                UUID lastId = checkpoint.getLastReportId();
+                Page page = readPage(lastId);
+                if (page.ids.isEmpty()) {
+                    finish(checkpoint, COMPLETED);
+                    log.info("Ponowny scoring zakończony: {} zgłoszeń, {} zgł./s",
+                            checkpoint.getProcessed(), String.format("%.1f", reportsPerSecond()));
+                    return;
+                }
+
+                List<ScoringResult> scores = onnxScoringService.scoreTexts(page.texts);
+                if (scores == null || scores.size() != page.ids.size()) {
+                    log.error("Scoring paczki po {} nie powiódł się - zadanie przerwane, można je wznowić.", lastId);
+                    finish(checkpoint, FAILED);
+                    return;
+                }
+
+                checkpoint = writeBatch(checkpoint, page.ids, scores);
+                runProcessed += page.ids.size();
+                log.debug("Ponowny scoring: {}/{} ({} zgł./s)", checkpoint.getProcessed(), total,
+                        String.format("%.1f", reportsPerSecond()));
+            }
+            finish(checkpoint, STOPPED);
+            log.info("Ponowny scoring zatrzymany po {} zgłoszeniach.", checkpoint.getProcessed());
+        } catch (Exception e) {
+            log.error("Błąd zadania ponownego scoringu: {}", e.getMessage(), e);
+            finish(checkpoint, FAILED);
+        }
+    }
+
+    /**
+     * Czyta stronę zgłoszeń i od razu buduje teksty do scoringu. Czytane są tylko pola tekstowe
+     * (projekcja bez załączników LOB), świadkowie całej strony - jednym dodatkowym zapytaniem.
+     */
+    private Page readPage(UUID lastId) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            PageRequest pageRequest = PageRequest.of(0, batchSize);
+            List<ReportScoringTextDTO> reports = lastId == null
+                    ? reportRepository.findScoringTextsByStatus("SUBMITTED", pageRequest)
+                    : reportRepository.findScoringTextsByStatusAfter("SUBMITTED", lastId, pageRequest);
+
+            Page page = new Page(new ArrayList<>(reports.size()), new ArrayList<>(reports.size()));
+            if (reports.isEmpty()) {
+                return page;
+            }
+            Map<UUID, ReportScoringTextDTO> byId = new HashMap<>();
+            for (ReportScoringTextDTO report : reports) {
+                byId.put(report.getId(), report);
+            }
+            for (Object[] row : reportRepository.findWitnessesByReportIds(new ArrayList<>(byId.keySet()))) {
+                byId.get((UUID) row[0]).getWitnesses().add((WitnessInfo) row[1]);
+            }
+            for (ReportScoringTextDTO report : reports) {
+                page.ids.add(report.getId());
+                page.texts.add(onnxScoringService.extractTextFromReport(report));
+            }
+            return page;
+        });
+    }
+
+    private ScoringJobCheckpoint writeBatch(ScoringJobCheckpoint checkpoint, List<UUID> ids, List<ScoringResult> scores) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            ScoringResult score = scores.get(i);
+            rows.add(new Object[]{score.getProbability(), AsyncScoringService.SCORED, score.getModelVersion(), now, ids.get(i)});
+        }
+
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+            checkpoint.setLastReportId(ids.get(ids.size() - 1));
+            checkpoint.setProcessed(checkpoint.getProcessed() + ids.size());
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            return checkpointRepository.save(checkpoint);
+        });
+    }
+
+    private void finish(ScoringJobCheckpoint checkpoint, String status) {
+        runFinishedNanos = System.nanoTime();
+        checkpoint.setStatus(status);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private double reportsPerSecond() {
+        long end = runFinishedNanos != 0 ? runFinishedNanos : System.nanoTime();
+        double seconds = (end - runStartedNanos) / 1_000_000_000.0;
+        return seconds > 0 ? runProcessed / seconds : 0.0;
+    }
+
+    public RescoreProgress getProgress() {
+        ScoringJobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElse(null);
+        if (checkpoint == null) {
+            return new RescoreProgress(null, null, 0, total, null, 0.0, null, null);
+        }
+        return new RescoreProgress(checkpoint.getStatus(), checkpoint.getBackend(), checkpoint.getProcessed(), total,
+                checkpoint.getLastReportId(), reportsPerSecond(),
+                checkpoint.getStartedAt(), checkpoint.getUpdatedAt());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        executor.shutdown();
+    }
+
+    private record Page(List<UUID> ids, List<String> texts) {
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RescoreProgress {
+        private String status;
+        private String backend;
+        private long processed;
+        private long total;
+        private UUID lastReportId;
+        private double reportsPerSecond;
+        private LocalDateTime startedAt;
+        private LocalDateTime updatedAt;
+    }
+}
@@ -26,10 +26,11 @@ public class EWYPDocumentService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final String FONT_RESOURCE_PATH = "fonts/DejaVuSans.ttf";
-    private final PdfFont pdfFont;
+    // PdfFont is bound to a single PdfDocument - keep the parsed font program and create the PdfFont per document
+    private final FontProgram fontProgram;
 
     public EWYPDocumentService() {
-        this.pdfFont = loadFont();
+        this.fontProgram = loadFont();
     }
 
     /**
@@ -234,7 +235,7 @@ public class EWYPDocumentService {
             PdfWriter writer = new PdfWriter(out);
             PdfDocument pdf = new PdfDocument(writer);
             Document document = new Document(pdf);
-            document.setFont(pdfFont);
+            document.setFont(createPdfFont());
 
             // Title
             Paragraph title = new Paragraph("EWYP")
@@ -440,24 +441,27 @@ public class EWYPDocumentService {
     }
 
     // Utility methods
-    private PdfFont loadFont() {
+    private FontProgram loadFont() {
         try {
             ClassPathResource fontResource = new ClassPathResource(FONT_RESOURCE_PATH);
             byte[] fontBytes;
             try (InputStream inputStream = fontResource.getInputStream()) {
                 fontBytes = inputStream.readAllBytes();
             }
-            FontProgram fontProgram = FontProgramFactory.createFont(fontBytes);
-            return PdfFontFactory.createFont(
-                fontProgram,
-                PdfEncodings.IDENTITY_H,
-                PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED
-            );
+            return FontProgramFactory.createFont(fontBytes);
         } catch (IOException e) {
             throw new IllegalStateException("Unable to load PDF font for Polish characters", e);
         }
     }
 
+    private PdfFont createPdfFont() {
+        return PdfFontFactory.createFont(
+            fontProgram,
+            PdfEncodings.IDENTITY_H,
+            PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED
+        );
+    }
+
     private String formatDate(String date) {
         if (date == null || date.isEmpty()) {
             return "";
@@ -1,25 +1,54 @@
 package com.zant.backend.service;
 
+import com.zant.backend.dto.ewyp.ReportScoringTextDTO;
 import com.zant.backend.model.ewyp.*;
+import com.zant.backend.scoring.OnnxRuntimeScoringModel;
+import com.zant.backend.scoring.PredictorWorkerPool;
+import com.zant.backend.scoring.ScoringCache;
+import com.zant.backend.scoring.ScoringModel;
+import com.zant.backend.scoring.ScoringModelHolder;
+import com.zant.backend.scoring.ScoringResult;
+import com.zant.backend.scoring.TfidfLogisticRegressionModel;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.io.BufferedReader;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 public class OnnxScoringService {
     
+    /** Backend scoringu: {@code java} (model w JVM), {@code onnx} (ONNX Runtime) albo {@code python} (pula workerów predictor.py). */
+    @Value("${scoring.backend:java}")
+    private String scoringBackend;
+    
+    /** Backend używany, gdy podstawowy nie wystartuje. */
+    @Value("${scoring.fallback.backend:python}")
+    private String fallbackBackend;
+    
+    @Value("${scoring.java.model.path:MODELS/wniosek_model.bin}")
+    private String javaModelPath;
+    
+    @Value("${scoring.onnx.model.path:MODELS/wniosek_model.onnx}")
+    private String onnxModelPath;
+    
+    /** Liczba wątków intra-op sesji ONNX; 0 = domyślna ONNX Runtime. */
+    @Value("${scoring.onnx.intra.op.threads:1}")
+    private int onnxIntraOpThreads;
+    
     @Value("${python.predictor.script:Python/predictor.py}")
     private String predictorScript;
     
@@ -29,10 +58,291 @@ public class OnnxScoringService {
     @Value("${python.executable:python3}")
     private String pythonExecutable;
     
-    private boolean pythonAvailable = false;
+    /** Liczba workerów predyktora; 0 = liczba dostępnych rdzeni. */
+    @Value("${python.worker.pool.size:0}")
+    private int workerPoolSize;
+    
+    @Value("${python.worker.acquire.timeout.ms:5000}")
+    private long workerAcquireTimeoutMs;
+    
+    @Value("${python.worker.request.timeout.ms:30000}")
+    private long workerRequestTimeoutMs;
+    
+    /** Maksymalna liczba wyników w cache; 0 wyłącza cache. */
+    @Value("${scoring.cache.max.size:10000}")
+    private long cacheMaxSize;
+    
+    @Value("${scoring.cache.ttl.minutes:60}")
+    private long cacheTtlMinutes;
+    
+    /** Sprawdzanie, czy plik aktywnego modelu się zmienił - jeśli tak, model jest przeładowywany w tle. */
+    @Value("${scoring.reload.watch.enabled:true}")
+    private boolean reloadWatchEnabled;
+    
+    /** Ile razy przepuścić przykładowe teksty przez nowy model przed podmianą. */
+    @Value("${scoring.warmup.iterations:3}")
+    private int warmupIterations;
+    
+    /** Maksymalny czas oczekiwania na gotowość nowego modelu (np. start workerów Pythona). */
+    @Value("${scoring.warmup.timeout.ms:60000}")
+    private long warmupTimeoutMs;
+    
+    /** Wirtualne wątki dla startu workerów Pythona (Java 21+, razem z wątkami Tomcata). */
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private static final List<String> WARMUP_TEXTS = List.of(
+            "Okoliczności i przyczyny wypadku: Podczas pracy na rusztowaniu pracownik stracił równowagę i spadł z wysokości.",
+            "Opis obrażeń: Złamanie kości piszczelowej prawej nogi, stłuczenie barku.",
+            "Miejsce wypadku: hala produkcyjna, obsługa maszyny do cięcia blachy.");
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final ScoringModelHolder modelHolder = new ScoringModelHolder();
+    
+    private ScoringCache scoringCache;
+    
+    /**
+     * Chroni przełączanie modelu. Wczytanie i rozgrzanie trwa do {@code scoring.warmup.timeout.ms} (start workerów
+     * Pythona) - zwykły lock zamiast {@code synchronized}, bo czekający na monitor wątek wirtualny blokowałby
+     * wątek nośny przez cały ten czas.
+     */
+    private final ReentrantLock switchLock = new ReentrantLock();
+    
+    private volatile String activeBackend;
+    
+    /** Rozmiar i data modyfikacji pliku aktywnego modelu w chwili wczytania. */
+    private volatile FileStamp loadedModelStamp;
+    
+    public OnnxScoringService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
     
     @PostConstruct
     public void init() {
+        scoringCache = new ScoringCache(cacheMaxSize, Duration.ofMinutes(cacheTtlMinutes));
+        scoringCache.bindTo(meterRegistry);
+        
+        // Start aplikacji nie czeka na workery Pythona ani na rozgrzanie - model jest podstawiany od razu,
+        // a pierwsze żądania najwyżej poczekają w kolejce puli. Rozgrzewanie idzie w tle.
+        String started = null;
+        if (activate(scoringBackend, false)) {
+            started = scoringBackend;
+        } else if (hasFallbackFor(scoringBackend)) {
+            log.warn("Backend scoringu '{}' niedostępny - próbuję backendu '{}'.", scoringBackend, fallbackBackend);
+            if (activate(fallbackBackend, false)) {
+                started = fallbackBackend;
+            }
+        }
+        if (started == null) {
+            log.warn("Żaden backend scoringu nie jest dostępny. Scoring będzie niedostępny.");
+            return;
+        }
+        String startedBackend = started;
+        Thread warmupThread = new Thread(() -> warmUpStartupModel(startedBackend), "scoring-warmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+    }
+    
+    /**
+     * Rozgrzewa model podstawiony przy starcie. Jeśli nie wystartuje (np. workery Pythona nie zgłosiły gotowości),
+     * przełącza na backend zapasowy - już z blokującym rozgrzaniem, jak przy ręcznym przełączeniu.
+     */
+    private void warmUpStartupModel(String backend) {
+        ScoringModel model = modelHolder.peek();
+        if (model == null) {
+            return;
+        }
+        Boolean ready = modelHolder.withModel(current -> current == model ? warmUp(current) : Boolean.TRUE);
+        if (ready == null || ready) {
+            // null/TRUE: model rozgrzany albo w międzyczasie podmieniony przez /reload
+            return;
+        }
+        if (hasFallbackFor(backend)) {
+            log.warn("Backend scoringu '{}' nie wystartował - przełączam na '{}'.", backend, fallbackBackend);
+            if (switchBackend(fallbackBackend)) {
+                return;
+            }
+        }
+        log.warn("Model {} nie został rozgrzany - pierwsze wywołania scoringu mogą być wolne lub kończyć się błędem.",
+                model.getVersionTag());
+    }
+    
+    private boolean hasFallbackFor(String backend) {
+        return fallbackBackend != null && !fallbackBackend.isBlank() && !fallbackBackend.equalsIgnoreCase(backend);
+    }
+    
+    /**
+     * Przełącza backend scoringu w trakcie działania aplikacji. Nowy model jest wczytywany i rozgrzewany obok starego,
+     * a trwające wywołania kończą się na poprzednim modelu.
+     *
+     * @return true jeśli nowy backend wystartował i został ustawiony
+     */
+    public boolean switchBackend(String backend) {
+        return activate(backend, true);
+    }
+    
+    /**
+     * @param warm czy przed podmianą czekać na gotowość i rozgrzać model (przy starcie aplikacji - nie)
+     */
+    private boolean activate(String backend, boolean warm) {
+        switchLock.lock();
+        try {
+            // Stan pliku sprzed wczytania - zmiana w trakcie wczytywania wywoła kolejne przeładowanie
+            FileStamp stamp = FileStamp.of(modelPathFor(backend));
+            ScoringModel newModel = createModel(backend);
+            if (newModel == null) {
+                return false;
+            }
+            if (warm && !warmUp(newModel)) {
+                newModel.close();
+                return false;
+            }
+            modelHolder.swap(newModel);
+            activeBackend = newModel.getName();
+            loadedModelStamp = stamp;
+            // Wpisy starego modelu i tak nie byłyby już trafiane (wersja jest w kluczu) - zwolnij pamięć od razu
+            scoringCache.invalidateAll();
+            log.info("Aktywny backend scoringu: {} (wersja modelu {})", activeBackend, newModel.getVersion());
+            return true;
+        } finally {
+            switchLock.unlock();
+        }
+    }
+    
+    /**
+     * Wczytuje ponownie model aktywnego backendu (np. po wdrożeniu nowego pliku modelu).
+     *
+     * @return true jeśli nowy model został wczytany, rozgrzany i podmieniony
+     */
+    public boolean reloadModel() {
+        switchLock.lock();
+        try {
+            if (activeBackend == null) {
+                return false;
+            }
+            log.info("Przeładowuję model backendu {}", activeBackend);
+            return switchBackend(activeBackend);
+        } finally {
+            switchLock.unlock();
+        }
+    }
+    
+    /**
+     * Co {@code scoring.reload.check.interval.ms} sprawdza, czy plik aktywnego modelu się zmienił.
+     * Nowy plik najlepiej podmieniać atomowo (zapis do pliku tymczasowego + {@code mv}).
+     */
+    @Scheduled(fixedDelayString = "${scoring.reload.check.interval.ms:30000}",
+            initialDelayString = "${scoring.reload.check.interval.ms:30000}")
+    public void checkModelFile() {
+        String backend = activeBackend;
+        if (!reloadWatchEnabled || backend == null) {
+            return;
+        }
+        FileStamp current = FileStamp.of(modelPathFor(backend));
+        if (current == null || current.equals(loadedModelStamp)) {
+            return;
+        }
+        log.info("Plik modelu {} zmienił się - przeładowuję model w tle.", modelPathFor(backend));
+        if (!reloadModel()) {
+            // Nie próbuj co chwilę wczytywać tego samego uszkodzonego pliku - czekaj na kolejną zmianę
+            loadedModelStamp = current;
+            log.warn("Nie udało się przeładować modelu - zostaje poprzednia wersja.");
+        }
+    }
+    
+    private boolean warmUp(ScoringModel model) {
+        long start = System.nanoTime();
+        try {
+            if (!model.awaitReady(warmupTimeoutMs)) {
+                log.warn("Model {} nie był gotowy po {} ms.", model.getVersionTag(), warmupTimeoutMs);
+                return false;
+            }
+            for (int i = 0; i < warmupIterations; i++) {
+                model.predict(WARMUP_TEXTS);
+            }
+            log.info("Rozgrzano model {} w {} ms", model.getVersionTag(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("Rozgrzewanie modelu {} nie powiodło się: {}", model.getVersionTag(), e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    public String getActiveBackend() {
+        return activeBackend;
+    }
+    
+    /**
+     * @return znacznik aktywnego modelu, np. {@code "onnx:3fa2c1d9e0ab"}, albo null gdy scoring niedostępny
+     */
+    public String getActiveModelVersion() {
+        ScoringModel model = modelHolder.peek();
+        return model == null ? null : model.getVersionTag();
+    }
+    
+    private String modelPathFor(String backend) {
+        if (backend == null) {
+            return null;
+        }
+        switch (backend.toLowerCase()) {
+            case "java": return javaModelPath;
+            case "onnx": return onnxModelPath;
+            case "python": return modelPath;
+            default: return null;
+        }
+    }
+    
+    private ScoringModel createModel(String backend) {
+        if (backend == null) {
+            return null;
+        }
+        switch (backend.toLowerCase()) {
+            case "java": return initJavaModel();
+            case "onnx": return initOnnxModel();
+            case "python": return initPythonModel();
+            default:
+                log.warn("Nieznany backend scoringu: {}", backend);
+                return null;
+        }
+    }
+    
+    private ScoringModel initOnnxModel() {
+        Path path = Paths.get(onnxModelPath);
+        if (!Files.exists(path)) {
+            log.warn("Model ONNX nie został znaleziony w: {}. Wyeksportuj go skryptem Python/export_onnx.py.", onnxModelPath);
+            return null;
+        }
+        try {
+            ScoringModel onnxModel = OnnxRuntimeScoringModel.load(path, onnxIntraOpThreads);
+            log.info("Scoring ONNX zainicjalizowany pomyślnie. Model: {}", onnxModelPath);
+            return onnxModel;
+        } catch (Exception | UnsatisfiedLinkError e) {
+            log.error("Błąd podczas wczytywania modelu ONNX {}: {}", onnxModelPath, e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    private ScoringModel initJavaModel() {
+        Path path = Paths.get(javaModelPath);
+        if (!Files.exists(path)) {
+            log.warn("Model dla scoringu w Javie nie został znaleziony w: {}. Wyeksportuj go skryptem Python/export_model.py.", javaModelPath);
+            return null;
+        }
+        try {
+            ScoringModel javaModel = TfidfLogisticRegressionModel.load(path);
+            log.info("Scoring w Javie zainicjalizowany pomyślnie. Model: {}", javaModelPath);
+            return javaModel;
+        } catch (IOException e) {
+            log.error("Błąd podczas wczytywania modelu {}: {}", javaModelPath, e.getMessage(), e);
+            return null;
+        }
+    }
+    
+    private ScoringModel initPythonModel() {
         try {
             // Sprawdź czy Python jest dostępny
             ProcessBuilder pb = new ProcessBuilder(pythonExecutable, "--version");
@@ -41,27 +351,32 @@ public class OnnxScoringService {
             
             if (exitCode != 0) {
                 log.warn("Python nie jest dostępny. Scoring będzie niedostępny.");
-                return;
+                return null;
             }
             
             // Sprawdź czy skrypt predykcji istnieje
             File scriptFile = new File(predictorScript);
             if (!scriptFile.exists()) {
                 log.warn("Skrypt predykcji nie został znaleziony w: {}. Scoring będzie niedostępny.", predictorScript);
-                return;
+                return null;
             }
             
             // Sprawdź czy model istnieje
             File modelFile = new File(modelPath);
             if (!modelFile.exists()) {
                 log.warn("Model nie został znaleziony w: {}. Scoring będzie niedostępny.", modelPath);
-                return;
+                return null;
             }
             
-            pythonAvailable = true;
+            PredictorWorkerPool workerPool = new PredictorWorkerPool(pythonExecutable, predictorScript, modelPath,
+                    workerPoolSize, workerAcquireTimeoutMs, workerRequestTimeoutMs, virtualThreads);
+            workerPool.start();
+            
             log.info("Python scoring service zainicjalizowany pomyślnie. Skrypt: {}, Model: {}", predictorScript, modelPath);
+            return workerPool;
         } catch (Exception e) {
             log.error("Błąd podczas inicjalizacji Python scoring service: {}", e.getMessage(), e);
+            return null;
         }
     }
     
@@ -69,32 +384,40 @@ public class OnnxScoringService {
      * Wykonuje scoring dla zgłoszenia EWYP.
      * 
      * @param report Zgłoszenie EWYP do analizy
-     * @return Prawdopodobieństwo, że to wypadek przy pracy (0.0-1.0) lub null jeśli Python niedostępny
+     * @return Prawdopodobieństwo, że to wypadek przy pracy (0.0-1.0) lub null jeśli scoring niedostępny
      */
     public Double scoreReport(EWYPReport report) {
-        if (!pythonAvailable) {
-            log.warn("Python scoring nie jest dostępny. Pomiń scoring.");
+        // Przygotuj tekst wejściowy z danych zgłoszenia
+        ScoringResult result = scoreText(extractTextFromReport(report));
+        return result == null ? null : result.getProbability();
+    }
+    
+    /**
+     * Wykonuje scoring dla tekstu przygotowanego wcześniej przez {@link #extractTextFromReport(EWYPReport)}.
+     * Nie dotyka encji, więc może być wołana z wątku spoza żądania HTTP.
+     * 
+     * @return Prawdopodobieństwo (0.0-1.0) z wersją modelu lub null jeśli scoring niedostępny
+     */
+    public ScoringResult scoreText(String inputText) {
+        if (modelHolder.peek() == null) {
+            log.warn("Scoring nie jest dostępny. Pomiń scoring.");
             return null;
         }
         
         try {
-            // Przygotuj tekst wejściowy z danych zgłoszenia
-            String inputText = extractTextFromReport(report);
-            
-            // Zapisz tekst do tymczasowego pliku
-            Path tempFile = Files.createTempFile("ewyp_report_", ".txt");
-            try {
-                Files.writeString(tempFile, inputText);
-                
-                // Wywołaj skrypt Python
-                Double result = callPythonPredictor(tempFile.toString());
-                
-                return result;
-            } finally {
-                // Usuń tymczasowy plik
-                Files.deleteIfExists(tempFile);
-            }
-            
+            String textHash = ScoringCache.hash(inputText);
+            return modelHolder.withModel(model -> {
+                String cacheKey = ScoringCache.key(textHash, model);
+                Double cached = scoringCache.get(cacheKey);
+                if (cached != null) {
+                    log.debug("Wynik scoringu z cache ({}): {}", model.getVersionTag(), cached);
+                    return new ScoringResult(cached, model.getVersionTag());
+                }
+                Double result = model.predict(List.of(inputText)).get(0);
+                scoringCache.put(cacheKey, result);
+                log.info("Wynik scoringu ({}): {}", model.getVersionTag(), result);
+                return new ScoringResult(result, model.getVersionTag());
+            });
         } catch (Exception e) {
             log.error("Błąd podczas scoringu zgłoszenia: {}", e.getMessage(), e);
             return null;
@@ -102,69 +425,48 @@ public class OnnxScoringService {
     }
     
     /**
-     * Wywołuje skrypt Python predictor.py i zwraca wynik predykcji.
+     * Scoring wielu tekstów jednym wywołaniem modelu (zadanie ponownego scoringu).
+     * 
+     * @return Wyniki w kolejności tekstów lub null jeśli scoring niedostępny albo się nie udał
      */
-    private Double callPythonPredictor(String textFilePath) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder(
-            pythonExecutable,
-            predictorScript,
-            "--model-path", modelPath,
-            "--text-file", textFilePath
-        );
-        
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
-        
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                log.debug("Python output: {}", line);
-            }
+    public List<ScoringResult> scoreTexts(List<String> inputTexts) {
+        if (modelHolder.peek() == null) {
+            log.warn("Scoring nie jest dostępny. Pomiń scoring.");
+            return null;
         }
         
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            log.error("Python predictor zakończył się błędem (exit code: {}). Output: {}", exitCode, output);
+        try {
+            return modelHolder.withModel(model -> model.predict(inputTexts).stream()
+                    .map(probability -> new ScoringResult(probability, model.getVersionTag()))
+                    .toList());
+        } catch (Exception e) {
+            log.error("Błąd podczas scoringu paczki {} zgłoszeń: {}", inputTexts.size(), e.getMessage(), e);
             return null;
         }
-        
-        // Parsuj output - szukamy linii z procentem pewności
-        return parseOutputForResult(output.toString());
     }
     
     /**
-     * Parsuje output ze skryptu Python i wyciąga wynik predykcji.
-     * Szuka linii typu: "AI jest w 87.5% pewien, że to był wypadek przy pracy!"
-     * @return Prawdopodobieństwo jako liczba zmiennoprzecinkowa 0.0-1.0 (np. 0.875 dla 87.5%)
+     * Ekstraktuje tekst z zgłoszenia EWYP do analizy.
+     * Wymaga wczytanych świadków - przy scoringu asynchronicznym wołana jeszcze w wątku żądania.
      */
-    private Double parseOutputForResult(String output) {
-        Pattern pattern = Pattern.compile("AI jest w (\\d+\\.\\d+)% pewien, że to był wypadek przy pracy");
-        Matcher matcher = pattern.matcher(output);
-        
-        if (matcher.find()) {
-            String percentStr = matcher.group(1);
-            double percent = Double.parseDouble(percentStr);
-            // Konwertuj procenty na wartość 0-1 (np. 54.3% -> 0.543)
-            double probability = percent / 100.0;
-            log.info("Wynik scoringu: {} ({}%)", probability, percentStr);
-            return probability;
-        }
-        
-        log.warn("Nie udało się sparsować wyniku z Pythona. Output: {}", output);
-        return null;
+    public String extractTextFromReport(EWYPReport report) {
+        return extractText(report.getInjuredPerson(), report.getReporter(), report.getAccidentInfo(), report.getWitnesses());
     }
     
     /**
-     * Ekstraktuje tekst z zgłoszenia EWYP do analizy.
+     * Ten sam tekst co {@link #extractTextFromReport(EWYPReport)}, z projekcji bez załączników (ponowny scoring).
      */
-    private String extractTextFromReport(EWYPReport report) {
+    public String extractTextFromReport(ReportScoringTextDTO report) {
+        return extractText(report.getInjuredPerson(), report.getReporter(), report.getAccidentInfo(), report.getWitnesses());
+    }
+    
+    private String extractText(InjuredPerson injuredPerson, Reporter reporter, AccidentInfo accidentInfo,
+                               List<WitnessInfo> witnesses) {
         StringBuilder sb = new StringBuilder();
         
         // Informacje o poszkodowanym
-        if (report.getInjuredPerson() != null) {
-            InjuredPerson ip = report.getInjuredPerson();
+        if (injuredPerson != null) {
+            InjuredPerson ip = injuredPerson;
             sb.append("=== POSZKODOWANY ===\n");
             appendIfNotNull(sb, "Imię i nazwisko", ip.getFirstName(), ip.getLastName());
             appendIfNotNull(sb, "Data urodzenia", ip.getBirthDate());
@@ -183,16 +485,16 @@ public class OnnxScoringService {
         }
         
         // Informacje o zgłaszającym (jeśli inny niż poszkodowany)
-        if (report.getReporter() != null && Boolean.TRUE.equals(report.getReporter().getIsDifferentFromInjuredPerson())) {
-            Reporter r = report.getReporter();
+        if (reporter != null && Boolean.TRUE.equals(reporter.getIsDifferentFromInjuredPerson())) {
+            Reporter r = reporter;
             sb.append("\n=== ZGŁASZAJĄCY ===\n");
             appendIfNotNull(sb, "Imię i nazwisko", r.getFirstName(), r.getLastName());
             appendIfNotNull(sb, "Data urodzenia", r.getBirthDate());
         }
         
         // Informacje o wypadku - najważniejsze dla scoringu!
-        if (report.getAccidentInfo() != null) {
-            AccidentInfo ai = report.getAccidentInfo();
+        if (accidentInfo != null) {
+            AccidentInfo ai = accidentInfo;
             sb.append("\n=== SZCZEGÓŁY WYPADKU ===\n");
             appendIfNotNull(sb, "Data wypadku", ai.getAccidentDate());
             appendIfNotNull(sb, "Godzina wypadku", ai.getAccidentTime());
@@ -222,10 +524,10 @@ public class OnnxScoringService {
         }
         
         // Świadkowie
-        if (report.getWitnesses() != null && !report.getWitnesses().isEmpty()) {
+        if (witnesses != null && !witnesses.isEmpty()) {
             sb.append("\n=== ŚWIADKOWIE ===\n");
-            for (int i = 0; i < report.getWitnesses().size(); i++) {
-                WitnessInfo w = report.getWitnesses().get(i);
+            for (int i = 0; i < witnesses.size(); i++) {
+                WitnessInfo w = witnesses.get(i);
                 sb.append("Świadek ").append(i + 1).append(": ");
                 appendIfNotNull(sb, "Imię i nazwisko", w.getFirstName(), w.getLastName());
                 appendIfNotNull(sb, "Adres", w.getStreet(), w.getHouseNumber(), w.getCity());
@@ -297,7 +599,30 @@ public class OnnxScoringService {
         }
     }
     
+    /**
+     * Rozmiar i czas modyfikacji pliku - tani sposób wykrycia podmiany modelu bez liczenia skrótu.
+     */
+    private record FileStamp(long size, long lastModifiedMillis) {
+        
+        static FileStamp of(String path) {
+            if (path == null) {
+                return null;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+                return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        modelHolder.close();
+    }
+    
     public boolean isModelLoaded() {
-        return pythonAvailable;
+        return modelHolder.peek() != null;
     }
 }
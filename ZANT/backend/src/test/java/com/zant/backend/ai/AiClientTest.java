@@ -0,0 +1,393 @@
+package com.zant.backend.ai;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.zant.backend.ai.AiClient.CircumstancesAssistantResponse;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.service.MissingFieldsCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * AiClient against a mocked {@link OkHttpClient}: every enqueued call waits in {@link #calls}
+ * until the test answers it.
+ */
+class AiClientTest {
+
+    private static final String PLLUM_URL = "http://pllum.test/v1";
+    private static final String GEMINI_URL = "http://gemini.test/v1beta/models";
+
+    private final OkHttpClient httpClient = mock(OkHttpClient.class);
+    private final CircumstancesResponseCache cache = mock(CircumstancesResponseCache.class);
+    private final BlockingQueue<PendingCall> calls = new LinkedBlockingQueue<>();
+    /** Runs on the calling thread before each upstream call is created. */
+    private volatile Consumer<Request> beforeNewCall = request -> { };
+    private AiClient client;
+
+    @BeforeEach
+    void setUp() {
+        when(cache.get(any())).thenReturn(Optional.empty());
+        when(httpClient.newCall(any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            beforeNewCall.accept(request);
+            Call call = mock(Call.class);
+            when(call.request()).thenReturn(request);
+            doAnswer(enqueue -> {
+                calls.add(new PendingCall(request, call, enqueue.getArgument(0)));
+                return null;
+            }).when(call).enqueue(any());
+            return call;
+        });
+
+        client = new AiClient(httpClient, cache, new SimpleMeterRegistry(), 100);
+        // @Value defaults from AiClient / application.properties
+        Map<String, Object> values = Map.ofEntries(
+                Map.entry("aiProvider", "pllum"),
+                Map.entry("pllumApiKey", "pllum-key"),
+                Map.entry("pllumModel", "pllum"),
+                Map.entry("pllumApiUrl", PLLUM_URL),
+                Map.entry("pllumTemperature", 0.7),
+                Map.entry("pllumMaxTokens", 2048),
+                Map.entry("geminiApiKey", "gemini-key"),
+                Map.entry("geminiModel", "gemini"),
+                Map.entry("geminiApiUrl", GEMINI_URL),
+                Map.entry("geminiTemperature", 0.7),
+                Map.entry("geminiMaxTokens", 2048),
+                Map.entry("routingEnabled", true),
+                Map.entry("hedgeEnabled", true),
+                Map.entry("hedgePercentile", 0.95),
+                Map.entry("hedgeInitialDelayMs", 60_000L),
+                Map.entry("hedgeMinDelayMs", 1_000L),
+                Map.entry("hedgeMaxDelayMs", 30_000L),
+                Map.entry("failoverErrorRate", 0.5),
+                Map.entry("failoverMinSamples", 10),
+                Map.entry("failoverCooldownMs", 60_000L),
+                Map.entry("circuitFailureThreshold", 5),
+                Map.entry("circuitOpenDurationMs", 30_000L),
+                Map.entry("bulkheadMaxConcurrent", 32),
+                Map.entry("bulkheadMaxQueued", 64),
+                Map.entry("bulkheadQueueTimeoutMs", 2_000L),
+                Map.entry("promptMaxTokens", 3000),
+                Map.entry("rateLimitBurstSeconds", 10),
+                Map.entry("rateLimitMaxQueued", 200),
+                Map.entry("rateLimitMaxWaitMs", 15_000L),
+                Map.entry("expectedOutputTokens", 1024),
+                Map.entry("defaultRetryAfterMs", 5_000L));
+        values.forEach((field, value) -> ReflectionTestUtils.setField(client, field, value));
+        client.initProviderGuards();
+    }
+
+    @Test
+    void retryAfterInSeconds() {
+        Response response = response(429, "{}", "Retry-After", "7");
+        assertEquals(7_000, client.retryAfterMs(response, "{}"));
+    }
+
+    @Test
+    void retryAfterAsHttpDate() {
+        String at = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+        long delay = client.retryAfterMs(response(429, "{}", "Retry-After", at), "{}");
+        // The header has whole seconds only
+        assertTrue(delay > 28_000 && delay <= 30_000, "delay " + delay);
+    }
+
+    @Test
+    void retryAfterFromGeminiRetryDelay() {
+        String body = "{\"error\":{\"code\":429,\"details\":[{\"@type\":\"type.googleapis.com/google.rpc.RetryInfo\","
+                + "\"retryDelay\":\"37.5s\"}]}}";
+        assertEquals(37_500, client.retryAfterMs(response(429, body), body));
+        assertEquals(5_000, client.retryAfterMs(response(429, "{}"), "{}"));
+    }
+
+    @Test
+    void primaryFailingEarlyStartsTheHedgeAtOnce() throws Exception {
+        CompletableFuture<CircumstancesAssistantResponse> result = client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+
+        PendingCall primary = nextCall();
+        assertEquals("pllum.test", primary.host());
+        primary.respond(500, "upstream down");
+        // The hedge delay is a minute - the secondary must not wait for it
+        PendingCall secondary = calls.poll();
+        assertNotNull(secondary);
+        assertEquals("gemini.test", secondary.host());
+        secondary.respond(200, geminiAnswer("Gdzie dokładnie doszło do upadku?"));
+
+        CircumstancesAssistantResponse response = result.get(5, TimeUnit.SECONDS);
+        assertNull(response.getError());
+        assertEquals("Gdzie dokładnie doszło do upadku?", response.getQuestions().get(0).getText());
+    }
+
+    @Test
+    void bothProvidersFailingReturnsThePrimaryError() throws Exception {
+        CompletableFuture<CircumstancesAssistantResponse> result = client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+
+        nextCall().respond(500, "pllum down");
+        nextCall().respond(500, "gemini down");
+
+        CircumstancesAssistantResponse response = result.get(5, TimeUnit.SECONDS);
+        assertNotNull(response.getError());
+        assertTrue(response.getError().contains("Pllum"), response.getError());
+    }
+
+    @Test
+    void primaryFailingAsTheHedgeDelayExpiresStillWaitsForTheSecondary() throws Exception {
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 1L);
+        CountDownLatch hedgeStarting = new CountDownLatch(1);
+        CountDownLatch primaryFailed = new CountDownLatch(1);
+        // Holds the hedge timer thread while it is starting the secondary call
+        beforeNewCall = request -> {
+            if (request.url().host().equals("gemini.test")) {
+                hedgeStarting.countDown();
+                try {
+                    primaryFailed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        CompletableFuture<CircumstancesAssistantResponse> result = client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+
+        PendingCall primary = nextCall();
+        assertTrue(hedgeStarting.await(5, TimeUnit.SECONDS));
+        primary.respond(500, "upstream down");
+        // The secondary is already on its way - the primary error must not complete the result
+        assertFalse(result.isDone());
+        primaryFailed.countDown();
+
+        PendingCall secondary = nextCall();
+        assertEquals("gemini.test", secondary.host());
+        secondary.respond(200, geminiAnswer("Co było przyczyną upadku?"));
+        CircumstancesAssistantResponse response = result.get(5, TimeUnit.SECONDS);
+        assertNull(response.getError());
+        assertEquals("Co było przyczyną upadku?", response.getQuestions().get(0).getText());
+    }
+
+    @Test
+    void hedgeWinnerCancelsTheLoser() throws Exception {
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 0L);
+        CompletableFuture<CircumstancesAssistantResponse> result = client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+
+        PendingCall primary = nextCall();
+        PendingCall secondary = nextCall();
+        assertEquals("gemini.test", secondary.host());
+        secondary.respond(200, geminiAnswer("O której godzinie?"));
+
+        assertEquals("O której godzinie?", result.get(5, TimeUnit.SECONDS).getQuestions().get(0).getText());
+        verify(primary.call(), timeout(5_000)).cancel();
+    }
+
+    @Test
+    void failsOverOnceTheErrorRateIsCrossed() throws Exception {
+        ReflectionTestUtils.setField(client, "hedgeEnabled", false);
+        ReflectionTestUtils.setField(client, "failoverMinSamples", 2);
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<CircumstancesAssistantResponse> failed = client.generateCircumstancesQuestionsAsync("Opis " + i);
+            PendingCall call = nextCall();
+            assertEquals("pllum.test", call.host());
+            call.respond(500, "pllum down");
+            assertNotNull(failed.get(5, TimeUnit.SECONDS).getError());
+        }
+
+        CompletableFuture<CircumstancesAssistantResponse> result = client.generateCircumstancesQuestionsAsync("Opis 3");
+        PendingCall call = nextCall();
+        assertEquals("gemini.test", call.host());
+        call.respond(200, geminiAnswer("Co Pan robił?"));
+        assertNull(result.get(5, TimeUnit.SECONDS).getError());
+
+        AiClient.ProviderStatus pllum = client.getRoutingStatus().get(0);
+        assertTrue(pllum.isFailedOver());
+        assertEquals(0, pllum.getRecentCalls());
+    }
+
+    @Test
+    void identicalConcurrentDescriptionsShareOneUpstreamCall() throws Exception {
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<CircumstancesAssistantResponse>>> started = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                started.add(pool.submit(() -> {
+                    start.await();
+                    return client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<CircumstancesAssistantResponse>> results = new ArrayList<>();
+            for (Future<CompletableFuture<CircumstancesAssistantResponse>> future : started) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+
+            nextCall().respond(200, pllumAnswer("Gdzie to się stało?"));
+            for (CompletableFuture<CircumstancesAssistantResponse> result : results) {
+                assertEquals("Gdzie to się stało?", result.get(5, TimeUnit.SECONDS).getQuestions().get(0).getText());
+            }
+            assertTrue(calls.isEmpty());
+            verify(httpClient, times(1)).newCall(any());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelledWaiterDoesNotCancelTheSharedCall() throws Exception {
+        CompletableFuture<CircumstancesAssistantResponse> first = client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+        CompletableFuture<CircumstancesAssistantResponse> second = client.generateCircumstancesQuestionsAsync("Upadłem  w MAGAZYNIE.");
+        PendingCall call = nextCall();
+
+        assertTrue(first.cancel(true));
+        call.respond(200, pllumAnswer("Gdzie to się stało?"));
+
+        assertNull(second.get(5, TimeUnit.SECONDS).getError());
+        verify(call.call(), never()).cancel();
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void chatExtractionIsSentWithoutTheCircumstancesSystemPrompt() throws Exception {
+        AssistantState state = new AssistantState();
+        state.setAccidentReport(new AccidentReport());
+        state.setConversationHistory(new ArrayList<>());
+        client.extractInfoFromUserMessageAsync(state, "Nazywam się Jan Kowalski.", new MissingFieldsCalculator().getRequiredFields());
+
+        JsonArray chat = nextCall().body().getAsJsonArray("messages");
+        assertEquals(1, chat.size());
+        JsonObject extraction = chat.get(0).getAsJsonObject();
+        assertEquals("user", extraction.get("role").getAsString());
+        assertTrue(extraction.get("content").getAsString().contains("Nazywam się Jan Kowalski."));
+        assertFalse(extraction.get("content").getAsString().contains("asystentem BHP"));
+        assertFalse(extraction.get("content").getAsString().startsWith("Opis zdarzenia"));
+
+        client.generateCircumstancesQuestionsAsync("Upadłem w magazynie.");
+        JsonArray circumstances = nextCall().body().getAsJsonArray("messages");
+        assertEquals(2, circumstances.size());
+        assertEquals("system", circumstances.get(0).getAsJsonObject().get("role").getAsString());
+        assertTrue(circumstances.get(0).getAsJsonObject().get("content").getAsString().contains("asystentem BHP"));
+        assertTrue(circumstances.get(1).getAsJsonObject().get("content").getAsString().endsWith("Upadłem w magazynie."));
+    }
+
+    private PendingCall nextCall() throws InterruptedException {
+        PendingCall call = calls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(call, "no upstream call");
+        return call;
+    }
+
+    private static String pllumAnswer(String question) {
+        JsonObject message = new JsonObject();
+        message.addProperty("content", questionsJson(question));
+        JsonObject choice = new JsonObject();
+        choice.add("message", message);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject body = new JsonObject();
+        body.add("choices", choices);
+        return body.toString();
+    }
+
+    private static String geminiAnswer(String question) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", questionsJson(question));
+        JsonArray parts = new JsonArray();
+        parts.add(part);
+        JsonObject content = new JsonObject();
+        content.add("parts", parts);
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject body = new JsonObject();
+        body.add("candidates", candidates);
+        return body.toString();
+    }
+
+    private static String questionsJson(String question) {
+        JsonObject q = new JsonObject();
+        q.addProperty("id", 1);
+        q.addProperty("text", question);
+        JsonArray questions = new JsonArray();
+        questions.add(q);
+        JsonObject answer = new JsonObject();
+        answer.addProperty("questions_count", 1);
+        answer.add("questions", questions);
+        return answer.toString();
+    }
+
+    private static Response response(int code, String body, String... headers) {
+        return response(new Request.Builder().url(PLLUM_URL + "/chat/completions").build(), code, body, headers);
+    }
+
+    private static Response response(Request request, int code, String body, String... headers) {
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(code == 200 ? "OK" : "Error")
+                .body(ResponseBody.create(body, MediaType.get("application/json")));
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            builder.header(headers[i], headers[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private record PendingCall(Request request, Call call, Callback callback) {
+
+        String host() {
+            return request.url().host();
+        }
+
+        JsonObject body() throws IOException {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            return JsonParser.parseString(buffer.readUtf8()).getAsJsonObject();
+        }
+
+        void respond(int code, String body) throws IOException {
+            callback.onResponse(call, response(request, code, body));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.zant.backend.ai;
+
+import com.zant.backend.config.RequiredField;
+import com.zant.backend.model.AccidentData;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.PersonData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssistantPromptBuilderTest {
+
+    private static final List<RequiredField> FIELDS = List.of(
+            new RequiredField("victimData.firstName", "PERSON_DATA", "Imię poszkodowanego", true, ""),
+            new RequiredField("victimData.pesel", "PERSON_DATA", "PESEL poszkodowanego", true, ""));
+
+    @Test
+    void writesOnlyFilledSlotsAsKeyValueLines() {
+        AccidentReport report = new AccidentReport();
+        PersonData victim = new PersonData();
+        victim.setFirstName("Jan");
+        victim.setPesel("");
+        report.setVictimData(victim);
+
+        AssistantPromptBuilder.Prompt prompt = new AssistantPromptBuilder(3000)
+                .build(report, null, List.of(), "Nazywam się Jan Kowalski", FIELDS);
+
+        assertTrue(prompt.text().contains("\nvictimData.firstName=Jan\n"));
+        assertFalse(prompt.text().contains("pesel="));
+        assertFalse(prompt.text().contains("{\"victimData\""));
+        assertFalse(prompt.truncated());
+    }
+
+    @Test
+    void shortensLongValuesToStayWithinBudget() {
+        AccidentReport report = new AccidentReport();
+        AccidentData accident = new AccidentData();
+        accident.setCircumstancesAndCauses("Poślizgnąłem się na mokrej posadzce. ".repeat(200));
+        accident.setPlace("Hala magazynowa");
+        report.setAccidentData(accident);
+
+        AssistantPromptBuilder.Prompt prompt = new AssistantPromptBuilder(800)
+                .build(report, null, List.of(), "Upadłem na rękę", FIELDS);
+
+        assertTrue(prompt.truncated());
+        assertTrue(prompt.tokens() <= 800, "tokens: " + prompt.tokens());
+        assertTrue(prompt.text().contains("accidentData.place=Hala magazynowa"));
+        assertTrue(prompt.text().contains("Upadłem na rękę"));
+    }
+
+    @Test
+    void keepsNewestTurnsAndSummaryWithinHistoryRoom() {
+        List<Map<String, String>> turns = List.of(
+                Map.of("role", "user", "content", "Najstarsza wiadomość " + "x".repeat(400)),
+                Map.of("role", "assistant", "content", "Podaj datę wypadku."),
+                Map.of("role", "user", "content", "Wczoraj o 10:30"));
+
+        AssistantPromptBuilder.Prompt prompt = new AssistantPromptBuilder(1500)
+                .build(new AccidentReport(), "użytkownik: mam firmę budowlaną\n", turns, "Złamałem rękę", FIELDS);
+
+        assertTrue(prompt.text().contains("(wcześniej)\nużytkownik: mam firmę budowlaną\n"));
+        assertTrue(prompt.text().contains("asystent: Podaj datę wypadku.\nużytkownik: Wczoraj o 10:30\n"));
+        assertFalse(prompt.text().contains("x".repeat(301)));
+    }
+}
@@ -0,0 +1,66 @@
+package com.zant.backend.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private final ManualClock clock = new ManualClock();
+    private final Bulkhead bulkhead = new Bulkhead("pllum", 1, 1, 500, clock);
+
+    @Test
+    void releaseHandsThePermitToTheQueuedWaiter() {
+        assertTrue(bulkhead.acquire().isDone());
+        CompletableFuture<Void> waiter = bulkhead.acquire();
+        assertFalse(waiter.isDone());
+        assertEquals(1, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertTrue(waiter.isDone());
+        assertFalse(waiter.isCompletedExceptionally());
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void queuedWaiterTimesOut() {
+        bulkhead.acquire();
+        CompletableFuture<Void> waiter = bulkhead.acquire();
+
+        clock.advance(499);
+        assertFalse(waiter.isDone());
+        clock.advance(1);
+        assertUnavailable(waiter);
+        assertEquals(0, bulkhead.getQueued());
+
+        // The timed-out waiter does not take the permit
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void fullQueueRejectsAtOnce() {
+        bulkhead.acquire();
+        bulkhead.acquire();
+
+        assertUnavailable(bulkhead.acquire());
+        assertEquals(1, bulkhead.getQueued());
+    }
+
+    private static void assertUnavailable(CompletableFuture<Void> future) {
+        assertTrue(future.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(ProviderUnavailableException.class, e.getCause());
+    }
+}
@@ -0,0 +1,72 @@
+package com.zant.backend.ai;
+
+import com.zant.backend.ai.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000);
+
+    @Test
+    void opensAfterThresholdOfConsecutiveFailures() {
+        assertFalse(breaker.onFailure(0));
+        assertFalse(breaker.onFailure(0));
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure(0));
+        assertFalse(breaker.onFailure(0));
+        assertEquals(State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.onFailure(100));
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted(1_099));
+        assertFalse(breaker.tryAcquire(1_099));
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThrough() {
+        open(0);
+
+        assertTrue(breaker.isCallPermitted(1_000));
+        assertTrue(breaker.tryAcquire(1_000));
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted(1_000));
+        assertFalse(breaker.tryAcquire(1_000));
+
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire(1_000));
+    }
+
+    @Test
+    void failedTrialOpensAgain() {
+        open(0);
+        assertTrue(breaker.tryAcquire(1_000));
+
+        assertTrue(breaker.onFailure(1_000));
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(1_999));
+        assertTrue(breaker.tryAcquire(2_000));
+    }
+
+    @Test
+    void ignoredTrialReleasesTheSlot() {
+        open(0);
+        assertTrue(breaker.tryAcquire(1_000));
+
+        // e.g. cancelled before the request was sent
+        breaker.onIgnored();
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire(1_000));
+    }
+
+    private void open(long nowMillis) {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(nowMillis);
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+}
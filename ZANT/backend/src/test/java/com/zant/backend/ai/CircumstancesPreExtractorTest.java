@@ -0,0 +1,62 @@
+package com.zant.backend.ai;
+
+import com.zant.backend.ai.CircumstancesPreExtractor.Element;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircumstancesPreExtractorTest {
+
+    @Test
+    void findsAllElementsInCompleteDescription() {
+        assertTrue(CircumstancesPreExtractor.isComplete(
+                "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę. "
+                        + "Upadłem na lewy bok i stłukłem bark."));
+        assertTrue(CircumstancesPreExtractor.isComplete(
+                "15 marca 2024 ok. 14:30 na budowie przy ul. Polnej niosłem deski po rusztowaniu, poslizgnalem sie "
+                        + "na mokrej desce i zlamalem reke w nadgarstku."));
+    }
+
+    @Test
+    void reportsMissingElements() {
+        assertEquals(EnumSet.of(Element.INJURY), CircumstancesPreExtractor.detect("Złamałem nogę dzisiaj rano."));
+        assertEquals(EnumSet.of(Element.CAUSE), CircumstancesPreExtractor.detect(
+                "Wczoraj w pracy upadłem i boli mnie ręka."));
+    }
+
+    @Test
+    void dateAloneIsNotTime() {
+        assertFalse(CircumstancesPreExtractor.detect(
+                "W dniu 12.05 na magazynie podczas zdejmowania paczki potknąłem się i stłukłem bark.")
+                .contains(Element.TIME));
+    }
+
+    @Test
+    void negatedInjuryOrCauseIsNotFound() {
+        Set<Element> deniedInjury = CircumstancesPreExtractor.detect(
+                "12.05 o 10:00 w biurze podczas rozmowy telefonicznej uderzyłem się w głowę, bez urazu.");
+        assertFalse(deniedInjury.contains(Element.INJURY));
+        assertTrue(deniedInjury.contains(Element.CAUSE));
+
+        assertFalse(CircumstancesPreExtractor.isComplete(
+                "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki z regału potknąłem się o paletę, "
+                        + "ręka bez obrażeń, żadnego urazu."));
+        assertFalse(CircumstancesPreExtractor.isComplete(
+                "W dniu 12.05 o godzinie 10:00 na magazynie podczas zdejmowania paczki złamałem rękę w nadgarstku, "
+                        + "nie potknąłem się."));
+        assertFalse(CircumstancesPreExtractor.detect(
+                "Złamana ręka w nadgarstku, bez innych obrażeń.").contains(Element.INJURY));
+    }
+
+    @Test
+    void negationInEarlierClauseDoesNotHideMatch() {
+        assertTrue(CircumstancesPreExtractor.detect(
+                "Nie zauważyłem mokrej podłogi, poślizgnąłem się i stłukłem kolano.")
+                .containsAll(EnumSet.of(Element.CAUSE, Element.INJURY)));
+    }
+}
@@ -0,0 +1,51 @@
+package com.zant.backend.ai;
+
+import com.google.gson.Gson;
+import com.zant.backend.ai.AiClient.CircumstancesQuestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircumstancesStreamParserTest {
+
+    private static final String ANSWER = "```json\n{ \"questions_count\": 2, \"questions\": [ "
+            + "{ \"id\": 1, \"text\": \"Gdzie dokładnie {hala} doszło do \\\"zdarzenia\\\"?\" }, "
+            + "{ \"id\": 2, \"text\": \"Jaki uraz [ręka] odniosłeś?\" } ] }\n```";
+
+    @Test
+    void emitsEachQuestionAsSoonAsItIsComplete() {
+        CircumstancesStreamParser parser = new CircumstancesStreamParser(new Gson());
+        int firstClosed = ANSWER.indexOf('}', ANSWER.indexOf("zdarzenia"));
+
+        assertTrue(parser.feed(ANSWER.substring(0, firstClosed)).isEmpty());
+        List<CircumstancesQuestion> first = parser.feed(ANSWER.substring(firstClosed, firstClosed + 1));
+        assertEquals(List.of(new CircumstancesQuestion(1, "Gdzie dokładnie {hala} doszło do \"zdarzenia\"?")), first);
+
+        List<CircumstancesQuestion> second = parser.feed(ANSWER.substring(firstClosed + 1));
+        assertEquals(List.of(new CircumstancesQuestion(2, "Jaki uraz [ręka] odniosłeś?")), second);
+        assertEquals(ANSWER, parser.text());
+    }
+
+    @Test
+    void handlesTokensSplitAtEveryCharacter() {
+        CircumstancesStreamParser parser = new CircumstancesStreamParser(new Gson());
+        List<CircumstancesQuestion> questions = new ArrayList<>();
+        for (char c : ANSWER.toCharArray()) {
+            questions.addAll(parser.feed(String.valueOf(c)));
+        }
+        assertEquals(2, questions.size());
+        assertEquals("Jaki uraz [ręka] odniosłeś?", questions.get(1).getText());
+    }
+
+    @Test
+    void ignoresObjectsOutsideQuestionsArray() {
+        CircumstancesStreamParser parser = new CircumstancesStreamParser(new Gson());
+        List<CircumstancesQuestion> questions = parser.feed(
+                "{\"meta\": [{\"id\": 9, \"text\": \"nie\"}], \"note\": \"questions\", \"questions\": [{\"text\": \"Kiedy?\"}]}");
+        assertEquals(List.of(new CircumstancesQuestion(1, "Kiedy?")), questions);
+    }
+}
@@ -0,0 +1,52 @@
+package com.zant.backend.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GuardClock} that only moves in {@link #advance(long)}; due tasks run on the calling thread.
+ */
+class ManualClock implements GuardClock {
+
+    private record Task(long dueNanos, long sequence, Runnable action) {
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long now = 1_000_000_000L;
+    private long sequence;
+
+    @Override
+    public synchronized long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public synchronized void schedule(Runnable task, long delayNanos) {
+        tasks.add(new Task(now + delayNanos, sequence++, task));
+    }
+
+    void advance(long millis) {
+        long target;
+        synchronized (this) {
+            target = now + TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+        while (true) {
+            Task next;
+            synchronized (this) {
+                next = tasks.stream()
+                        .filter(t -> t.dueNanos() <= target)
+                        .min(Comparator.comparingLong(Task::dueNanos).thenComparingLong(Task::sequence))
+                        .orElse(null);
+                if (next == null) {
+                    now = target;
+                    return;
+                }
+                tasks.remove(next);
+                now = Math.max(now, next.dueNanos());
+            }
+            next.action().run();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.zant.backend.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderHealthTest {
+
+    @Test
+    void errorRateCoversOnlyTheLastWindowOfCalls() {
+        ProviderHealth health = new ProviderHealth(4);
+        health.recordFailure();
+        health.recordFailure();
+        health.recordSuccess(100);
+        health.recordSuccess(100);
+        assertEquals(0.5, health.errorRate());
+
+        // The two failures slide out of the window
+        health.recordSuccess(100);
+        health.recordSuccess(100);
+        assertEquals(4, health.samples());
+        assertEquals(0.0, health.errorRate());
+    }
+
+    @Test
+    void latencyPercentileNeedsMinimumSamples() {
+        ProviderHealth health = new ProviderHealth(10);
+        for (long latency = 100; latency <= 1_000; latency += 100) {
+            health.recordSuccess(latency);
+        }
+        assertEquals(-1, health.latencyPercentile(0.95, 20));
+        assertEquals(1_000, health.latencyPercentile(0.95, 10));
+        assertEquals(500, health.latencyPercentile(0.5, 10));
+    }
+
+    @Test
+    void failOverClearsTheWindowForTheCooldown() {
+        ProviderHealth health = new ProviderHealth(10);
+        for (int i = 0; i < 6; i++) {
+            health.recordFailure();
+        }
+        health.recordSuccess(100);
+
+        assertTrue(health.failOver(1_000, 60_000));
+        assertTrue(health.isFailedOver(60_999));
+        assertFalse(health.isFailedOver(61_000));
+        assertEquals(0, health.samples());
+        assertEquals(0.0, health.errorRate());
+        // Another request already failed it over
+        assertFalse(health.failOver(2_000, 60_000));
+
+        health.recordSuccess(100);
+        assertEquals(1, health.samples());
+        assertEquals(0.0, health.errorRate());
+    }
+}
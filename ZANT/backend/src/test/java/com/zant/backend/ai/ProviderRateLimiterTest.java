@@ -0,0 +1,88 @@
+package com.zant.backend.ai;
+
+import com.zant.backend.ai.ProviderRateLimiter.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderRateLimiterTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    /** 60 requests per minute with a one-second burst: one call per second, token bucket disabled. */
+    private ProviderRateLimiter limiter(int maxQueued, long maxWaitMs) {
+        return new ProviderRateLimiter("pllum", 60, 0, 1, maxQueued, maxWaitMs, clock);
+    }
+
+    @Test
+    void waiterGoesOnceTheBucketHasRefilled() {
+        ProviderRateLimiter limiter = limiter(10, 10_000);
+        assertTrue(limiter.acquire(Priority.INTERACTIVE, 0).isDone());
+
+        CompletableFuture<Void> second = limiter.acquire(Priority.INTERACTIVE, 0);
+        assertFalse(second.isDone());
+        clock.advance(999);
+        assertFalse(second.isDone());
+        clock.advance(1);
+        assertTrue(second.isDone());
+        assertFalse(second.isCompletedExceptionally());
+    }
+
+    @Test
+    void interactiveLeavesTheQueueBeforeBackground() {
+        ProviderRateLimiter limiter = limiter(10, 10_000);
+        limiter.acquire(Priority.INTERACTIVE, 0);
+
+        CompletableFuture<Void> background = limiter.acquire(Priority.BACKGROUND, 0);
+        CompletableFuture<Void> interactive = limiter.acquire(Priority.INTERACTIVE, 0);
+        clock.advance(1_000);
+        assertTrue(interactive.isDone());
+        assertFalse(background.isDone());
+        clock.advance(1_000);
+        assertTrue(background.isDone());
+    }
+
+    @Test
+    void fullQueueShedsLowerPriorityWaiter() {
+        ProviderRateLimiter limiter = limiter(1, 10_000);
+        limiter.acquire(Priority.INTERACTIVE, 0);
+
+        CompletableFuture<Void> background = limiter.acquire(Priority.BACKGROUND, 0);
+        CompletableFuture<Void> interactive = limiter.acquire(Priority.INTERACTIVE, 0);
+        assertUnavailable(background);
+        assertFalse(interactive.isDone());
+        // Nothing of lower priority left to shed
+        assertUnavailable(limiter.acquire(Priority.INTERACTIVE, 0));
+        assertUnavailable(limiter.acquire(Priority.BACKGROUND, 0));
+
+        clock.advance(1_000);
+        assertTrue(interactive.isDone());
+        assertFalse(interactive.isCompletedExceptionally());
+    }
+
+    @Test
+    void waiterFailsAfterMaxWait() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter("gemini", 1, 0, 60, 10, 500, clock);
+        limiter.acquire(Priority.INTERACTIVE, 0);
+
+        CompletableFuture<Void> waiter = limiter.acquire(Priority.INTERACTIVE, 0);
+        clock.advance(499);
+        assertFalse(waiter.isDone());
+        clock.advance(1);
+        assertUnavailable(waiter);
+        assertEquals(0, limiter.getQueued());
+    }
+
+    private static void assertUnavailable(CompletableFuture<Void> future) {
+        assertTrue(future.isCompletedExceptionally());
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(ProviderUnavailableException.class, e.getCause());
+    }
+}
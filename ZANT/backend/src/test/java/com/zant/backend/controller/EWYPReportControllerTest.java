@@ -0,0 +1,98 @@
+package com.zant.backend.controller;
+
+import com.zant.backend.dto.ewyp.EWYPReportDTO;
+import com.zant.backend.mapper.EWYPReportMapper;
+import com.zant.backend.model.ewyp.EWYPReport;
+import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.scoring.ScoringResult;
+import com.zant.backend.service.AsyncScoringService;
+import com.zant.backend.service.EWYPDocumentService;
+import com.zant.backend.service.OnnxScoringService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EWYPReportControllerTest {
+
+    /** Rows of the mocked repository - findById returns the stored entity, updateScoring mutates it. */
+    private final Map<UUID, EWYPReport> rows = new ConcurrentHashMap<>();
+
+    private final EWYPReportRepository repository = mock(EWYPReportRepository.class);
+    private final OnnxScoringService onnxScoringService = mock(OnnxScoringService.class);
+    private final EWYPReportMapper mapper = new EWYPReportMapper();
+
+    private AsyncScoringService asyncScoringService;
+    private EWYPReportController controller;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<UUID>getArgument(0))));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            EWYPReport report = invocation.getArgument(0);
+            if (report.getId() == null) {
+                report.setId(UUID.randomUUID());
+            }
+            rows.put(report.getId(), report);
+            return report;
+        });
+        when(repository.updateScoring(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            EWYPReport report = rows.get(invocation.<UUID>getArgument(0));
+            if (report == null) {
+                return 0;
+            }
+            report.setScoringClassification(invocation.getArgument(1));
+            report.setScoringStatus(invocation.getArgument(2));
+            report.setScoringModelVersion(invocation.getArgument(3));
+            report.setUpdatedAt(invocation.<LocalDateTime>getArgument(4));
+            return 1;
+        });
+        when(onnxScoringService.extractTextFromReport(any(EWYPReport.class))).thenReturn("upadek z drabiny");
+        when(onnxScoringService.scoreText("upadek z drabiny")).thenReturn(new ScoringResult(0.83, "java:3fa2c1d9e0ab"));
+
+        asyncScoringService = new AsyncScoringService(onnxScoringService, repository);
+        ReflectionTestUtils.setField(asyncScoringService, "threads", 1);
+        ReflectionTestUtils.setField(asyncScoringService, "queueCapacity", 10);
+        asyncScoringService.init();
+
+        controller = new EWYPReportController(repository, mapper, mock(EWYPDocumentService.class),
+                onnxScoringService, asyncScoringService);
+    }
+
+    @Test
+    void updateAfterAsyncScoringKeepsTheScoringResult() throws Exception {
+        UUID id = controller.saveDraft(new EWYPReportDTO()).getBody().getId();
+
+        assertEquals(AsyncScoringService.SCORING_PENDING, controller.submitReport(id).getBody().getScoringStatus());
+        // Waits for the queued scoring task to write its result
+        asyncScoringService.shutdown();
+        assertEquals(AsyncScoringService.SCORED, rows.get(id).getScoringStatus());
+
+        // The form sends the report back without status and scoring fields
+        EWYPReportDTO edit = mapper.toDTO(rows.get(id));
+        edit.setStatus(null);
+        edit.setScoringStatus(null);
+        edit.setScoringClassification(null);
+        edit.setScoringModelVersion(null);
+        edit.setResponseDeliveryMethod("TO_PUE_ACCOUNT");
+        ResponseEntity<EWYPReportDTO> updated = controller.updateReport(id, edit);
+
+        EWYPReportDTO body = updated.getBody();
+        assertEquals("TO_PUE_ACCOUNT", body.getResponseDeliveryMethod());
+        assertEquals("SUBMITTED", rows.get(id).getStatus());
+        assertEquals(AsyncScoringService.SCORED, body.getScoringStatus());
+        assertEquals(0.83, body.getScoringClassification());
+        assertEquals("java:3fa2c1d9e0ab", body.getScoringModelVersion());
+    }
+}
@@ -0,0 +1,221 @@
+package com.zant.backend.scoring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OnnxRuntimeScoringModelTest {
+
+    // Typy elementów tensora ONNX
+    private static final int FLOAT = 1;
+    private static final int STRING = 8;
+    private static final int INT64 = 7;
+
+    // Typy atrybutów ONNX
+    private static final int ATTR_INT = 2;
+    private static final int ATTR_STRING = 3;
+    private static final int ATTR_FLOATS = 6;
+    private static final int ATTR_INTS = 7;
+    private static final int ATTR_STRINGS = 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scoresTextsWithTheExportedGraphLayout() throws Exception {
+        Path modelFile = dir.resolve("model.onnx");
+        Files.write(modelFile, tinyModel());
+
+        try (OnnxRuntimeScoringModel model = OnnxRuntimeScoringModel.load(modelFile, 1)) {
+            List<Double> probabilities = model.predict(List.of(
+                    "==== STRONA 1 ==== Wypadek przy pracy,   WYPADEK",
+                    "przy biurku"));
+
+            // słownik: wypadek (idf 1.5, waga 1.2), przy (idf 2.0, waga -0.4), wyraz wolny 0.3
+            double w0 = 2 * 1.5, w1 = 1 * 2.0;
+            double norm = Math.sqrt(w0 * w0 + w1 * w1);
+            assertEquals(sigmoid((w0 * 1.2 + w1 * -0.4) / norm + 0.3), probabilities.get(0), 1e-6);
+            // tylko "przy" - po normalizacji L2 wektor (0, 1)
+            assertEquals(sigmoid(-0.4 + 0.3), probabilities.get(1), 1e-6);
+        }
+    }
+
+    private static double sigmoid(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    /**
+     * Graf o układzie eksportu skl2onnx z {@code zipmap=False}: tensor stringów [N, 1] -> StringNormalizer ->
+     * Tokenizer (wyrażenie z export_onnx.py) -> TfIdfVectorizer -> norma L2 -> regresja logistyczna ->
+     * wyjście {@code probabilities} [N, 2]. Locale normalizatora ustawione jawnie, bo domyślne en_US.UTF-8
+     * nie musi być zainstalowane na maszynie z testami.
+     */
+    private static byte[] tinyModel() {
+        Proto graph = new Proto()
+                .message(1, node("Reshape", "", List.of("input", "flat_shape"), "flat"))
+                .message(1, node("StringNormalizer", "", List.of("flat"), "lower",
+                        stringAttr("case_change_action", "LOWER"), stringAttr("locale", "C.UTF-8")))
+                .message(1, node("Tokenizer", "com.microsoft", List.of("lower"), "tokens",
+                        intAttr("mark", 0), intAttr("mincharnum", 1), stringAttr("pad_value", "#"),
+                        stringAttr("tokenexp", "\\b\\w\\w+\\b")))
+                .message(1, node("TfIdfVectorizer", "", List.of("tokens"), "tfidf",
+                        stringAttr("mode", "TFIDF"), intAttr("min_gram_length", 1), intAttr("max_gram_length", 1),
+                        intAttr("max_skip_count", 0), intsAttr("ngram_counts", 0), intsAttr("ngram_indexes", 0, 1),
+                        stringsAttr("pool_strings", "wypadek", "przy"), floatsAttr("weights", 1.5f, 2.0f)))
+                .message(1, node("LpNormalization", "", List.of("tfidf"), "normalized",
+                        intAttr("axis", 1), intAttr("p", 2)))
+                .message(1, node("MatMul", "", List.of("normalized", "coef"), "score"))
+                .message(1, node("Add", "", List.of("score", "intercept"), "decision"))
+                .message(1, node("Sigmoid", "", List.of("decision"), "positive"))
+                .message(1, node("Sub", "", List.of("one", "positive"), "negative"))
+                .message(1, node("Concat", "", List.of("negative", "positive"), "probabilities", intAttr("axis", 1)))
+                .string(2, "tiny_tfidf_lr")
+                .message(5, int64Tensor("flat_shape", new long[]{1}, -1))
+                .message(5, floatTensor("coef", new long[]{2, 1}, 1.2f, -0.4f))
+                .message(5, floatTensor("intercept", new long[]{1}, 0.3f))
+                .message(5, floatTensor("one", new long[]{1}, 1.0f))
+                .message(11, valueInfo("input", STRING, 1))
+                .message(12, valueInfo("probabilities", FLOAT, 2));
+
+        return new Proto()
+                .varint(1, 7) // ir_version
+                .string(2, "OnnxRuntimeScoringModelTest")
+                .message(7, graph)
+                .message(8, new Proto().string(1, "").varint(2, 13))
+                .message(8, new Proto().string(1, "com.microsoft").varint(2, 1))
+                .toByteArray();
+    }
+
+    private static Proto node(String opType, String domain, List<String> inputs, String output, Proto... attributes) {
+        Proto node = new Proto();
+        inputs.forEach(input -> node.string(1, input));
+        node.string(2, output).string(3, output).string(4, opType);
+        for (Proto attribute : attributes) {
+            node.message(5, attribute);
+        }
+        return domain.isEmpty() ? node : node.string(7, domain);
+    }
+
+    private static Proto intAttr(String name, long value) {
+        return new Proto().string(1, name).varint(3, value).varint(20, ATTR_INT);
+    }
+
+    private static Proto stringAttr(String name, String value) {
+        return new Proto().string(1, name).string(4, value).varint(20, ATTR_STRING);
+    }
+
+    private static Proto intsAttr(String name, long... values) {
+        Proto attribute = new Proto().string(1, name);
+        for (long value : values) {
+            attribute.varint(8, value);
+        }
+        return attribute.varint(20, ATTR_INTS);
+    }
+
+    private static Proto floatsAttr(String name, float... values) {
+        Proto attribute = new Proto().string(1, name);
+        for (float value : values) {
+            attribute.float32(7, value);
+        }
+        return attribute.varint(20, ATTR_FLOATS);
+    }
+
+    private static Proto stringsAttr(String name, String... values) {
+        Proto attribute = new Proto().string(1, name);
+        for (String value : values) {
+            attribute.string(9, value);
+        }
+        return attribute.varint(20, ATTR_STRINGS);
+    }
+
+    private static Proto floatTensor(String name, long[] dims, float... values) {
+        Proto tensor = new Proto();
+        for (long dim : dims) {
+            tensor.varint(1, dim);
+        }
+        tensor.varint(2, FLOAT);
+        for (float value : values) {
+            tensor.float32(4, value);
+        }
+        return tensor.string(8, name);
+    }
+
+    private static Proto int64Tensor(String name, long[] dims, long... values) {
+        Proto tensor = new Proto();
+        for (long dim : dims) {
+            tensor.varint(1, dim);
+        }
+        tensor.varint(2, INT64);
+        for (long value : values) {
+            tensor.varint(7, value);
+        }
+        return tensor.string(8, name);
+    }
+
+    /** Tensor [N, columns] z symbolicznym wymiarem partii. */
+    private static Proto valueInfo(String name, int elementType, long columns) {
+        Proto shape = new Proto()
+                .message(1, new Proto().string(2, "N"))
+                .message(1, new Proto().varint(1, columns));
+        Proto tensorType = new Proto().varint(1, elementType).message(2, shape);
+        return new Proto().string(1, name).message(2, new Proto().message(1, tensorType));
+    }
+
+    /** Minimalny zapis protobuf - tyle, ile potrzeba do komunikatów ONNX powyżej. */
+    private static final class Proto {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Proto varint(int field, long value) {
+            tag(field, 0);
+            writeVarint(value);
+            return this;
+        }
+
+        Proto float32(int field, float value) {
+            tag(field, 5);
+            int bits = Float.floatToIntBits(value);
+            for (int i = 0; i < 4; i++) {
+                out.write(bits >>> (8 * i));
+            }
+            return this;
+        }
+
+        Proto string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Proto message(int field, Proto message) {
+            return bytes(field, message.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private Proto bytes(int field, byte[] value) {
+            tag(field, 2);
+            writeVarint(value.length);
+            out.writeBytes(value);
+            return this;
+        }
+
+        private void tag(int field, int wireType) {
+            writeVarint(((long) field << 3) | wireType);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.zant.backend.scoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TfidfLogisticRegressionModelTest {
+
+    private static final Path EXPORTED_MODEL = Paths.get("../MODELS/wniosek_model.bin");
+    private static final Path PARITY_FIXTURE = Paths.get("../MODELS/wniosek_model_parity.csv");
+    private static final Path CASES_DIR = Paths.get("../OCR_OUTPUT");
+
+    @Test
+    void basicCleanMatchesPython() {
+        String raw = "  ==== STRONA 2 ====Wypadek\r\nna\r\n\n\n\nhali   produkcyjnej\t\tdnia ";
+        assertEquals("Wypadek\nna\n\nhali produkcyjnej dnia", TfidfLogisticRegressionModel.basicClean(raw));
+    }
+
+    @Test
+    void reproducesTfidfLogisticRegression() throws IOException {
+        // słownik: 0="wypadek", 1="przy", 2="wypadek przy"
+        TfidfLogisticRegressionModel model = TfidfLogisticRegressionModel.read(new ByteArrayInputStream(modelBytes(
+                -0.5,
+                new String[]{"wypadek", "przy", "wypadek przy"},
+                new double[]{1.5, 2.0, 3.0},
+                new double[]{0.8, -0.3, 1.2})));
+
+        // tokeny: wypadek, przy, pracy, wypadek, a (za krótki) -> wypadek x2, przy x1, "wypadek przy" x1
+        double w0 = 2 * 1.5, w1 = 1 * 2.0, w2 = 1 * 3.0;
+        double norm = Math.sqrt(w0 * w0 + w1 * w1 + w2 * w2);
+        double decision = (w0 * 0.8 + w1 * -0.3 + w2 * 1.2) / norm - 0.5;
+        double expected = 1.0 / (1.0 + Math.exp(-decision));
+
+        assertEquals(expected, model.predictOne("Wypadek przy pracy, WYPADEK a"), 1e-12);
+    }
+
+    @Test
+    void matchesJoblibModelOnOcrCases() throws IOException {
+        // Oba pliki są w repozytorium - brak to błąd, nie powód do pominięcia testu
+        assertTrue(Files.exists(EXPORTED_MODEL) && Files.exists(PARITY_FIXTURE),
+                "Brak wyeksportowanego modelu - uruchom: python3 Python/export_model.py --parity-cases OCR_OUTPUT");
+
+        TfidfLogisticRegressionModel model = TfidfLogisticRegressionModel.load(EXPORTED_MODEL);
+        List<String> rows = Files.readAllLines(PARITY_FIXTURE, StandardCharsets.UTF_8);
+        assertFalse(rows.size() <= 1, "Plik referencyjny nie zawiera żadnych spraw");
+
+        for (String row : rows.subList(1, rows.size())) {
+            int comma = row.lastIndexOf(',');
+            String caseId = row.substring(0, comma);
+            double expected = Double.parseDouble(row.substring(comma + 1));
+
+            String text = collectCaseText(CASES_DIR.resolve(caseId));
+            assertEquals(expected, model.predictOne(text), 1e-9, "Rozbieżność dla sprawy: " + caseId);
+        }
+    }
+
+    private static byte[] modelBytes(double intercept, String[] terms, double[] idf, double[] coef) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(TfidfLogisticRegressionModel.MAGIC);
+        out.writeInt(TfidfLogisticRegressionModel.FORMAT_VERSION);
+        out.writeBoolean(true);
+        out.writeInt(1);
+        out.writeInt(2);
+        out.writeBoolean(false);
+        out.writeBoolean(true);
+        out.writeDouble(intercept);
+        out.writeInt(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            byte[] term = terms[i].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(term.length);
+            out.write(term);
+            out.writeDouble(idf[i]);
+            out.writeDouble(coef[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Odpowiednik {@code collect_case_text_from_dir} z {@code predictor.py}.
+     */
+    private static String collectCaseText(Path caseDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(caseDir)) {
+            files = stream.filter(p -> p.getFileName().toString().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        }
+
+        List<String> parts = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String nameLower = name.toLowerCase();
+            if (nameLower.startsWith("opinia") || (nameLower.contains("karta") && nameLower.contains("wypadku"))) {
+                continue;
+            }
+            String content = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.IGNORE)
+                    .decode(ByteBuffer.wrap(Files.readAllBytes(file)))
+                    .toString();
+            String clean = TfidfLogisticRegressionModel.basicClean(content);
+            if (!clean.isEmpty()) {
+                parts.add("\n\n===== PLIK: " + name + " =====\n\n" + clean);
+            }
+        }
+        return String.join("\n", parts).strip();
+    }
+}
@@ -0,0 +1,163 @@
+package com.zant.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zant.backend.ai.AiClient;
+import com.zant.backend.ai.AiClient.AiResponse;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.model.AssistantTurn;
+import com.zant.backend.repository.AssistantStateRepository;
+import com.zant.backend.repository.ConversationTurnRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssistantServiceTest {
+
+    @TempDir
+    Path logDir;
+
+    private final AiClient aiClient = mock(AiClient.class);
+    private final AssistantStateRepository repository = mock(AssistantStateRepository.class);
+
+    /** Czas odpowiedzi modelu na daną wiadomość - późniejsze wiadomości odpowiadają szybciej. */
+    private final Map<String, Long> latencyMs = new ConcurrentHashMap<>();
+
+    /** Odpowiedzi, które test kończy sam. */
+    private final Map<String, CompletableFuture<AiResponse>> heldResponses = new ConcurrentHashMap<>();
+
+    /** Liczba tur w stanie w chwili wywołania modelu dla danej wiadomości. */
+    private final Map<String, Long> turnCountAtCall = new ConcurrentHashMap<>();
+
+    /** Wątki, na których wczytano stan i przeliczono brakujące pola. */
+    private final List<String> blockingWorkThreads = new CopyOnWriteArrayList<>();
+
+    private AssistantStateStore store;
+    private AssistantService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(anyString())).thenAnswer(invocation -> {
+            blockingWorkThreads.add(Thread.currentThread().getName());
+            return Optional.empty();
+        });
+        when(aiClient.extractInfoFromUserMessageAsync(any(), anyString(), any())).thenAnswer(invocation -> {
+            AssistantState state = invocation.getArgument(0);
+            String message = invocation.getArgument(1);
+            turnCountAtCall.put(message, state.getTurnCount());
+            CompletableFuture<AiResponse> held = heldResponses.get(message);
+            if (held != null) {
+                return held;
+            }
+            return CompletableFuture.supplyAsync(() -> response(message),
+                    CompletableFuture.delayedExecutor(latencyMs.getOrDefault(message, 0L), TimeUnit.MILLISECONDS));
+        });
+
+        store = new AssistantStateStore(repository, mock(ConversationTurnRepository.class), mock(AssistantSlotWriter.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 12, 3, true, 300_000, 100,
+                logDir.toString(), false);
+        MissingFieldsCalculator missingFieldsCalculator = new MissingFieldsCalculator() {
+            @Override
+            public List<String> calculateMissingFields(AccidentReport report) {
+                blockingWorkThreads.add(Thread.currentThread().getName());
+                return super.calculateMissingFields(report);
+            }
+        };
+        service = new AssistantService(missingFieldsCalculator, aiClient, store, new ObjectMapper(), 12, 2000, 2, false);
+        service.recoverTurns();
+    }
+
+    @Test
+    void appliesTurnsOfOneConversationInArrivalOrder() throws Exception {
+        // Bez skrzynki trzecia odpowiedź przyszłaby pierwsza
+        latencyMs.put("pierwsza", 300L);
+        latencyMs.put("druga", 150L);
+        latencyMs.put("trzecia", 0L);
+
+        CompletableFuture<AssistantTurn> first = service.handleMessage("c1", "pierwsza");
+        CompletableFuture<AssistantTurn> second = service.handleMessage("c1", "druga");
+        CompletableFuture<AssistantTurn> third = service.handleMessage("c1", "trzecia");
+
+        assertEquals("odpowiedź: pierwsza", first.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals("odpowiedź: druga", second.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals("odpowiedź: trzecia", third.get(5, TimeUnit.SECONDS).getResponse());
+
+        // Każda wiadomość poszła do modelu ze stanem po poprzedniej turze
+        assertEquals(Map.of("pierwsza", 0L, "druga", 1L, "trzecia", 2L), turnCountAtCall);
+        AssistantStateStore.Entry entry = store.acquire("c1", AssistantState::new);
+        try {
+            List<String> history = entry.getState().getConversationHistory().stream()
+                    .map(line -> line.get("content"))
+                    .toList();
+            assertEquals(List.of("pierwsza", "odpowiedź: pierwsza", "druga", "odpowiedź: druga",
+                    "trzecia", "odpowiedź: trzecia"), history);
+            assertEquals(3L, entry.getState().getTurnCount());
+        } finally {
+            store.release(entry);
+        }
+    }
+
+    @Test
+    void otherConversationDoesNotWaitForASlowTurn() throws Exception {
+        CompletableFuture<AiResponse> slow = new CompletableFuture<>();
+        heldResponses.put("wolna", slow);
+
+        CompletableFuture<AssistantTurn> blocked = service.handleMessage("c1", "wolna");
+        CompletableFuture<AssistantTurn> queuedBehind = service.handleMessage("c1", "za wolną");
+        CompletableFuture<AssistantTurn> other = service.handleMessage("c2", "szybka");
+
+        assertEquals("odpowiedź: szybka", other.get(5, TimeUnit.SECONDS).getResponse());
+        assertFalse(blocked.isDone());
+        assertFalse(queuedBehind.isDone());
+        assertFalse(turnCountAtCall.containsKey("za wolną"));
+
+        slow.complete(response("wolna"));
+        assertEquals("odpowiedź: za wolną", queuedBehind.get(5, TimeUnit.SECONDS).getResponse());
+        assertEquals("odpowiedź: wolna", blocked.get(5, TimeUnit.SECONDS).getResponse());
+    }
+
+    @Test
+    void runsStateLoadAndUpdateOnTheTurnPool() throws Exception {
+        CompletableFuture<AiResponse> held = new CompletableFuture<>();
+        heldResponses.put("wiadomość", held);
+
+        CompletableFuture<AssistantTurn> turn = service.handleMessage("c1", "wiadomość");
+        // Odpowiedź przychodzi na wątku testu, tak jak na wątku OkHttp
+        held.complete(response("wiadomość"));
+        turn.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, blockingWorkThreads.size());
+        assertTrue(blockingWorkThreads.stream().allMatch(name -> name.startsWith("assistant-turn-")),
+                blockingWorkThreads::toString);
+    }
+
+    @AfterEach
+    void shutDown() throws Exception {
+        service.shutdown();
+    }
+
+    private static AiResponse response(String message) {
+        return new AiResponse(new HashMap<>(), "odpowiedź: " + message, List.of());
+    }
+}
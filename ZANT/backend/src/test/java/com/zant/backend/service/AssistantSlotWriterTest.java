@@ -0,0 +1,70 @@
+package com.zant.backend.service;
+
+import com.zant.backend.model.AccidentData;
+import com.zant.backend.model.AccidentReport;
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.model.PersonData;
+import com.zant.backend.repository.AssistantStateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mapowanie JSON i zapis slotów na H2 (ścieżka zastępcza - bez {@code jsonb_set}).
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(AssistantSlotWriter.class)
+class AssistantSlotWriterTest {
+
+    @Autowired
+    private AssistantStateRepository repository;
+
+    @Autowired
+    private AssistantSlotWriter slotWriter;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void reportIsInsertedWholeAndUpdatedOnlyThroughSlotWriter() {
+        PersonData victim = new PersonData();
+        victim.setFirstName("Jan");
+        AccidentData accident = new AccidentData();
+        accident.setAccidentDateTime(LocalDateTime.of(2024, 3, 5, 7, 30));
+        AccidentReport report = new AccidentReport();
+        report.setVictimData(victim);
+        report.setAccidentData(accident);
+        AssistantState state = new AssistantState();
+        state.setConversationId("c1");
+        state.setAccidentReport(report);
+        state.setMissingFields(new ArrayList<>(List.of("victimData.pesel")));
+        repository.saveAndFlush(state);
+        entityManager.clear();
+
+        AssistantState loaded = repository.findById("c1").orElseThrow();
+        assertEquals("Jan", loaded.getAccidentReport().getVictimData().getFirstName());
+        assertEquals(LocalDateTime.of(2024, 3, 5, 7, 30), loaded.getAccidentReport().getAccidentData().getAccidentDateTime());
+        assertEquals(List.of("victimData.pesel"), loaded.getMissingFields());
+
+        // UPDATE encji nie dotyka zgłoszenia - robi to dopiero zapis slotów
+        loaded.getAccidentReport().getVictimData().setFirstName("Adam");
+        loaded.setMissingFields(new ArrayList<>());
+        repository.saveAndFlush(loaded);
+        entityManager.clear();
+        assertEquals("Jan", repository.findById("c1").orElseThrow().getAccidentReport().getVictimData().getFirstName());
+
+        slotWriter.writeSlots(loaded, List.of("victimData"));
+        entityManager.clear();
+        AssistantState updated = repository.findById("c1").orElseThrow();
+        assertEquals("Adam", updated.getAccidentReport().getVictimData().getFirstName());
+        assertEquals(List.of(), updated.getMissingFields());
+    }
+}
@@ -0,0 +1,208 @@
+package com.zant.backend.service;
+
+import com.zant.backend.model.AssistantState;
+import com.zant.backend.model.ConversationTurn;
+import com.zant.backend.repository.AssistantStateRepository;
+import com.zant.backend.repository.ConversationTurnRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssistantStateStoreTest {
+
+    @TempDir
+    Path logDir;
+
+    private final ConversationTurnRepository turnRepository = mock(ConversationTurnRepository.class);
+
+    /** Liczba tur w kolejnych wywołaniach saveAll - lista oczekujących tur jest czyszczona po zapisie. */
+    private final List<Integer> savedTurnBatches = new ArrayList<>();
+
+    @BeforeEach
+    void recordSavedTurns() {
+        when(turnRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<ConversationTurn> turns = new ArrayList<>();
+            invocation.<Iterable<ConversationTurn>>getArgument(0).forEach(turns::add);
+            savedTurnBatches.add(turns.size());
+            return turns;
+        });
+    }
+
+    @Test
+    void coalescesTurnsIntoOneSaveAndDropsFlushedLog() throws Exception {
+        AssistantStateRepository repository = mock(AssistantStateRepository.class);
+        when(repository.findById("c1")).thenReturn(Optional.empty());
+        AssistantStateStore store = store(repository);
+        store.recover(AssistantStateStoreTest::newState, (state, turn) -> { });
+
+        AssistantStateStore.Entry entry = store.acquire("c1", () -> newState("c1"));
+        for (int turn = 1; turn <= 3; turn++) {
+            commit(store, entry, turn, false);
+        }
+        store.release(entry);
+        verify(repository, never()).save(any());
+        assertEquals(List.of(), savedTurnBatches);
+
+        store.flushDirty();
+        verify(repository, times(1)).save(entry.getState());
+        assertEquals(List.of(3), savedTurnBatches);
+        store.flushDirty();
+        assertEquals(0, logLines());
+    }
+
+    @Test
+    void replaysTurnsMissingFromDatabaseAfterCrash() throws Exception {
+        AssistantStateRepository repository = mock(AssistantStateRepository.class);
+        List<AssistantState> loaded = new ArrayList<>();
+        when(repository.findById("c1")).thenAnswer(invocation -> {
+            AssistantState persisted = newState("c1");
+            persisted.setTurnCount(1);
+            loaded.add(persisted);
+            return Optional.of(persisted);
+        });
+
+        // Węzeł zapisał w bazie turę 1, tury 2 i 3 są tylko w dzienniku
+        AssistantStateStore crashed = store(repository);
+        AssistantStateStore.Entry entry = crashed.acquire("c1", () -> newState("c1"));
+        for (int turn = 1; turn <= 3; turn++) {
+            commit(crashed, entry, turn, false);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        store(repository).recover(AssistantStateStoreTest::newState, (state, turn) -> {
+            replayed.add(turn.userMessage());
+            state.setTurnCount(turn.turn());
+        });
+        assertEquals(List.of("wiadomość 2", "wiadomość 3"), replayed);
+        AssistantState recovered = loaded.get(loaded.size() - 1);
+        assertEquals(3, recovered.getTurnCount());
+        verify(repository, times(1)).save(recovered);
+        assertEquals(List.of(2), savedTurnBatches);
+        assertEquals(0, logLines());
+    }
+
+    @Test
+    void loadsOnlyHistoryWindowFromTurnTable() {
+        AssistantStateRepository repository = mock(AssistantStateRepository.class);
+        when(repository.findById("c1")).thenReturn(Optional.of(newState("c1")));
+        when(turnRepository.findByConversationIdOrderBySeqDesc(eq("c1"), any(Pageable.class))).thenReturn(List.of(
+                new ConversationTurn("c1", 40, "wiadomość 40", "odpowiedź 40"),
+                new ConversationTurn("c1", 39, "wiadomość 39", "odpowiedź 39")));
+
+        AssistantState state = store(repository).acquire("c1", () -> newState("c1")).getState();
+
+        verify(turnRepository).findByConversationIdOrderBySeqDesc(eq("c1"),
+                argThat((Pageable page) -> page.getPageSize() == 2));
+        assertEquals(List.of("odpowiedź 39", "wiadomość 40", "odpowiedź 40"),
+                state.getConversationHistory().stream().map(entry -> entry.get("content")).toList());
+    }
+
+    @Test
+    void fillsHistoryWindowFromLegacyHistoryWhenTurnTableIsShort() {
+        AssistantState saved = newState("c1");
+        saved.setLegacyConversationHistory(List.of(
+                Map.of("role", "user", "content", "stara 1"), Map.of("role", "assistant", "content", "stara odpowiedź 1"),
+                Map.of("role", "user", "content", "stara 2"), Map.of("role", "assistant", "content", "stara odpowiedź 2")));
+        AssistantStateRepository repository = mock(AssistantStateRepository.class);
+        when(repository.findById("c1")).thenReturn(Optional.of(saved));
+        // Jedyna tura zapisana już w nowej tabeli
+        when(turnRepository.findByConversationIdOrderBySeqDesc(eq("c1"), any(Pageable.class))).thenReturn(List.of(
+                new ConversationTurn("c1", 3, "wiadomość 3", "odpowiedź 3")));
+
+        AssistantState state = store(repository).acquire("c1", () -> newState("c1")).getState();
+
+        assertEquals(List.of("stara odpowiedź 2", "wiadomość 3", "odpowiedź 3"),
+                state.getConversationHistory().stream().map(entry -> entry.get("content")).toList());
+    }
+
+    @Test
+    void replaysPendingTurnsOnTopOfNewerStateAfterVersionConflict() throws Exception {
+        AssistantStateRepository repository = mock(AssistantStateRepository.class);
+        AssistantState ours = newState("c1");
+        AssistantState theirs = newState("c1");
+        theirs.setTurnCount(5);
+        when(repository.findById("c1")).thenReturn(Optional.of(ours)).thenReturn(Optional.of(theirs));
+        when(repository.save(ours)).thenThrow(new ObjectOptimisticLockingFailureException(AssistantState.class, "c1"));
+        when(repository.save(theirs)).thenReturn(theirs);
+
+        AssistantStateStore store = store(repository);
+        List<Long> replayed = new ArrayList<>();
+        store.recover(AssistantStateStoreTest::newState, (state, turn) -> {
+            replayed.add(turn.turn());
+            state.setTurnCount(turn.turn());
+        });
+        AssistantStateStore.Entry entry = store.acquire("c1", () -> newState("c1"));
+        for (int turn = 1; turn <= 2; turn++) {
+            commit(store, entry, turn, false);
+        }
+        store.flushDirty();
+
+        // Inny węzeł zapisał tury 1-5 - nasze dwie tury trafiają do bazy jako 6 i 7
+        assertEquals(List.of(6L, 7L), replayed);
+        assertSame(theirs, entry.getState());
+        assertEquals(7, theirs.getTurnCount());
+        assertEquals(List.of(2, 2), savedTurnBatches);
+    }
+
+    private AssistantStateStore store(AssistantStateRepository repository) {
+        return new AssistantStateStore(repository, turnRepository, mock(AssistantSlotWriter.class),
+                mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), 3, 3, true, 300_000, 100, logDir.toString(), false);
+    }
+
+    private static void commit(AssistantStateStore store, AssistantStateStore.Entry entry, int turn, boolean flushNow) {
+        entry.lock.lock();
+        try {
+            entry.getState().setTurnCount(turn);
+            store.commitTurn(entry, new AssistantTurnLog.TurnRecord("c1", turn, "wiadomość " + turn, "odpowiedź",
+                    Map.of()), flushNow);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private long logLines() throws Exception {
+        try (Stream<Path> files = Files.list(logDir)) {
+            long lines = 0;
+            for (Path file : files.toList()) {
+                lines += Files.readAllLines(file).size();
+            }
+            return lines;
+        }
+    }
+
+    private static AssistantState newState() {
+        return newState(null);
+    }
+
+    private static AssistantState newState(String conversationId) {
+        AssistantState state = new AssistantState();
+        state.setConversationId(conversationId);
+        state.setConversationHistory(new ArrayList<>());
+        return state;
+    }
+}
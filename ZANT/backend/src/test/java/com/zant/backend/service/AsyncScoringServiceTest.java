@@ -0,0 +1,78 @@
+package com.zant.backend.service;
+
+import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.scoring.ScoringResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncScoringServiceTest {
+
+    private final OnnxScoringService onnxScoringService = mock(OnnxScoringService.class);
+    private final EWYPReportRepository repository = mock(EWYPReportRepository.class);
+
+    @Test
+    void storesTheScoreWithItsModelVersion() throws Exception {
+        when(onnxScoringService.scoreText("tekst")).thenReturn(new ScoringResult(0.7, "java:3fa2c1d9e0ab"));
+        when(repository.updateScoring(any(), any(), any(), any(), any())).thenReturn(1);
+        AsyncScoringService service = service(1, 10);
+        UUID id = UUID.randomUUID();
+
+        service.submit(id, "tekst");
+        // shutdown czeka na zadania z kolejki
+        service.shutdown();
+
+        verify(repository).updateScoring(eq(id), eq(0.7), eq(AsyncScoringService.SCORED), eq("java:3fa2c1d9e0ab"), any());
+    }
+
+    @Test
+    void fullQueueMarksTheReportFailedWithoutBlocking() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(onnxScoringService.scoreText(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new ScoringResult(0.5, "java:3fa2c1d9e0ab");
+        });
+        when(repository.updateScoring(any(), any(), any(), any(), any())).thenReturn(1);
+        AsyncScoringService service = service(1, 1);
+        UUID running = UUID.randomUUID();
+        UUID queued = UUID.randomUUID();
+        UUID rejected = UUID.randomUUID();
+
+        service.submit(running, "a");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.submit(queued, "b");
+        // jedyny wątek zajęty, kolejka (1) pełna - AbortPolicy
+        service.submit(rejected, "c");
+
+        verify(repository).updateScoring(eq(rejected), isNull(), eq(AsyncScoringService.SCORING_FAILED), isNull(), any());
+        release.countDown();
+        service.shutdown();
+
+        verify(repository).updateScoring(eq(running), eq(0.5), eq(AsyncScoringService.SCORED), any(), any());
+        verify(repository).updateScoring(eq(queued), eq(0.5), eq(AsyncScoringService.SCORED), any(), any());
+        verify(repository, never()).updateScoring(eq(rejected), any(), eq(AsyncScoringService.SCORED), any(), any());
+    }
+
+    private AsyncScoringService service(int threads, int queueCapacity) {
+        AsyncScoringService service = new AsyncScoringService(onnxScoringService, repository);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        service.init();
+        return service;
+    }
+}
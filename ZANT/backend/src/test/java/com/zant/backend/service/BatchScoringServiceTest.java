@@ -0,0 +1,102 @@
+package com.zant.backend.service;
+
+import com.zant.backend.dto.ewyp.ReportScoringTextDTO;
+import com.zant.backend.model.ewyp.AccidentInfo;
+import com.zant.backend.model.ewyp.EWYPReport;
+import com.zant.backend.model.ewyp.InjuredPerson;
+import com.zant.backend.model.ewyp.Reporter;
+import com.zant.backend.model.ewyp.WitnessInfo;
+import com.zant.backend.repository.EWYPReportRepository;
+import com.zant.backend.repository.ScoringJobCheckpointRepository;
+import com.zant.backend.scoring.ScoringResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchScoringServiceTest {
+
+    private final EWYPReportRepository reportRepository = mock(EWYPReportRepository.class);
+    private final ScoringJobCheckpointRepository checkpointRepository = mock(ScoringJobCheckpointRepository.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rescoresTheSameTextAsSubmit() {
+        EWYPReport report = report();
+        WitnessInfo first = report.getWitnesses().get(0);
+        WitnessInfo second = report.getWitnesses().get(1);
+
+        // Projekcja bez świadków + świadkowie osobnym zapytaniem, jak w bazie
+        ReportScoringTextDTO projection = new ReportScoringTextDTO(report.getId(), report.getInjuredPerson(),
+                report.getReporter(), report.getAccidentInfo());
+        when(reportRepository.findScoringTextsByStatus(eq("SUBMITTED"), any())).thenReturn(List.of(projection));
+        when(reportRepository.findScoringTextsByStatusAfter(eq("SUBMITTED"), eq(report.getId()), any())).thenReturn(List.of());
+        when(reportRepository.findWitnessesByReportIds(anyList())).thenReturn(List.of(
+                new Object[]{report.getId(), first}, new Object[]{report.getId(), second}));
+        when(checkpointRepository.findById(BatchScoringService.JOB_NAME)).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OnnxScoringService onnxScoringService = spy(new OnnxScoringService(new SimpleMeterRegistry()));
+        doReturn("java").when(onnxScoringService).getActiveBackend();
+        doReturn(List.of(new ScoringResult(0.6, "java:3fa2c1d9e0ab"))).when(onnxScoringService).scoreTexts(anyList());
+
+        BatchScoringService service = new BatchScoringService(reportRepository, checkpointRepository, onnxScoringService,
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        service.start(true);
+
+        ArgumentCaptor<List<String>> texts = ArgumentCaptor.forClass(List.class);
+        verify(onnxScoringService, timeout(5000)).scoreTexts(texts.capture());
+        service.shutdown();
+
+        assertEquals(List.of(onnxScoringService.extractTextFromReport(report)), texts.getValue());
+    }
+
+    private static EWYPReport report() {
+        InjuredPerson injuredPerson = new InjuredPerson();
+        injuredPerson.setFirstName("Jan");
+        injuredPerson.setLastName("Kowalski");
+        injuredPerson.setPesel("80010112345");
+
+        Reporter reporter = new Reporter();
+        reporter.setFirstName("Anna");
+        reporter.setLastName("Kowalska");
+
+        AccidentInfo accidentInfo = new AccidentInfo();
+        accidentInfo.setAccidentDate("2024-03-12");
+        accidentInfo.setPlaceOfAccident("hala magazynowa");
+        accidentInfo.setCircumstancesAndCauses("Upadek z drabiny podczas zdejmowania towaru z regału.");
+        accidentInfo.setFirstAidGiven(true);
+
+        List<WitnessInfo> witnesses = new ArrayList<>();
+        witnesses.add(new WitnessInfo(1L, "Piotr", "Nowak", "Polna", "1", null, "00-001", "Warszawa", "Polska"));
+        witnesses.add(new WitnessInfo(2L, "Ewa", "Zielińska", "Leśna", "7", null, "00-002", "Kraków", "Polska"));
+
+        EWYPReport report = new EWYPReport();
+        report.setId(UUID.randomUUID());
+        report.setStatus("SUBMITTED");
+        report.setInjuredPerson(injuredPerson);
+        report.setReporter(reporter);
+        report.setAccidentInfo(accidentInfo);
+        report.setWitnesses(witnesses);
+        return report;
+    }
+}
@@ -589,17 +589,27 @@ export class EwypFormComponent implements OnInit {
 
     this.isLoadingQuestions = true;
     this.showCircumstancesAssistant = true;
-
-    this.reportService.generateCircumstancesQuestions(description).subscribe({
-      next: (response) => {
-        this.isLoadingQuestions = false;
-        this.circumstancesQuestions = response.questions;
-        this.circumstancesQuestionsError = response.error;
+    this.circumstancesQuestions = [];
+    this.circumstancesQuestionsError = null;
+
+    // Questions are shown one by one while the model is still generating the rest
+    this.reportService.streamCircumstancesQuestions(description).subscribe({
+      next: (event) => {
+        if (event.type === 'question') {
+          this.circumstancesQuestions = [...this.circumstancesQuestions, event.question];
+        } else {
+          this.isLoadingQuestions = false;
+          this.circumstancesQuestions = event.response.questions;
+          this.circumstancesQuestionsError = event.response.error;
+        }
       },
       error: (error) => {
         this.isLoadingQuestions = false;
         console.error('Error generating circumstances questions:', error);
         this.circumstancesQuestions = [];
+      },
+      complete: () => {
+        this.isLoadingQuestions = false;
       }
     });
   }
@@ -12,6 +12,8 @@ export interface EWYPReport {
   attachmentContentType?: string;
   status?: string;
   scoringClassification?: string;
+  scoringStatus?: 'SCORING_PENDING' | 'SCORED' | 'SCORING_FAILED';
+  scoringModelVersion?: string;
   createdAt?: string;
   updatedAt?: string;
 }
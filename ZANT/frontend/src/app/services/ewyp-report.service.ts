@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { HttpClient, HttpDownloadProgressEvent, HttpEventType } from '@angular/common/http';
+import { Observable, defer } from 'rxjs';
+import { mergeMap } from 'rxjs/operators';
 import { EWYPReport } from '../models/ewyp-report';
 
 export interface CircumstancesQuestion {
@@ -14,6 +15,10 @@ export interface CircumstancesAssistantResponse {
   error: string;
 }
 
+export type CircumstancesStreamEvent =
+  | { type: 'question'; question: CircumstancesQuestion }
+  | { type: 'done'; response: CircumstancesAssistantResponse };
+
 @Injectable({
   providedIn: 'root'
 })
@@ -59,6 +64,63 @@ export class EWYPReportService {
     );
   }
 
+  // Server-Sent Events: each question arrives as soon as the model has written it, then one 'done' event
+  streamCircumstancesQuestions(accidentDescription: string): Observable<CircumstancesStreamEvent> {
+    return defer(() => {
+      let parsed = 0;
+      return this.http.post(`${this.assistantUrl}/circumstances/stream`, { accidentDescription }, {
+        observe: 'events',
+        reportProgress: true,
+        responseType: 'text'
+      }).pipe(
+        mergeMap(event => {
+          let text: string | undefined;
+          if (event.type === HttpEventType.DownloadProgress) {
+            text = (event as HttpDownloadProgressEvent).partialText;
+          } else if (event.type === HttpEventType.Response) {
+            text = event.body ?? '';
+          }
+          const events: CircumstancesStreamEvent[] = [];
+          if (text === undefined) {
+            return events;
+          }
+          // Events end with a blank line - parse only the complete ones received so far
+          let end: number;
+          while ((end = text.indexOf('\n\n', parsed)) !== -1) {
+            const streamEvent = this.parseStreamEvent(text.substring(parsed, end));
+            if (streamEvent) {
+              events.push(streamEvent);
+            }
+            parsed = end + 2;
+          }
+          return events;
+        })
+      );
+    });
+  }
+
+  private parseStreamEvent(block: string): CircumstancesStreamEvent | null {
+    let name = 'message';
+    let data = '';
+    for (const line of block.split('\n')) {
+      if (line.startsWith('event:')) {
+        name = line.substring(6).trim();
+      } else if (line.startsWith('data:')) {
+        data += line.substring(5);
+      }
+    }
+    if (!data) {
+      return null;
+    }
+    if (name === 'question') {
+      return { type: 'question', question: JSON.parse(data) };
+    }
+    if (name === 'done') {
+      return { type: 'done', response: JSON.parse(data) };
+    }
+    return null;
+  }
+
   uploadAttachment(reportId: string, file: File): Observable<EWYPReport> {
     const formData = new FormData();
     formData.append('file', file);
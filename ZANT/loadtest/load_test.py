@@ -0,0 +1,366 @@
+"""
+Test obciążeniowy asystenta i zgłoszeń EWYP przy zadanym RPS.
+
+Ruch jest generowany w pętli otwartej: żądania startują co 1/RPS niezależnie od tego, jak szybko odpowiada
+backend, więc kolejkowanie po stronie serwera widać w opóźnieniach, a nie w spadku wysyłanego RPS.
+Żądania ponad --max-in-flight są liczone jako "dropped" (klient nie nadąża - zwiększ limit).
+
+Scenariusze (--mix nazwa:waga,...):
+  chat            POST /api/assistant/{id}/message - każda sesja prowadzi własną rozmowę (--turns wiadomości)
+  circumstances   POST /api/assistant/circumstances
+  stream          POST /api/assistant/circumstances/stream - osobno czas do pierwszego pytania (stream.first)
+  report          POST /api/ewyp-reports/draft -> POST /{id}/submit -> GET /{id}/scoring
+  report-read     GET /api/ewyp-reports/{id} dla zgłoszeń utworzonych w tym przebiegu
+
+Opisy wypadków dostają unikalny dopisek, żeby cache odpowiedzi i pre-ekstraktor nie omijały modelu.
+Wynik: liczba żądań, błędy, przepustowość (udane/s) i p50/p95/p99 na scenariusz; --json zapisuje go do pliku.
+
+Tylko biblioteka standardowa. Przykład:
+  python3 loadtest/load_test.py --base-url http://localhost:8081 --rps 20 --duration 60 --mix chat:3,circumstances:1
+"""
+import argparse
+import http.client
+import json
+import random
+import sys
+import threading
+import time
+import uuid
+from concurrent.futures import ThreadPoolExecutor
+from urllib.parse import urlsplit
+
+
+DESCRIPTIONS = [
+    "Podczas przenoszenia kartonów w magazynie poślizgnąłem się na mokrej posadzce i upadłem.",
+    "Przy obsłudze maszyny do cięcia blachy skaleczyłem dłoń.",
+    "Schodząc z drabiny straciłem równowagę i spadłem, bolała mnie noga.",
+    "W trakcie montażu regału uderzył mnie spadający element.",
+]
+
+CHAT_MESSAGES = [
+    "Dzień dobry, chciałbym zgłosić wypadek przy pracy.",
+    "Wypadek wydarzył się w hali produkcyjnej.",
+    "Doszło do tego wczoraj około 10:30.",
+    "Złamałem rękę, byłem w szpitalu na SOR.",
+    "Prowadzę jednoosobową działalność - usługi remontowe.",
+]
+
+
+class Recorder:
+    """Czasy i wyniki per scenariusz (etap)."""
+
+    def __init__(self):
+        self._lock = threading.Lock()
+        self._latencies = {}
+        self._errors = {}
+        self._statuses = {}
+
+    def record(self, name, seconds, ok, status):
+        with self._lock:
+            if ok:
+                self._latencies.setdefault(name, []).append(seconds)
+            else:
+                self._errors[name] = self._errors.get(name, 0) + 1
+            key = (name, status)
+            self._statuses[key] = self._statuses.get(key, 0) + 1
+
+    def summary(self, elapsed):
+        with self._lock:
+            names = sorted(set(self._latencies) | set(self._errors))
+            result = {}
+            for name in names:
+                latencies = sorted(self._latencies.get(name, []))
+                errors = self._errors.get(name, 0)
+                result[name] = {
+                    "requests": len(latencies) + errors,
+                    "errors": errors,
+                    "throughput_rps": round(len(latencies) / elapsed, 2) if elapsed > 0 else 0.0,
+                    "p50_ms": percentile_ms(latencies, 0.50),
+                    "p95_ms": percentile_ms(latencies, 0.95),
+                    "p99_ms": percentile_ms(latencies, 0.99),
+                    "max_ms": round(latencies[-1] * 1000, 1) if latencies else None,
+                    "statuses": {str(status): count for (n, status), count in self._statuses.items() if n == name},
+                }
+            return result
+
+
+def percentile_ms(sorted_seconds, p):
+    if not sorted_seconds:
+        return None
+    index = min(len(sorted_seconds) - 1, max(0, int(round(p * len(sorted_seconds) + 0.5)) - 1))
+    return round(sorted_seconds[index] * 1000, 1)
+
+
+class Client:
+    """Połączenie keep-alive na wątek - jak przeglądarka, bez kosztu nowego TCP na każde żądanie."""
+
+    def __init__(self, base_url, timeout):
+        parts = urlsplit(base_url)
+        self._https = parts.scheme == "https"
+        self._host = parts.hostname
+        self._port = parts.port or (443 if self._https else 80)
+        self._timeout = timeout
+        self._local = threading.local()
+
+    def _connection(self):
+        connection = getattr(self._local, "connection", None)
+        if connection is None:
+            cls = http.client.HTTPSConnection if self._https else http.client.HTTPConnection
+            connection = cls(self._host, self._port, timeout=self._timeout)
+            self._local.connection = connection
+        return connection
+
+    def _reset(self):
+        connection = getattr(self._local, "connection", None)
+        if connection is not None:
+            connection.close()
+        self._local.connection = None
+
+    def request(self, method, path, body=None, content_type="application/json", on_first_event=None):
+        """
+        Zwraca (status, treść). Dla text/event-stream czyta do zdarzenia "done"; on_first_event dostaje
+        moment pierwszego zdarzenia "question".
+        """
+        headers = {"Accept": "*/*"}
+        data = None
+        if body is not None:
+            data = body if isinstance(body, bytes) else (
+                body.encode("utf-8") if isinstance(body, str) else json.dumps(body).encode("utf-8"))
+            headers["Content-Type"] = content_type
+        try:
+            connection = self._connection()
+            connection.request(method, path, body=data, headers=headers)
+            response = connection.getresponse()
+            if response.getheader("Content-Type", "").startswith("text/event-stream"):
+                text = self._read_events(response, on_first_event)
+            else:
+                text = response.read().decode("utf-8", errors="replace")
+            if response.will_close:
+                self._reset()
+            return response.status, text
+        except (OSError, http.client.HTTPException):
+            self._reset()
+            raise
+
+    @staticmethod
+    def _read_events(response, on_first_event):
+        lines = []
+        event = None
+        first_seen = False
+        while True:
+            raw = response.readline()
+            if not raw:
+                break
+            line = raw.decode("utf-8", errors="replace").rstrip("\r\n")
+            lines.append(line)
+            if line.startswith("event:"):
+                event = line[6:].strip()
+                if event == "question" and not first_seen and on_first_event is not None:
+                    first_seen = True
+                    on_first_event()
+            elif line == "" and event == "done":
+                break
+        # Odczyt do końca, żeby połączenie dało się użyć ponownie
+        response.read()
+        return "\n".join(lines)
+
+
+class Scenarios:
+
+    def __init__(self, client, recorder, turns):
+        self.client = client
+        self.recorder = recorder
+        self.turns = turns
+        self._lock = threading.Lock()
+        self._conversations = []
+        self._report_ids = []
+
+    def timed(self, name, method, path, body=None, content_type="application/json", expect=(200, 201),
+              on_first_event=None):
+        start = time.perf_counter()
+        try:
+            status, text = self.client.request(method, path, body, content_type, on_first_event)
+        except (OSError, http.client.HTTPException) as e:
+            self.recorder.record(name, time.perf_counter() - start, False, type(e).__name__)
+            return None, None
+        ok = status in expect
+        self.recorder.record(name, time.perf_counter() - start, ok, status)
+        return status, text
+
+    def chat(self):
+        # Rozmowa trwa --turns wiadomości, potem zaczyna się nowa - historia rośnie jak w prawdziwej sesji
+        with self._lock:
+            conversation = None
+            if self._conversations and random.random() < 0.9:
+                conversation = self._conversations.pop(random.randrange(len(self._conversations)))
+        if conversation is None:
+            conversation = {"id": "load-" + uuid.uuid4().hex, "turn": 0}
+        message = CHAT_MESSAGES[conversation["turn"] % len(CHAT_MESSAGES)] + " (" + uuid.uuid4().hex[:8] + ")"
+        self.timed("chat", "POST", f"/api/assistant/{conversation['id']}/message", message, "text/plain")
+        conversation["turn"] += 1
+        if conversation["turn"] < self.turns:
+            with self._lock:
+                self._conversations.append(conversation)
+
+    def circumstances(self):
+        self.timed("circumstances", "POST", "/api/assistant/circumstances",
+                   {"accidentDescription": unique_description()})
+
+    def stream(self):
+        start = time.perf_counter()
+
+        def first_event():
+            self.recorder.record("stream.first", time.perf_counter() - start, True, 200)
+
+        self.timed("stream", "POST", "/api/assistant/circumstances/stream",
+                   {"accidentDescription": unique_description()}, on_first_event=first_event)
+
+    def report(self):
+        draft = {
+            "injuredPerson": {"firstName": "Jan", "lastName": "Testowy", "pesel": "90010112345"},
+            "accidentInfo": {
+                "accidentDate": "2024-05-12",
+                "accidentTime": "10:30",
+                "placeOfAccident": "hala produkcyjna",
+                "circumstancesAndCauses": unique_description(),
+                "injuriesDescription": "Złamanie kości przedramienia",
+            },
+        }
+        status, text = self.timed("report.draft", "POST", "/api/ewyp-reports/draft", draft)
+        if status not in (200, 201):
+            return
+        report_id = json.loads(text).get("id")
+        self.timed("report.submit", "POST", f"/api/ewyp-reports/{report_id}/submit", b"")
+        self.timed("report.scoring", "GET", f"/api/ewyp-reports/{report_id}/scoring")
+        with self._lock:
+            self._report_ids.append(report_id)
+            if len(self._report_ids) > 1000:
+                self._report_ids.pop(0)
+
+    def report_read(self):
+        with self._lock:
+            report_id = random.choice(self._report_ids) if self._report_ids else None
+        if report_id is None:
+            # Jeszcze nic nie utworzono - zamiast odczytu utwórz zgłoszenie
+            self.report()
+            return
+        self.timed("report.read", "GET", f"/api/ewyp-reports/{report_id}")
+
+
+def unique_description():
+    return random.choice(DESCRIPTIONS) + " Sprawa testowa " + uuid.uuid4().hex[:12] + "."
+
+
+def parse_mix(text, scenarios):
+    actions = {
+        "chat": scenarios.chat,
+        "circumstances": scenarios.circumstances,
+        "stream": scenarios.stream,
+        "report": scenarios.report,
+        "report-read": scenarios.report_read,
+    }
+    names, weights = [], []
+    for part in text.split(","):
+        name, _, weight = part.strip().partition(":")
+        if name not in actions:
+            raise SystemExit(f"Nieznany scenariusz '{name}', dostępne: {', '.join(actions)}")
+        names.append(actions[name])
+        weights.append(float(weight) if weight else 1.0)
+    return names, weights
+
+
+def run(args):
+    recorder = Recorder()
+    scenarios = Scenarios(Client(args.base_url, args.timeout), recorder, args.turns)
+    actions, weights = parse_mix(args.mix, scenarios)
+
+    in_flight = threading.BoundedSemaphore(args.max_in_flight)
+    dropped = 0
+    sent = 0
+
+    def task(action):
+        try:
+            action()
+        except Exception as e:  # błąd klienta nie może zatrzymać testu
+            recorder.record("client-error", 0.0, False, type(e).__name__)
+        finally:
+            in_flight.release()
+
+    print(f"{args.rps} RPS przez {args.duration} s na {args.base_url} (mix: {args.mix})", file=sys.stderr)
+    with ThreadPoolExecutor(max_workers=args.max_in_flight) as pool:
+        interval = 1.0 / args.rps
+        start = time.perf_counter()
+        next_at = start
+        end_at = start + args.duration
+        while next_at < end_at:
+            now = time.perf_counter()
+            if now < next_at:
+                time.sleep(next_at - now)
+            if in_flight.acquire(blocking=False):
+                pool.submit(task, random.choices(actions, weights)[0])
+                sent += 1
+            else:
+                dropped += 1
+            next_at += interval
+        send_elapsed = time.perf_counter() - start
+    elapsed = time.perf_counter() - start
+
+    return {
+        "target_rps": args.rps,
+        "sent_rps": round(sent / send_elapsed, 2) if send_elapsed > 0 else 0.0,
+        "duration_s": round(elapsed, 1),
+        "sent": sent,
+        "dropped": dropped,
+        "scenarios": recorder.summary(elapsed),
+    }
+
+
+def print_report(result):
+    print(f"\nWysłano {result['sent']} żądań ({result['sent_rps']} RPS, cel {result['target_rps']}), "
+          f"odrzucone przez klienta: {result['dropped']}, czas {result['duration_s']} s")
+    header = f"{'scenariusz':<16}{'żądania':>9}{'błędy':>7}{'udane/s':>9}{'p50 ms':>10}{'p95 ms':>10}{'p99 ms':>10}{'max ms':>10}"
+    print(header)
+    print("-" * len(header))
+    for name, s in result["scenarios"].items():
+        print(f"{name:<16}{s['requests']:>9}{s['errors']:>7}{s['throughput_rps']:>9}"
+              f"{fmt(s['p50_ms']):>10}{fmt(s['p95_ms']):>10}{fmt(s['p99_ms']):>10}{fmt(s['max_ms']):>10}")
+    failing = {name: s["statuses"] for name, s in result["scenarios"].items() if s["errors"]}
+    if failing:
+        print("\nStatusy scenariuszy z błędami:")
+        for name, statuses in failing.items():
+            print(f"  {name}: {statuses}")
+
+
+def fmt(value):
+    return "-" if value is None else f"{value:.1f}"
+
+
+def parse_args(argv=None):
+    parser = argparse.ArgumentParser(description="Test obciążeniowy /api/assistant/* i /api/ewyp-reports/*.")
+    parser.add_argument("--base-url", default="http://localhost:8081")
+    parser.add_argument("--rps", type=float, default=10.0, help="Docelowa liczba żądań na sekundę")
+    parser.add_argument("--duration", type=float, default=60.0, help="Czas wysyłania w sekundach")
+    parser.add_argument("--mix", default="chat:3,circumstances:1,report:1",
+                        help="Scenariusze z wagami: chat, circumstances, stream, report, report-read")
+    parser.add_argument("--turns", type=int, default=5, help="Liczba wiadomości w jednej rozmowie")
+    parser.add_argument("--max-in-flight", type=int, default=500, help="Limit równoczesnych żądań klienta")
+    parser.add_argument("--timeout", type=float, default=180.0, help="Timeout jednego żądania w sekundach")
+    parser.add_argument("--seed", type=int, default=None)
+    parser.add_argument("--json", help="Zapisz wynik do pliku JSON (np. do porównania przebiegów)")
+    return parser.parse_args(argv)
+
+
+def main(argv=None):
+    args = parse_args(argv)
+    if args.seed is not None:
+        random.seed(args.seed)
+    result = run(args)
+    print_report(result)
+    if args.json:
+        with open(args.json, "w", encoding="utf-8") as f:
+            json.dump(result, f, ensure_ascii=False, indent=2)
+        print(f"\nZapisano wynik do: {args.json}")
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,262 @@
+"""
+Lokalny zastępnik PLLUM i Gemini do testów obciążeniowych asystenta.
+
+Obsługuje oba protokoły, których używa AiClient:
+  - OpenAI-compatible: POST .../chat/completions (także "stream": true - chunki SSE zakończone [DONE]),
+  - Gemini: POST .../models/<model>:generateContent oraz :streamGenerateContent?alt=sse.
+
+Opóźnienie, błędy i strumieniowanie są konfigurowalne, żeby odtworzyć zachowanie prawdziwego modelu:
+  --latency-dist fixed|uniform|lognormal, --latency-ms (mediana), --latency-sigma / --latency-max-ms,
+  --error-rate (HTTP 500), --rate-limit-rate (HTTP 429 z Retry-After), --chunks / --chunk-delay-ms.
+
+Odpowiedź zależy od promptu: prompt czatu (z "extractedFields") dostaje wyciągnięte pola i pytania,
+prompt okoliczności - listę pytań w formacie {"questions_count", "questions"}.
+
+Tylko biblioteka standardowa. Przykład:
+  python3 loadtest/mock_llm_server.py --port 8090 --latency-dist lognormal --latency-ms 1500 --error-rate 0.02
+i backend z profilem loadtest (application-loadtest.properties wskazuje na localhost:8090).
+"""
+import argparse
+import json
+import math
+import random
+import sys
+import threading
+import time
+import uuid
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+
+CIRCUMSTANCES_ANSWER = {
+    "questions_count": 2,
+    "questions": [
+        {"id": 1, "text": "O której godzinie dokładnie doszło do wypadku?"},
+        {"id": 2, "text": "Jaką czynność wykonywał Pan/Pani w chwili zdarzenia?"},
+    ],
+}
+
+CHAT_ANSWER = {
+    "extractedFields": {"accidentInfo.placeOfAccident": "hala produkcyjna"},
+    "summaryForUser": "Rozumiem, że wypadek wydarzył się w hali produkcyjnej.",
+    "followUpQuestions": ["Kiedy dokładnie doszło do wypadku?", "Jakich obrażeń Pan/Pani doznał(a)?"],
+}
+
+
+class Stats:
+    """Liczniki odpowiedzi - GET /stats."""
+
+    def __init__(self):
+        self._lock = threading.Lock()
+        self._counts = {}
+        self._in_flight = 0
+        self._max_in_flight = 0
+
+    def begin(self):
+        with self._lock:
+            self._in_flight += 1
+            self._max_in_flight = max(self._max_in_flight, self._in_flight)
+
+    def end(self, key):
+        with self._lock:
+            self._in_flight -= 1
+            self._counts[key] = self._counts.get(key, 0) + 1
+
+    def snapshot(self):
+        with self._lock:
+            return {"responses": dict(self._counts), "in_flight": self._in_flight,
+                    "max_in_flight": self._max_in_flight}
+
+
+def sample_latency_ms(args) -> float:
+    if args.latency_dist == "fixed":
+        latency = args.latency_ms
+    elif args.latency_dist == "uniform":
+        latency = random.uniform(args.latency_min_ms, args.latency_max_ms)
+    else:
+        # Mediana = latency_ms, ogon zależy od sigma (0.5 ~ p99 ok. 3.2x mediany)
+        latency = random.lognormvariate(math.log(max(args.latency_ms, 1)), args.latency_sigma)
+    return min(max(latency, 0.0), args.latency_max_ms)
+
+
+def split_chunks(text: str, count: int):
+    size = max(1, math.ceil(len(text) / max(count, 1)))
+    return [text[i:i + size] for i in range(0, len(text), size)]
+
+
+class MockLlmServer(ThreadingHTTPServer):
+    daemon_threads = True
+    # Domyślne 5 gubiłoby połączenia przy skokach ruchu
+    request_queue_size = 1024
+
+
+def make_handler(args, stats: Stats):
+
+    class MockLlmHandler(BaseHTTPRequestHandler):
+        protocol_version = "HTTP/1.1"
+
+        def log_message(self, format, *log_args):
+            if args.verbose:
+                super().log_message(format, *log_args)
+
+        def do_GET(self):
+            if self.path.startswith("/stats"):
+                self._send_json(200, stats.snapshot())
+            else:
+                self._send_json(404, {"error": "not found"})
+
+        def do_POST(self):
+            length = int(self.headers.get("Content-Length", 0))
+            raw = self.rfile.read(length) if length else b""
+            try:
+                body = json.loads(raw or b"{}")
+            except json.JSONDecodeError:
+                self._send_json(400, {"error": "invalid json"})
+                return
+
+            if self.path.split("?")[0].endswith("/chat/completions"):
+                protocol = "openai"
+                prompt = " ".join(str(m.get("content", "")) for m in body.get("messages", []))
+                stream = bool(body.get("stream"))
+            elif ":generateContent" in self.path or ":streamGenerateContent" in self.path:
+                protocol = "gemini"
+                prompt = " ".join(str(p.get("text", ""))
+                                  for c in body.get("contents", []) for p in c.get("parts", []))
+                stream = ":streamGenerateContent" in self.path
+            else:
+                self._send_json(404, {"error": "unknown endpoint " + self.path})
+                return
+
+            stats.begin()
+            outcome = "ok"
+            try:
+                outcome = self._answer(protocol, prompt, stream)
+            finally:
+                stats.end(f"{protocol}:{outcome}")
+
+        def _answer(self, protocol, prompt, stream) -> str:
+            roll = random.random()
+            if roll < args.rate_limit_rate:
+                self._send_error(protocol, 429, "RESOURCE_EXHAUSTED", retry_after_s=args.retry_after_s)
+                return "429"
+            latency_ms = sample_latency_ms(args)
+            if roll < args.rate_limit_rate + args.error_rate:
+                # Błąd po części opóźnienia - jak przeciążony upstream
+                time.sleep(latency_ms / 2000.0)
+                self._send_error(protocol, 500, "INTERNAL")
+                return "500"
+
+            answer = CHAT_ANSWER if "extractedFields" in prompt else CIRCUMSTANCES_ANSWER
+            content = json.dumps(answer, ensure_ascii=False)
+            if not stream:
+                time.sleep(latency_ms / 1000.0)
+                self._send_json(200, self._full_response(protocol, content))
+                return "200"
+
+            # Strumień: opóźnienie do pierwszego chunka, potem kolejne co chunk_delay_ms
+            time.sleep(max(latency_ms - args.chunks * args.chunk_delay_ms, 0) / 1000.0)
+            self.send_response(200)
+            self.send_header("Content-Type", "text/event-stream")
+            self.send_header("Cache-Control", "no-cache")
+            self.send_header("Connection", "close")
+            self.end_headers()
+            self.close_connection = True
+            try:
+                for piece in split_chunks(content, args.chunks):
+                    self._write_event(self._chunk(protocol, piece))
+                    time.sleep(args.chunk_delay_ms / 1000.0)
+                if protocol == "openai":
+                    self.wfile.write(b"data: [DONE]\n\n")
+                    self.wfile.flush()
+            except (BrokenPipeError, ConnectionResetError):
+                return "cancelled"
+            return "200"
+
+        @staticmethod
+        def _full_response(protocol, content):
+            if protocol == "openai":
+                return {
+                    "id": "chatcmpl-" + uuid.uuid4().hex,
+                    "object": "chat.completion",
+                    "created": int(time.time()),
+                    "model": "mock",
+                    "choices": [{"index": 0, "finish_reason": "stop",
+                                 "message": {"role": "assistant", "content": content}}],
+                }
+            return {"candidates": [{"content": {"role": "model", "parts": [{"text": content}]},
+                                    "finishReason": "STOP"}]}
+
+        @staticmethod
+        def _chunk(protocol, piece):
+            if protocol == "openai":
+                return {"object": "chat.completion.chunk", "model": "mock",
+                        "choices": [{"index": 0, "delta": {"content": piece}}]}
+            return {"candidates": [{"content": {"role": "model", "parts": [{"text": piece}]}}]}
+
+        def _write_event(self, payload):
+            self.wfile.write(b"data: " + json.dumps(payload, ensure_ascii=False).encode("utf-8") + b"\n\n")
+            self.wfile.flush()
+
+        def _send_error(self, protocol, status, reason, retry_after_s=None):
+            if protocol == "gemini":
+                error = {"error": {"code": status, "status": reason, "message": "mock " + reason}}
+                if retry_after_s is not None:
+                    error["error"]["details"] = [{"@type": "type.googleapis.com/google.rpc.RetryInfo",
+                                                  "retryDelay": f"{retry_after_s}s"}]
+            else:
+                error = {"error": {"code": status, "type": reason, "message": "mock " + reason}}
+            headers = {"Retry-After": str(retry_after_s)} if retry_after_s is not None else {}
+            self._send_json(status, error, headers)
+
+        def _send_json(self, status, payload, headers=None):
+            data = json.dumps(payload, ensure_ascii=False).encode("utf-8")
+            self.send_response(status)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(data)))
+            for name, value in (headers or {}).items():
+                self.send_header(name, value)
+            self.end_headers()
+            self.wfile.write(data)
+
+    return MockLlmHandler
+
+
+def parse_args(argv=None):
+    parser = argparse.ArgumentParser(description="Mock PLLUM (OpenAI) / Gemini do testów obciążeniowych.")
+    parser.add_argument("--host", default="127.0.0.1")
+    parser.add_argument("--port", type=int, default=8090)
+    parser.add_argument("--latency-dist", choices=["fixed", "uniform", "lognormal"], default="lognormal")
+    parser.add_argument("--latency-ms", type=float, default=1500, help="Opóźnienie (fixed) albo mediana (lognormal)")
+    parser.add_argument("--latency-sigma", type=float, default=0.5, help="Rozrzut rozkładu lognormal")
+    parser.add_argument("--latency-min-ms", type=float, default=500, help="Dolna granica rozkładu uniform")
+    parser.add_argument("--latency-max-ms", type=float, default=30000, help="Górna granica każdego rozkładu")
+    parser.add_argument("--error-rate", type=float, default=0.0, help="Odsetek odpowiedzi HTTP 500 (0-1)")
+    parser.add_argument("--rate-limit-rate", type=float, default=0.0, help="Odsetek odpowiedzi HTTP 429 (0-1)")
+    parser.add_argument("--retry-after-s", type=int, default=1, help="Retry-After przy 429")
+    parser.add_argument("--chunks", type=int, default=8, help="Liczba chunków odpowiedzi strumieniowej")
+    parser.add_argument("--chunk-delay-ms", type=float, default=50, help="Odstęp między chunkami")
+    parser.add_argument("--seed", type=int, default=None)
+    parser.add_argument("--verbose", action="store_true", help="Loguj każde żądanie")
+    return parser.parse_args(argv)
+
+
+def main(argv=None):
+    args = parse_args(argv)
+    if args.seed is not None:
+        random.seed(args.seed)
+    stats = Stats()
+    server = MockLlmServer((args.host, args.port), make_handler(args, stats))
+    print(f"Mock LLM na http://{args.host}:{args.port} "
+          f"(PLLUM: /v1/chat/completions, Gemini: /v1beta/models/<model>:generateContent), "
+          f"opóźnienie {args.latency_dist} {args.latency_ms} ms, błędy {args.error_rate}, 429 {args.rate_limit_rate}",
+          file=sys.stderr)
+    try:
+        server.serve_forever()
+    except KeyboardInterrupt:
+        pass
+    finally:
+        server.server_close()
+        print(json.dumps(stats.snapshot(), ensure_ascii=False), file=sys.stderr)
+
+
+if __name__ == "__main__":
+    main()